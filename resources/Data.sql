@@ -5,19 +5,81 @@ use prod;
 create table parking(
 PARKING_NUMBER int PRIMARY KEY,
 AVAILABLE bool NOT NULL,
-TYPE varchar(10) NOT NULL
+TYPE varchar(10) NOT NULL,
+SITE varchar(32) NOT NULL DEFAULT 'MAIN',
+LEVEL int NOT NULL DEFAULT 0,
+ZONE varchar(16),
+ENTRANCE_DISTANCE int NOT NULL DEFAULT 0
 );
 
+create index IDX_PARKING_SITE_TYPE on parking(SITE, TYPE, AVAILABLE, LEVEL);
+create index IDX_PARKING_SITE_TYPE_DISTANCE on parking(SITE, TYPE, AVAILABLE, ENTRANCE_DISTANCE, PARKING_NUMBER);
+
 create table ticket(
  ID int PRIMARY KEY AUTO_INCREMENT,
  PARKING_NUMBER int NOT NULL,
  VEHICLE_REG_NUMBER varchar(10) NOT NULL,
- PRICE double,
+ PRICE_IN_CENTS bigint,
  IN_TIME DATETIME NOT NULL,
  OUT_TIME DATETIME,
  FOREIGN KEY (PARKING_NUMBER)
  REFERENCES parking(PARKING_NUMBER));
 
+create index IDX_TICKET_VEHICLE_REG_NUMBER on ticket(VEHICLE_REG_NUMBER, IN_TIME);
+
+create index IDX_TICKET_OUT_TIME on ticket(OUT_TIME);
+
+create table ticket_archive(
+ ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE_IN_CENTS bigint,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL,
+ PRIMARY KEY (ID, OUT_TIME),
+ KEY IDX_TICKET_ARCHIVE_VEHICLE_REG_NUMBER (VEHICLE_REG_NUMBER, IN_TIME))
+ ROW_FORMAT=COMPRESSED
+ PARTITION BY RANGE (YEAR(OUT_TIME)) (
+ PARTITION p2019 VALUES LESS THAN (2020), PARTITION p2020 VALUES LESS THAN (2021),
+ PARTITION p2021 VALUES LESS THAN (2022), PARTITION p2022 VALUES LESS THAN (2023),
+ PARTITION p2023 VALUES LESS THAN (2024), PARTITION p2024 VALUES LESS THAN (2025),
+ PARTITION p2025 VALUES LESS THAN (2026), PARTITION p2026 VALUES LESS THAN (2027),
+ PARTITION p2027 VALUES LESS THAN (2028), PARTITION pmax VALUES LESS THAN MAXVALUE);
+
+create table archived_visit(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ TICKETS int NOT NULL);
+
+create table ticket_repricing(
+ RUN_ID varchar(36) NOT NULL,
+ TICKET_ID int NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ OLD_PRICE_IN_CENTS bigint,
+ NEW_PRICE_IN_CENTS bigint NOT NULL,
+ PRIMARY KEY (RUN_ID, TICKET_ID));
+
+create table open_ticket(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ TICKET_ID int NOT NULL);
+
+create trigger TRG_TICKET_OPENED after insert on ticket for each row
+ insert into open_ticket(VEHICLE_REG_NUMBER, TICKET_ID) select NEW.VEHICLE_REG_NUMBER, NEW.ID from dual where NEW.OUT_TIME is null
+ on duplicate key update TICKET_ID = NEW.ID;
+
+create trigger TRG_TICKET_CLOSED after update on ticket for each row
+ delete from open_ticket where TICKET_ID = NEW.ID and NEW.OUT_TIME is not null;
+
+create table revenue_rollup(
+ BUCKET_HOUR DATETIME NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ REVENUE_IN_CENTS bigint NOT NULL,
+ TICKETS bigint NOT NULL,
+ PRIMARY KEY (BUCKET_HOUR, TYPE));
+
+create table write_behind_applied(
+ SEQ bigint PRIMARY KEY,
+ TICKET_ID int NOT NULL);
+
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(3,true,'CAR');
@@ -32,19 +94,81 @@ use test;
 create table parking(
 PARKING_NUMBER int PRIMARY KEY,
 AVAILABLE bool NOT NULL,
-TYPE varchar(10) NOT NULL
+TYPE varchar(10) NOT NULL,
+SITE varchar(32) NOT NULL DEFAULT 'MAIN',
+LEVEL int NOT NULL DEFAULT 0,
+ZONE varchar(16),
+ENTRANCE_DISTANCE int NOT NULL DEFAULT 0
 );
 
+create index IDX_PARKING_SITE_TYPE on parking(SITE, TYPE, AVAILABLE, LEVEL);
+create index IDX_PARKING_SITE_TYPE_DISTANCE on parking(SITE, TYPE, AVAILABLE, ENTRANCE_DISTANCE, PARKING_NUMBER);
+
 create table ticket(
  ID int PRIMARY KEY AUTO_INCREMENT,
  PARKING_NUMBER int NOT NULL,
  VEHICLE_REG_NUMBER varchar(10) NOT NULL,
- PRICE double,
+ PRICE_IN_CENTS bigint,
  IN_TIME DATETIME NOT NULL,
  OUT_TIME DATETIME,
  FOREIGN KEY (PARKING_NUMBER)
  REFERENCES parking(PARKING_NUMBER));
 
+create index IDX_TICKET_VEHICLE_REG_NUMBER on ticket(VEHICLE_REG_NUMBER, IN_TIME);
+
+create index IDX_TICKET_OUT_TIME on ticket(OUT_TIME);
+
+create table ticket_archive(
+ ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE_IN_CENTS bigint,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL,
+ PRIMARY KEY (ID, OUT_TIME),
+ KEY IDX_TICKET_ARCHIVE_VEHICLE_REG_NUMBER (VEHICLE_REG_NUMBER, IN_TIME))
+ ROW_FORMAT=COMPRESSED
+ PARTITION BY RANGE (YEAR(OUT_TIME)) (
+ PARTITION p2019 VALUES LESS THAN (2020), PARTITION p2020 VALUES LESS THAN (2021),
+ PARTITION p2021 VALUES LESS THAN (2022), PARTITION p2022 VALUES LESS THAN (2023),
+ PARTITION p2023 VALUES LESS THAN (2024), PARTITION p2024 VALUES LESS THAN (2025),
+ PARTITION p2025 VALUES LESS THAN (2026), PARTITION p2026 VALUES LESS THAN (2027),
+ PARTITION p2027 VALUES LESS THAN (2028), PARTITION pmax VALUES LESS THAN MAXVALUE);
+
+create table archived_visit(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ TICKETS int NOT NULL);
+
+create table ticket_repricing(
+ RUN_ID varchar(36) NOT NULL,
+ TICKET_ID int NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ OLD_PRICE_IN_CENTS bigint,
+ NEW_PRICE_IN_CENTS bigint NOT NULL,
+ PRIMARY KEY (RUN_ID, TICKET_ID));
+
+create table open_ticket(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ TICKET_ID int NOT NULL);
+
+create trigger TRG_TICKET_OPENED after insert on ticket for each row
+ insert into open_ticket(VEHICLE_REG_NUMBER, TICKET_ID) select NEW.VEHICLE_REG_NUMBER, NEW.ID from dual where NEW.OUT_TIME is null
+ on duplicate key update TICKET_ID = NEW.ID;
+
+create trigger TRG_TICKET_CLOSED after update on ticket for each row
+ delete from open_ticket where TICKET_ID = NEW.ID and NEW.OUT_TIME is not null;
+
+create table revenue_rollup(
+ BUCKET_HOUR DATETIME NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ REVENUE_IN_CENTS bigint NOT NULL,
+ TICKETS bigint NOT NULL,
+ PRIMARY KEY (BUCKET_HOUR, TYPE));
+
+create table write_behind_applied(
+ SEQ bigint PRIMARY KEY,
+ TICKET_ID int NOT NULL);
+
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(3,true,'CAR');
@@ -0,0 +1,6 @@
+/* Adds the index used by GET_TICKET and GET_TICKETS_COUNT to databases created before it was part of Data.sql */
+use prod;
+create index IDX_TICKET_VEHICLE_REG_NUMBER on ticket(VEHICLE_REG_NUMBER, IN_TIME);
+
+use test;
+create index IDX_TICKET_VEHICLE_REG_NUMBER on ticket(VEHICLE_REG_NUMBER, IN_TIME);
@@ -0,0 +1,10 @@
+/* Stores ticket prices as whole cents instead of a floating point amount, rounding existing prices half up */
+use prod;
+alter table ticket add column PRICE_IN_CENTS bigint after VEHICLE_REG_NUMBER;
+update ticket set PRICE_IN_CENTS = round(cast(PRICE as decimal(15,4)) * 100) where PRICE is not null;
+alter table ticket drop column PRICE;
+
+use test;
+alter table ticket add column PRICE_IN_CENTS bigint after VEHICLE_REG_NUMBER;
+update ticket set PRICE_IN_CENTS = round(cast(PRICE as decimal(15,4)) * 100) where PRICE is not null;
+alter table ticket drop column PRICE;
@@ -0,0 +1,24 @@
+/* Adds the open_ticket lookup used on exit, its maintenance triggers, and fills it from the tickets still open */
+use prod;
+create table open_ticket(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ TICKET_ID int NOT NULL);
+create trigger TRG_TICKET_OPENED after insert on ticket for each row
+ insert into open_ticket(VEHICLE_REG_NUMBER, TICKET_ID) select NEW.VEHICLE_REG_NUMBER, NEW.ID from dual where NEW.OUT_TIME is null
+ on duplicate key update TICKET_ID = NEW.ID;
+create trigger TRG_TICKET_CLOSED after update on ticket for each row
+ delete from open_ticket where TICKET_ID = NEW.ID and NEW.OUT_TIME is not null;
+insert into open_ticket(VEHICLE_REG_NUMBER, TICKET_ID)
+ select VEHICLE_REG_NUMBER, max(ID) from ticket where OUT_TIME is null group by VEHICLE_REG_NUMBER;
+
+use test;
+create table open_ticket(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ TICKET_ID int NOT NULL);
+create trigger TRG_TICKET_OPENED after insert on ticket for each row
+ insert into open_ticket(VEHICLE_REG_NUMBER, TICKET_ID) select NEW.VEHICLE_REG_NUMBER, NEW.ID from dual where NEW.OUT_TIME is null
+ on duplicate key update TICKET_ID = NEW.ID;
+create trigger TRG_TICKET_CLOSED after update on ticket for each row
+ delete from open_ticket where TICKET_ID = NEW.ID and NEW.OUT_TIME is not null;
+insert into open_ticket(VEHICLE_REG_NUMBER, TICKET_ID)
+ select VEHICLE_REG_NUMBER, max(ID) from ticket where OUT_TIME is null group by VEHICLE_REG_NUMBER;
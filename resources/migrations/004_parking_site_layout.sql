@@ -0,0 +1,12 @@
+/* Places every spot on a site, level and zone with a distance from the entrance; existing spots land on site MAIN */
+use prod;
+alter table parking add column SITE varchar(32) NOT NULL DEFAULT 'MAIN', add column LEVEL int NOT NULL DEFAULT 0,
+ add column ZONE varchar(16), add column ENTRANCE_DISTANCE int NOT NULL DEFAULT 0;
+create index IDX_PARKING_SITE_TYPE on parking(SITE, TYPE, AVAILABLE, LEVEL);
+create index IDX_PARKING_SITE_TYPE_DISTANCE on parking(SITE, TYPE, AVAILABLE, ENTRANCE_DISTANCE, PARKING_NUMBER);
+
+use test;
+alter table parking add column SITE varchar(32) NOT NULL DEFAULT 'MAIN', add column LEVEL int NOT NULL DEFAULT 0,
+ add column ZONE varchar(16), add column ENTRANCE_DISTANCE int NOT NULL DEFAULT 0;
+create index IDX_PARKING_SITE_TYPE on parking(SITE, TYPE, AVAILABLE, LEVEL);
+create index IDX_PARKING_SITE_TYPE_DISTANCE on parking(SITE, TYPE, AVAILABLE, ENTRANCE_DISTANCE, PARKING_NUMBER);
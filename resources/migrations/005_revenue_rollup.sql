@@ -0,0 +1,22 @@
+/* Adds the hourly revenue rollup per parking type and fills it from the tickets already paid */
+use prod;
+create table revenue_rollup(
+ BUCKET_HOUR DATETIME NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ REVENUE_IN_CENTS bigint NOT NULL,
+ TICKETS bigint NOT NULL,
+ PRIMARY KEY (BUCKET_HOUR, TYPE));
+insert into revenue_rollup(BUCKET_HOUR, TYPE, REVENUE_IN_CENTS, TICKETS)
+ select date_format(t.OUT_TIME, '%Y-%m-%d %H:00:00'), p.TYPE, sum(t.PRICE_IN_CENTS), count(*)
+ from ticket t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.OUT_TIME is not null group by 1, 2;
+
+use test;
+create table revenue_rollup(
+ BUCKET_HOUR DATETIME NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ REVENUE_IN_CENTS bigint NOT NULL,
+ TICKETS bigint NOT NULL,
+ PRIMARY KEY (BUCKET_HOUR, TYPE));
+insert into revenue_rollup(BUCKET_HOUR, TYPE, REVENUE_IN_CENTS, TICKETS)
+ select date_format(t.OUT_TIME, '%Y-%m-%d %H:00:00'), p.TYPE, sum(t.PRICE_IN_CENTS), count(*)
+ from ticket t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.OUT_TIME is not null group by 1, 2;
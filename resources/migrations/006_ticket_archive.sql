@@ -0,0 +1,47 @@
+/*
+ * Adds the archive closed tickets are moved to, one partition per year so old years can be dropped or moved to cheaper
+ * storage, and archived_visit, which keeps the number of archived tickets per vehicle for the recurring-user discount
+ */
+use prod;
+create index IDX_TICKET_OUT_TIME on ticket(OUT_TIME);
+create table ticket_archive(
+ ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE_IN_CENTS bigint,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL,
+ PRIMARY KEY (ID, OUT_TIME),
+ KEY IDX_TICKET_ARCHIVE_VEHICLE_REG_NUMBER (VEHICLE_REG_NUMBER, IN_TIME))
+ ROW_FORMAT=COMPRESSED
+ PARTITION BY RANGE (YEAR(OUT_TIME)) (
+ PARTITION p2019 VALUES LESS THAN (2020), PARTITION p2020 VALUES LESS THAN (2021),
+ PARTITION p2021 VALUES LESS THAN (2022), PARTITION p2022 VALUES LESS THAN (2023),
+ PARTITION p2023 VALUES LESS THAN (2024), PARTITION p2024 VALUES LESS THAN (2025),
+ PARTITION p2025 VALUES LESS THAN (2026), PARTITION p2026 VALUES LESS THAN (2027),
+ PARTITION p2027 VALUES LESS THAN (2028), PARTITION pmax VALUES LESS THAN MAXVALUE);
+create table archived_visit(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ TICKETS int NOT NULL);
+
+use test;
+create index IDX_TICKET_OUT_TIME on ticket(OUT_TIME);
+create table ticket_archive(
+ ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE_IN_CENTS bigint,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL,
+ PRIMARY KEY (ID, OUT_TIME),
+ KEY IDX_TICKET_ARCHIVE_VEHICLE_REG_NUMBER (VEHICLE_REG_NUMBER, IN_TIME))
+ ROW_FORMAT=COMPRESSED
+ PARTITION BY RANGE (YEAR(OUT_TIME)) (
+ PARTITION p2019 VALUES LESS THAN (2020), PARTITION p2020 VALUES LESS THAN (2021),
+ PARTITION p2021 VALUES LESS THAN (2022), PARTITION p2022 VALUES LESS THAN (2023),
+ PARTITION p2023 VALUES LESS THAN (2024), PARTITION p2024 VALUES LESS THAN (2025),
+ PARTITION p2025 VALUES LESS THAN (2026), PARTITION p2026 VALUES LESS THAN (2027),
+ PARTITION p2027 VALUES LESS THAN (2028), PARTITION pmax VALUES LESS THAN MAXVALUE);
+create table archived_visit(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ TICKETS int NOT NULL);
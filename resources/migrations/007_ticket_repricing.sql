@@ -0,0 +1,18 @@
+/* Adds the table re-pricing runs can write the tickets whose price would change to */
+use prod;
+create table ticket_repricing(
+ RUN_ID varchar(36) NOT NULL,
+ TICKET_ID int NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ OLD_PRICE_IN_CENTS bigint,
+ NEW_PRICE_IN_CENTS bigint NOT NULL,
+ PRIMARY KEY (RUN_ID, TICKET_ID));
+
+use test;
+create table ticket_repricing(
+ RUN_ID varchar(36) NOT NULL,
+ TICKET_ID int NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ OLD_PRICE_IN_CENTS bigint,
+ NEW_PRICE_IN_CENTS bigint NOT NULL,
+ PRIMARY KEY (RUN_ID, TICKET_ID));
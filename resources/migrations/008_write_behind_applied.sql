@@ -0,0 +1,10 @@
+/* Adds the table where the write-behind store records which journal records it already wrote to the ticket table, so a replay applies them once */
+use prod;
+create table write_behind_applied(
+ SEQ bigint PRIMARY KEY,
+ TICKET_ID int NOT NULL);
+
+use test;
+create table write_behind_applied(
+ SEQ bigint PRIMARY KEY,
+ TICKET_ID int NOT NULL);
@@ -0,0 +1,66 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FareCalculatorBenchmark {
+
+	@Param({"CAR", "BIKE"})
+	public ParkingType parkingType;
+
+	@Param({"false", "true"})
+	public boolean recurrent;
+
+	@Param({"20", "90", "1440"})
+	public int stayMinutes;
+
+	private final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+	private Ticket ticket;
+	private long inEpochMillis;
+	private long outEpochMillis;
+
+	@Setup
+	public void setUp() {
+		long outTime = 1704888000000L;
+		outEpochMillis = outTime;
+		inEpochMillis = outTime - stayMinutes * 60_000L;
+		ticket = new Ticket();
+		ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+		ticket.setVehicleRegNumber("BENCH");
+		ticket.setInTime(new Date(outTime - stayMinutes * 60_000L));
+		ticket.setOutTime(new Date(outTime));
+	}
+
+	@Benchmark
+	public long calculateFare() {
+		fareCalculatorService.calculateFare(ticket, recurrent);
+		return ticket.getPriceInCents();
+	}
+
+	@Benchmark
+	public long calculateFareInCents() {
+		return fareCalculatorService.calculateFare(inEpochMillis, outEpochMillis, parkingType, recurrent);
+	}
+}
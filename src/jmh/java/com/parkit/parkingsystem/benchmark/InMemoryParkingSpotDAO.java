@@ -0,0 +1,69 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class InMemoryParkingSpotDAO extends ParkingSpotDAO {
+	private final ParkingType[] types;
+	private final AtomicIntegerArray available;
+	private int lastClaimed;
+
+	public InMemoryParkingSpotDAO(int carSpots, int bikeSpots) {
+		types = new ParkingType[carSpots + bikeSpots + 1];
+		available = new AtomicIntegerArray(types.length);
+		for (int number = 1; number < types.length; number++) {
+			types[number] = (number <= carSpots) ? ParkingType.CAR : ParkingType.BIKE;
+			available.set(number, 1);
+		}
+	}
+
+	@Override
+	public int getNextAvailableSlot(String site, ParkingType parkingType, AllocationStrategy allocationStrategy) {
+		for (int number = 1; number < types.length; number++) {
+			if (types[number] == parkingType && available.get(number) == 1) {
+				return number;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public List<ParkingSpot> getParkingSpots() {
+		List<ParkingSpot> parkingSpots = new ArrayList<>();
+		for (int number = 1; number < types.length; number++) {
+			parkingSpots.add(new ParkingSpot(number, types[number], available.get(number) == 1));
+		}
+		return parkingSpots;
+	}
+
+	@Override
+	public int claimNextAvailableSlot(String site, ParkingType parkingType, AllocationStrategy allocationStrategy) {
+		for (int number = 1; number < types.length; number++) {
+			if (types[number] == parkingType && available.compareAndSet(number, 1, 0)) {
+				lastClaimed = number;
+				return number;
+			}
+		}
+		return -1;
+	}
+
+	public int getLastClaimed() {
+		return lastClaimed;
+	}
+
+	public void release(int parkingNumber) {
+		available.set(parkingNumber, 1);
+	}
+
+	@Override
+	public boolean updateParking(ParkingSpot parkingSpot) {
+		available.set(parkingSpot.getId(), parkingSpot.isAvailable() ? 1 : 0);
+		return true;
+	}
+}
@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InMemoryTicketDAO extends TicketDAO {
+	private final AtomicInteger nextId = new AtomicInteger();
+	private final Map<String, Ticket> latestTickets = new ConcurrentHashMap<>();
+	private final Map<String, AtomicInteger> ticketCounts = new ConcurrentHashMap<>();
+
+	@Override
+	public boolean saveTicket(Ticket ticket) {
+		ticket.setId(nextId.incrementAndGet());
+		latestTickets.put(ticket.getVehicleRegNumber(), ticket);
+		ticketCounts.computeIfAbsent(ticket.getVehicleRegNumber(), key -> new AtomicInteger()).incrementAndGet();
+		return true;
+	}
+
+	@Override
+	public Ticket getTicket(String vehicleRegNumber) {
+		Ticket stored = latestTickets.get(vehicleRegNumber);
+		if (stored == null) {
+			return null;
+		}
+		Ticket ticket = new Ticket();
+		ParkingSpot parkingSpot = stored.getParkingSpot();
+		ticket.setId(stored.getId());
+		ticket.setParkingSpot(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable()));
+		ticket.setVehicleRegNumber(vehicleRegNumber);
+		ticket.setPriceInCents(stored.getPriceInCents());
+		ticket.setInTime(stored.getInTime());
+		ticket.setOutTime(stored.getOutTime());
+		return ticket;
+	}
+
+	@Override
+	public Ticket getOpenTicket(String vehicleRegNumber) {
+		Ticket ticket = getTicket(vehicleRegNumber);
+		return ticket == null || ticket.getOutTime() != null ? null : ticket;
+	}
+
+	@Override
+	public int getTicketsCount(String vehicleRegNumber) {
+		AtomicInteger count = ticketCounts.get(vehicleRegNumber);
+		return count == null ? 0 : count.get();
+	}
+
+	@Override
+	public boolean updateTicket(Ticket ticket) {
+		latestTickets.put(ticket.getVehicleRegNumber(), ticket);
+		return true;
+	}
+
+	/* puts the vehicle's latest ticket back in its parked state so the same exit can be measured again */
+	public void reopen(String vehicleRegNumber) {
+		Ticket stored = latestTickets.get(vehicleRegNumber);
+		if (stored != null) {
+			stored.setPriceInCents(0);
+			stored.setOutTime(null);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.util.LatencyRecorder;
+import com.parkit.parkingsystem.util.MetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/* cost of one recorded event on the hot path: a timed section and an outcome counter, alone and with 4 threads */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+	private final MetricsRegistry metrics = new MetricsRegistry();
+	private final LatencyRecorder timer = metrics.timer("benchmark.timer");
+	private final LongAdder counter = metrics.counter("benchmark.counter");
+
+	@Benchmark
+	public long clockOnly() {
+		long start = System.nanoTime();
+		return System.nanoTime() - start;
+	}
+
+	@Benchmark
+	public void timedEvent() {
+		long start = System.nanoTime();
+		timer.record(System.nanoTime() - start);
+		counter.increment();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void timedEventContended() {
+		long start = System.nanoTime();
+		timer.record(System.nanoTime() - start);
+		counter.increment();
+	}
+}
@@ -0,0 +1,99 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParkingWorkflowBenchmark {
+	private static final long IN_TIME = 1704888000000L;
+	private static final long OUT_TIME = IN_TIME + 60 * 60 * 1000L;
+
+	@Param({"1", "2"})
+	public int vehicleType;
+
+	@Param({"64"})
+	public int vehicles;
+
+	private InMemoryParkingSpotDAO parkingSpotDAO;
+	private InMemoryTicketDAO ticketDAO;
+	private ParkingService parkingService;
+	private EntryRequest[] entryRequests;
+	private ExitRequest[] exitRequests;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ParkingType parkingType = vehicleType == 1 ? ParkingType.CAR : ParkingType.BIKE;
+		parkingSpotDAO = new InMemoryParkingSpotDAO(2 * vehicles, 2 * vehicles);
+		ticketDAO = new InMemoryTicketDAO();
+		parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+		entryRequests = new EntryRequest[vehicles];
+		exitRequests = new ExitRequest[vehicles];
+		for (int i = 0; i < vehicles; i++) {
+			entryRequests[i] = new EntryRequest(parkingType, "BENCH" + i, new Date(IN_TIME));
+			exitRequests[i] = new ExitRequest("BENCH" + i, new Date(OUT_TIME));
+			parkingService.processIncomingVehicle(entryRequests[i]);
+		}
+	}
+
+	private int nextVehicle() {
+		int vehicle = next;
+		next = (next + 1) % vehicles;
+		return vehicle;
+	}
+
+	@Benchmark
+	public EntryResult processIncomingVehicle() {
+		EntryResult result = parkingService.processIncomingVehicle(entryRequests[nextVehicle()]);
+		parkingSpotDAO.release(parkingSpotDAO.getLastClaimed());
+		return result;
+	}
+
+	@State(Scope.Thread)
+	public static class ParkedVehicle {
+		private int vehicle;
+
+		/* the previous invocation closed the ticket, so it is reopened outside the measurement */
+		@Setup(Level.Invocation)
+		public void reopen(ParkingWorkflowBenchmark benchmark) {
+			vehicle = benchmark.nextVehicle();
+			benchmark.ticketDAO.reopen(benchmark.exitRequests[vehicle].getVehicleRegNumber());
+		}
+	}
+
+	@Benchmark
+	public ExitResult processExitingVehicle(ParkedVehicle parkedVehicle) {
+		return parkingService.processExitingVehicle(exitRequests[parkedVehicle.vehicle]);
+	}
+
+	@Benchmark
+	public ExitResult entryAndExitCycle() {
+		int vehicle = nextVehicle();
+		parkingService.processIncomingVehicle(entryRequests[vehicle]);
+		return parkingService.processExitingVehicle(exitRequests[vehicle]);
+	}
+}
@@ -1,6 +1,10 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.service.GateServer;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.LoadGenerator;
+import com.parkit.parkingsystem.service.TicketAnalytics;
+import com.parkit.parkingsystem.service.TicketRepricer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -8,6 +12,18 @@ public class App {
     private static final Logger logger = LogManager.getLogger("App");
     public static void main(String args[]){
         logger.info("Initializing Parking System");
-        InteractiveShell.loadInterface();
+        if (args.length > 0 && args[0].equals("--server")) {
+            GateServer.loadServer();
+        } else if (args.length > 0 && args[0].equals("--load")) {
+            LoadGenerator.loadGenerator();
+        } else if (args.length > 0 && args[0].equals("--analytics")) {
+            TicketAnalytics.loadAnalytics(args);
+        } else if (args.length > 0 && args[0].equals("--revenue")) {
+            TicketAnalytics.loadRevenue(args);
+        } else if (args.length > 0 && args[0].equals("--reprice")) {
+            TicketRepricer.loadRepricing(args);
+        } else {
+            InteractiveShell.loadInterface();
+        }
     }
 }
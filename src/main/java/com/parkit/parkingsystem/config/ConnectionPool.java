@@ -0,0 +1,354 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConnectionPool {
+	private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+	public interface ConnectionFactory {
+		Connection create() throws SQLException;
+	}
+
+	private final ConnectionFactory connectionFactory;
+	private final int minSize;
+	private final int maxSize;
+	private final long idleTimeoutMillis;
+	private final long borrowTimeoutMillis;
+	private final int validationTimeoutSeconds;
+	private final int statementCacheSize;
+
+	private final LinkedBlockingDeque<IdleConnection> idleConnections = new LinkedBlockingDeque<>();
+	private final Set<Connection> activeConnections = ConcurrentHashMap.newKeySet();
+	private final Semaphore permits;
+	private final ThreadLocal<Connection> boundConnection = new ThreadLocal<>();
+	private final ThreadLocal<List<Runnable>> commitCallbacks = ThreadLocal.withInitial(ArrayList::new);
+	private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+	private final Set<PreparedStatement> cachedStatements = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService evictor;
+
+	private final LongAdder borrowCount = new LongAdder();
+	private final LongAdder createdCount = new LongAdder();
+	private final LongAdder evictedCount = new LongAdder();
+	private final LongAdder totalWaitNanos = new LongAdder();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final LongAdder statementCacheHits = new LongAdder();
+	private final LongAdder statementCacheMisses = new LongAdder();
+
+	private volatile boolean closed;
+
+	public ConnectionPool(ConnectionFactory connectionFactory, int minSize, int maxSize, long idleTimeoutMillis,
+			long borrowTimeoutMillis, int validationTimeoutSeconds, long evictionIntervalMillis) {
+		this(connectionFactory, minSize, maxSize, idleTimeoutMillis, borrowTimeoutMillis, validationTimeoutSeconds,
+				evictionIntervalMillis, 0);
+	}
+
+	public ConnectionPool(ConnectionFactory connectionFactory, int minSize, int maxSize, long idleTimeoutMillis,
+			long borrowTimeoutMillis, int validationTimeoutSeconds, long evictionIntervalMillis,
+			int statementCacheSize) {
+		if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+			throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+		}
+		this.connectionFactory = connectionFactory;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+		this.validationTimeoutSeconds = validationTimeoutSeconds;
+		this.statementCacheSize = statementCacheSize;
+		this.permits = new Semaphore(maxSize, true);
+		this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "connection-pool-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		if (evictionIntervalMillis > 0) {
+			evictor.scheduleWithFixedDelay(this::maintain, 0, evictionIntervalMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public Connection borrow() throws SQLException {
+		if (closed) {
+			throw new SQLException("Connection pool is closed");
+		}
+		long start = System.nanoTime();
+		try {
+			if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis + "ms waiting for a DB connection");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a DB connection", e);
+		}
+		recordWait(System.nanoTime() - start);
+
+		try {
+			IdleConnection idle;
+			while ((idle = idleConnections.pollFirst()) != null) {
+				if (isValid(idle.connection)) {
+					activeConnections.add(idle.connection);
+					return idle.connection;
+				}
+				discard(idle.connection);
+			}
+			Connection con = connectionFactory.create();
+			createdCount.increment();
+			activeConnections.add(con);
+			return con;
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	public void release(Connection con) {
+		if (con == null) {
+			return;
+		}
+		if (!activeConnections.remove(con)) {
+			discard(con);
+			return;
+		}
+		try {
+			if (closed || con.isClosed()) {
+				discard(con);
+			} else {
+				if (!con.getAutoCommit()) {
+					con.rollback();
+					con.setAutoCommit(true);
+				}
+				idleConnections.offerFirst(new IdleConnection(con, System.currentTimeMillis()));
+			}
+		} catch (SQLException e) {
+			logger.error("Error while returning connection to the pool", e);
+			discard(con);
+		} finally {
+			permits.release();
+		}
+	}
+
+	public PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+		return prepareStatement(con, sql, Statement.NO_GENERATED_KEYS);
+	}
+
+	public PreparedStatement prepareStatement(Connection con, String sql, int autoGeneratedKeys) throws SQLException {
+		if (statementCacheSize <= 0 || !activeConnections.contains(con)) {
+			return createStatement(con, sql, autoGeneratedKeys);
+		}
+		StatementCache statementCache = statementCaches.computeIfAbsent(con,
+				key -> new StatementCache(statementCacheSize, this::evictStatement));
+		String cacheKey = (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS) ? "keys:" + sql : sql;
+		PreparedStatement ps = statementCache.get(cacheKey);
+		if (ps != null && !ps.isClosed()) {
+			statementCacheHits.increment();
+			return ps;
+		}
+		statementCacheMisses.increment();
+		ps = createStatement(con, sql, autoGeneratedKeys);
+		cachedStatements.add(ps);
+		statementCache.put(cacheKey, ps);
+		return ps;
+	}
+
+	private static PreparedStatement createStatement(Connection con, String sql, int autoGeneratedKeys)
+			throws SQLException {
+		return (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS)
+				? con.prepareStatement(sql, autoGeneratedKeys)
+				: con.prepareStatement(sql);
+	}
+
+	public boolean isCached(PreparedStatement ps) {
+		return cachedStatements.contains(ps);
+	}
+
+	public Connection getBoundConnection() {
+		return boundConnection.get();
+	}
+
+	public void bind(Connection con) {
+		boundConnection.set(con);
+	}
+
+	public Connection unbind() {
+		Connection con = boundConnection.get();
+		boundConnection.remove();
+		return con;
+	}
+
+	public void addCommitCallback(Runnable callback) {
+		commitCallbacks.get().add(callback);
+	}
+
+	public List<Runnable> takeCommitCallbacks() {
+		List<Runnable> callbacks = commitCallbacks.get();
+		commitCallbacks.remove();
+		return callbacks;
+	}
+
+	public void close() {
+		closed = true;
+		evictor.shutdownNow();
+		IdleConnection idle;
+		while ((idle = idleConnections.pollFirst()) != null) {
+			discard(idle.connection);
+		}
+	}
+
+	public void maintain() {
+		long now = System.currentTimeMillis();
+		Iterator<IdleConnection> oldestFirst = idleConnections.descendingIterator();
+		while (oldestFirst.hasNext() && getTotalConnections() > minSize) {
+			IdleConnection idle = oldestFirst.next();
+			if (now - idle.lastUsedMillis < idleTimeoutMillis) {
+				break;
+			}
+			if (idleConnections.remove(idle)) {
+				evictedCount.increment();
+				discard(idle.connection);
+			}
+		}
+		while (!closed && getTotalConnections() < minSize && permits.tryAcquire()) {
+			try {
+				Connection con = connectionFactory.create();
+				createdCount.increment();
+				idleConnections.offerLast(new IdleConnection(con, System.currentTimeMillis()));
+			} catch (SQLException e) {
+				logger.error("Error while filling the connection pool", e);
+				break;
+			} finally {
+				permits.release();
+			}
+		}
+	}
+
+	private boolean isValid(Connection con) {
+		try {
+			return !con.isClosed() && con.isValid(validationTimeoutSeconds);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private void evictStatement(PreparedStatement ps) {
+		cachedStatements.remove(ps);
+		try {
+			ps.close();
+		} catch (SQLException e) {
+			logger.error("Error while closing cached prepared statement", e);
+		}
+	}
+
+	private void discard(Connection con) {
+		StatementCache statementCache = statementCaches.remove(con);
+		if (statementCache != null) {
+			cachedStatements.removeAll(statementCache.clear());
+		}
+		try {
+			con.close();
+		} catch (SQLException e) {
+			logger.error("Error while closing connection", e);
+		}
+	}
+
+	private void recordWait(long waitNanos) {
+		borrowCount.increment();
+		totalWaitNanos.add(waitNanos);
+		maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+	}
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getActiveConnections() {
+		return activeConnections.size();
+	}
+
+	public int getIdleConnections() {
+		return idleConnections.size();
+	}
+
+	public int getTotalConnections() {
+		return getActiveConnections() + getIdleConnections();
+	}
+
+	public int getPendingBorrowers() {
+		return permits.getQueueLength();
+	}
+
+	public long getBorrowCount() {
+		return borrowCount.sum();
+	}
+
+	public long getCreatedCount() {
+		return createdCount.sum();
+	}
+
+	public long getEvictedCount() {
+		return evictedCount.sum();
+	}
+
+	public long getTotalWaitNanos() {
+		return totalWaitNanos.sum();
+	}
+
+	public long getMaxWaitNanos() {
+		return maxWaitNanos.get();
+	}
+
+	public long getAverageWaitNanos() {
+		long borrows = getBorrowCount();
+		return borrows == 0 ? 0 : getTotalWaitNanos() / borrows;
+	}
+
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	public long getStatementCacheHits() {
+		return statementCacheHits.sum();
+	}
+
+	public long getStatementCacheMisses() {
+		return statementCacheMisses.sum();
+	}
+
+	public double getStatementCacheHitRatio() {
+		long hits = getStatementCacheHits();
+		long lookups = hits + getStatementCacheMisses();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	private static class IdleConnection {
+		private final Connection connection;
+		private final long lastUsedMillis;
+
+		private IdleConnection(Connection connection, long lastUsedMillis) {
+			this.connection = connection;
+			this.lastUsedMillis = lastUsedMillis;
+		}
+	}
+}
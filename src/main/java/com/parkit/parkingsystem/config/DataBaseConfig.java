@@ -1,51 +1,294 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.util.LatencyRecorder;
+import com.parkit.parkingsystem.util.MetricsRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DataBaseConfig {
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
+    /* per-call connection/statement lifecycle, off unless this category is set to trace */
+    private static final Logger lifecycleLogger = LogManager.getLogger("DataBaseConfig.lifecycle");
+    private static final String PROPERTIES_FILE = "database.properties";
+    private static final Properties properties = loadProperties();
+    private static final Map<String, ConnectionPool> connectionPools = new ConcurrentHashMap<>();
+    private static final LatencyRecorder connectionAcquireLatency = MetricsRegistry.getDefault().timer("db.connection.acquire");
 
     public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
+        ConnectionPool connectionPool = getConnectionPool();
+        Connection transactionConnection = connectionPool.getBoundConnection();
+        if (transactionConnection != null) {
+            return transactionConnection;
+        }
+        if (lifecycleLogger.isTraceEnabled()) {
+            lifecycleLogger.trace("Create DB connection");
+        }
+        long start = System.nanoTime();
+        try {
+            return connectionPool.borrow();
+        } finally {
+            connectionAcquireLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public void beginTransaction() throws ClassNotFoundException, SQLException {
+        ConnectionPool connectionPool = getConnectionPool();
+        if (connectionPool.getBoundConnection() != null) {
+            throw new IllegalStateException("A transaction is already in progress on this thread");
+        }
+        Connection con = connectionPool.borrow();
+        try {
+            con.setAutoCommit(false);
+        } catch (SQLException e) {
+            connectionPool.release(con);
+            throw e;
+        }
+        connectionPool.bind(con);
+    }
+
+    public boolean isInTransaction() {
+        ConnectionPool connectionPool = connectionPools.get(getJdbcUrl());
+        return connectionPool != null && connectionPool.getBoundConnection() != null;
+    }
+
+    public void commitTransaction() throws SQLException {
+        ConnectionPool connectionPool = connectionPools.get(getJdbcUrl());
+        Connection con = connectionPool == null ? null : connectionPool.unbind();
+        if (con == null) {
+            throw new IllegalStateException("No transaction in progress on this thread");
+        }
+        List<Runnable> callbacks = connectionPool.takeCommitCallbacks();
+        try {
+            con.commit();
+        } catch (SQLException e) {
+            rollbackQuietly(con);
+            throw e;
+        } finally {
+            connectionPool.release(con);
+        }
+        for (Runnable callback : callbacks) {
+            runCallback(callback);
+        }
+    }
+
+    public void rollbackTransaction() {
+        ConnectionPool connectionPool = connectionPools.get(getJdbcUrl());
+        Connection con = connectionPool == null ? null : connectionPool.unbind();
+        if (con != null) {
+            connectionPool.takeCommitCallbacks();
+            rollbackQuietly(con);
+            connectionPool.release(con);
+        }
+    }
+
+    public void afterCommit(Runnable callback) {
+        ConnectionPool connectionPool = connectionPools.get(getJdbcUrl());
+        if (connectionPool != null && connectionPool.getBoundConnection() != null) {
+            connectionPool.addCommitCallback(callback);
+        } else {
+            runCallback(callback);
+        }
+    }
+
+    private void runCallback(Runnable callback) {
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            logger.error("Error while running after-commit callback",e);
+        }
+    }
+
+    private void rollbackQuietly(Connection con) {
+        try {
+            con.rollback();
+        } catch (SQLException e) {
+            logger.error("Error while rolling back transaction",e);
+        }
+    }
+
+    public ConnectionPool getConnectionPool() throws ClassNotFoundException {
+        String url = getJdbcUrl();
+        ConnectionPool existing = connectionPools.get(url);
+        if (existing != null) {
+            return existing;
+        }
         Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","rootroot"
-        );
+        Properties connectionProperties = new Properties();
+        connectionProperties.setProperty("user", getUser());
+        connectionProperties.setProperty("password", getPassword());
+        connectionProperties.setProperty("useServerPrepStmts",
+                String.valueOf(getBooleanProperty("db.useServerPrepStmts", true)));
+        connectionProperties.setProperty("rewriteBatchedStatements",
+                String.valueOf(getBooleanProperty("db.rewriteBatchedStatements", true)));
+        /* only statements given a fetch size, i.e. streaming ones, are read through a server-side cursor */
+        connectionProperties.setProperty("useCursorFetch",
+                String.valueOf(getBooleanProperty("db.useCursorFetch", true)));
+        return connectionPools.computeIfAbsent(url, key -> registerPoolGauges(new ConnectionPool(
+                () -> DriverManager.getConnection(url, connectionProperties),
+                getIntProperty("pool.minSize", 1),
+                getIntProperty("pool.maxSize", 10),
+                getLongProperty("pool.idleTimeoutMillis", 300000),
+                getLongProperty("pool.borrowTimeoutMillis", 5000),
+                getIntProperty("pool.validationTimeoutSeconds", 2),
+                getLongProperty("pool.evictionIntervalMillis", 30000),
+                getIntProperty("pool.statementCacheSize", 32)
+        )));
+    }
+
+    private static ConnectionPool registerPoolGauges(ConnectionPool connectionPool) {
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        metrics.gauge("db.pool.active", connectionPool::getActiveConnections);
+        metrics.gauge("db.pool.idle", connectionPool::getIdleConnections);
+        metrics.gauge("db.pool.pending", connectionPool::getPendingBorrowers);
+        metrics.gauge("db.pool.statementCacheHits", connectionPool::getStatementCacheHits);
+        metrics.gauge("db.pool.statementCacheMisses", connectionPool::getStatementCacheMisses);
+        /* gauges are integral, so the ratio is exported in per-mille */
+        metrics.gauge("db.pool.statementCacheHitPerMille",
+                () -> Math.round(connectionPool.getStatementCacheHitRatio() * 1000));
+        return connectionPool;
+    }
+
+    protected String getJdbcUrl() {
+        return properties.getProperty("db.url", "jdbc:mysql://localhost:3306/prod");
+    }
+
+    protected String getUser() {
+        return properties.getProperty("db.user", "root");
+    }
+
+    protected String getPassword() {
+        return properties.getProperty("db.password", "rootroot");
+    }
+
+    public String getProperty(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue).trim();
+    }
+
+    public boolean getBooleanProperty(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(properties.getProperty(key, String.valueOf(defaultValue)).trim());
+    }
+
+    public int getIntProperty(String key, int defaultValue) {
+        return Integer.parseInt(properties.getProperty(key, String.valueOf(defaultValue)).trim());
+    }
+
+    public long getLongProperty(String key, long defaultValue) {
+        return Long.parseLong(properties.getProperty(key, String.valueOf(defaultValue)).trim());
     }
 
     public void closeConnection(Connection con) {
         if (con != null) {
+            ConnectionPool connectionPool = connectionPools.get(getJdbcUrl());
+            if (connectionPool != null && connectionPool.getBoundConnection() == con) {
+                return;
+            }
+            if (connectionPool != null) {
+                connectionPool.release(con);
+                if (lifecycleLogger.isTraceEnabled()) {
+                    lifecycleLogger.trace("Closing DB connection");
+                }
+                return;
+            }
             try {
                 con.close();
-                logger.info("Closing DB connection");
+                if (lifecycleLogger.isTraceEnabled()) {
+                    lifecycleLogger.trace("Closing DB connection");
+                }
             } catch (SQLException e) {
                 logger.error("Error while closing connection",e);
             }
         }
     }
 
+    public PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        ConnectionPool connectionPool = connectionPools.get(getJdbcUrl());
+        if (connectionPool == null) {
+            return con.prepareStatement(sql);
+        }
+        return connectionPool.prepareStatement(con, sql);
+    }
+
+    public PreparedStatement prepareStatement(Connection con, String sql, int autoGeneratedKeys) throws SQLException {
+        ConnectionPool connectionPool = connectionPools.get(getJdbcUrl());
+        if (connectionPool == null) {
+            return con.prepareStatement(sql, autoGeneratedKeys);
+        }
+        return connectionPool.prepareStatement(con, sql, autoGeneratedKeys);
+    }
+
+    /* forward-only, read-only and never cached, reading fetchSize rows per round trip instead of the whole result */
+    public PreparedStatement prepareStreamingStatement(Connection con, String sql, int fetchSize) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(fetchSize);
+        return ps;
+    }
+
     public void closePreparedStatement(PreparedStatement ps) {
         if (ps != null) {
+            ConnectionPool connectionPool = connectionPools.get(getJdbcUrl());
+            if (connectionPool != null && connectionPool.isCached(ps)) {
+                try {
+                    ps.clearParameters();
+                } catch (SQLException e) {
+                    logger.error("Error while clearing prepared statement",e);
+                }
+                return;
+            }
             try {
                 ps.close();
-                logger.info("Closing Prepared Statement");
+                if (lifecycleLogger.isTraceEnabled()) {
+                    lifecycleLogger.trace("Closing Prepared Statement");
+                }
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement",e);
             }
         }
     }
 
+    /* plain statements are for one-off DDL that would only take a slot in the statement cache */
+    public void closeStatement(Statement st) {
+        if (st != null) {
+            try {
+                st.close();
+                if (lifecycleLogger.isTraceEnabled()) {
+                    lifecycleLogger.trace("Closing Statement");
+                }
+            } catch (SQLException e) {
+                logger.error("Error while closing statement",e);
+            }
+        }
+    }
+
     public void closeResultSet(ResultSet rs) {
         if (rs != null) {
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                if (lifecycleLogger.isTraceEnabled()) {
+                    lifecycleLogger.trace("Closing Result Set");
+                }
             } catch (SQLException e) {
                 logger.error("Error while closing result set",e);
             }
         }
     }
+
+    private static Properties loadProperties() {
+        Properties loaded = new Properties();
+        try (InputStream in = DataBaseConfig.class.getClassLoader().getResourceAsStream(PROPERTIES_FILE)) {
+            if (in != null) {
+                loaded.load(in);
+            }
+        } catch (IOException e) {
+            logger.error("Error while loading " + PROPERTIES_FILE + ", using defaults", e);
+        }
+        return loaded;
+    }
 }
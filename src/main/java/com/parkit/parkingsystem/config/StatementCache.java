@@ -0,0 +1,39 @@
+package com.parkit.parkingsystem.config;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+class StatementCache {
+	private final Map<String, PreparedStatement> statements;
+
+	StatementCache(int maxSize, Consumer<PreparedStatement> onEviction) {
+		this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > maxSize) {
+					onEviction.accept(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	synchronized PreparedStatement get(String sql) {
+		return statements.get(sql);
+	}
+
+	synchronized void put(String sql, PreparedStatement ps) {
+		statements.put(sql, ps);
+	}
+
+	synchronized Collection<PreparedStatement> clear() {
+		Collection<PreparedStatement> removed = new ArrayList<>(statements.values());
+		statements.clear();
+		return removed;
+	}
+}
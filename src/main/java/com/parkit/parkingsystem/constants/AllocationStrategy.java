@@ -0,0 +1,11 @@
+package com.parkit.parkingsystem.constants;
+
+/* how a site picks the spot to hand out among its free spots of the requested type */
+public enum AllocationStrategy {
+	/* smallest entrance distance first */
+	NEAREST_ENTRANCE,
+	/* lowest level first, so upper levels can be closed off while they are empty */
+	FILL_BY_LEVEL,
+	/* the level with the most free spots first, to spread traffic over the ramps */
+	SPREAD
+}
@@ -1,10 +1,37 @@
 package com.parkit.parkingsystem.constants;
 
 public class DBConstants {
-    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, TYPE, AVAILABLE, SITE, LEVEL, ZONE, ENTRANCE_DISTANCE from parking";
+    public static final String GET_SITE_PARKING_SPOTS = GET_PARKING_SPOTS + " where SITE = ?";
+    public static final String GET_NEXT_PARKING_SPOT_NEAREST_ENTRANCE = "select PARKING_NUMBER from parking where SITE = ? and AVAILABLE = true and TYPE = ? order by ENTRANCE_DISTANCE, PARKING_NUMBER limit 1";
+    public static final String GET_NEXT_PARKING_SPOT_BY_LEVEL = "select PARKING_NUMBER from parking where SITE = ? and AVAILABLE = true and TYPE = ? order by LEVEL, PARKING_NUMBER limit 1";
+    public static final String GET_NEXT_PARKING_SPOT_SPREAD = "select p.PARKING_NUMBER from parking p where p.SITE = ? and p.AVAILABLE = true and p.TYPE = ? order by (select count(*) from parking f where f.SITE = p.SITE and f.LEVEL = p.LEVEL and f.TYPE = p.TYPE and f.AVAILABLE = true) desc, p.LEVEL, p.PARKING_NUMBER limit 1";
+    public static final String LOCK_NEXT_PARKING_SPOT_NEAREST_ENTRANCE = GET_NEXT_PARKING_SPOT_NEAREST_ENTRANCE + " for update skip locked";
+    public static final String LOCK_NEXT_PARKING_SPOT_BY_LEVEL = GET_NEXT_PARKING_SPOT_BY_LEVEL + " for update skip locked";
+    public static final String GET_SPREAD_LEVEL = "select LEVEL from parking where SITE = ? and AVAILABLE = true and TYPE = ? group by LEVEL order by count(*) desc, LEVEL limit 1";
+    public static final String LOCK_NEXT_PARKING_SPOT_ON_LEVEL = "select PARKING_NUMBER from parking where SITE = ? and AVAILABLE = true and TYPE = ? and LEVEL = ? order by PARKING_NUMBER limit 1 for update skip locked";
+    public static final String CLAIM_PARKING_SPOT = "update parking set AVAILABLE = false where PARKING_NUMBER = ? and AVAILABLE = true";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
-    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
-    public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
-    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, p.AVAILABLE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME desc limit 1";
-    public static final String GET_TICKETS_COUNT = "select count(*) as linesCount from ticket t where t.VEHICLE_REG_NUMBER=?";
+    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE_IN_CENTS, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
+    public static final String UPDATE_TICKET = "update ticket set PRICE_IN_CENTS=?, OUT_TIME=? where ID=? and OUT_TIME is null";
+    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE_IN_CENTS, t.IN_TIME, t.OUT_TIME, p.TYPE, p.AVAILABLE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME desc limit 1";
+    public static final String GET_OPEN_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE_IN_CENTS, t.IN_TIME, t.OUT_TIME, p.TYPE, p.AVAILABLE from open_ticket o, ticket t, parking p where t.ID = o.TICKET_ID and p.parking_number = t.parking_number and o.VEHICLE_REG_NUMBER=?";
+    public static final String GET_TICKET_HISTORY = "select t.IN_TIME, t.OUT_TIME, t.PRICE_IN_CENTS, p.TYPE from (select PARKING_NUMBER, PRICE_IN_CENTS, IN_TIME, OUT_TIME from ticket union all select PARKING_NUMBER, PRICE_IN_CENTS, IN_TIME, OUT_TIME from ticket_archive) t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.IN_TIME < ? and (t.OUT_TIME is null or t.OUT_TIME >= ?)";
+    public static final String ADD_REVENUE_ROLLUP = "insert into revenue_rollup(BUCKET_HOUR, TYPE, REVENUE_IN_CENTS, TICKETS) values(?,?,?,?) on duplicate key update REVENUE_IN_CENTS = REVENUE_IN_CENTS + values(REVENUE_IN_CENTS), TICKETS = TICKETS + values(TICKETS)";
+    public static final String GET_REVENUE_ROLLUP = "select BUCKET_HOUR, TYPE, REVENUE_IN_CENTS, TICKETS from revenue_rollup where BUCKET_HOUR >= ? and BUCKET_HOUR < ?";
+    public static final String DELETE_REVENUE_ROLLUP = "delete from revenue_rollup where BUCKET_HOUR >= ? and BUCKET_HOUR < ?";
+    public static final String REBUILD_REVENUE_ROLLUP = "insert into revenue_rollup(BUCKET_HOUR, TYPE, REVENUE_IN_CENTS, TICKETS) select date_format(t.OUT_TIME, '%Y-%m-%d %H:00:00'), p.TYPE, sum(t.PRICE_IN_CENTS), count(*) from (select PARKING_NUMBER, PRICE_IN_CENTS, OUT_TIME from ticket union all select PARKING_NUMBER, PRICE_IN_CENTS, OUT_TIME from ticket_archive) t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.OUT_TIME >= ? and t.OUT_TIME < ? group by 1, 2";
+    public static final String GET_CLOSED_TICKETS_WITH_VISITS = "with closed as (select VEHICLE_REG_NUMBER from ticket where OUT_TIME >= ? and OUT_TIME < ? union select VEHICLE_REG_NUMBER from ticket_archive where OUT_TIME >= ? and OUT_TIME < ?) select r.ID, r.IN_TIME, r.OUT_TIME, r.PRICE_IN_CENTS, p.TYPE, r.VISIT from (select t.ID, t.PARKING_NUMBER, t.IN_TIME, t.OUT_TIME, t.PRICE_IN_CENTS, row_number() over (partition by t.VEHICLE_REG_NUMBER order by t.IN_TIME, t.ID) as VISIT from (select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE_IN_CENTS, IN_TIME, OUT_TIME from ticket where IN_TIME < ? and VEHICLE_REG_NUMBER in (select VEHICLE_REG_NUMBER from closed) union all select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE_IN_CENTS, IN_TIME, OUT_TIME from ticket_archive where IN_TIME < ? and VEHICLE_REG_NUMBER in (select VEHICLE_REG_NUMBER from closed)) t) r, parking p where p.PARKING_NUMBER = r.PARKING_NUMBER and r.OUT_TIME >= ? and r.OUT_TIME < ?";
+    public static final String SAVE_TICKET_REPRICING = "insert into ticket_repricing(RUN_ID, TICKET_ID, TYPE, OLD_PRICE_IN_CENTS, NEW_PRICE_IN_CENTS) values(?,?,?,?,?)";
+    public static final String GET_WRITE_BEHIND_APPLIED = "select SEQ, TICKET_ID from write_behind_applied where SEQ >= ? and SEQ <= ?";
+    public static final String SAVE_WRITE_BEHIND_APPLIED = "insert into write_behind_applied(SEQ, TICKET_ID) values(?,?) on duplicate key update TICKET_ID = values(TICKET_ID)";
+    public static final String DELETE_WRITE_BEHIND_APPLIED = "delete from write_behind_applied where SEQ <= ?";
+    public static final String GET_TICKETS_COUNT = "select (select count(*) from ticket t where t.VEHICLE_REG_NUMBER=?) + coalesce((select v.TICKETS from archived_visit v where v.VEHICLE_REG_NUMBER=?), 0) as linesCount";
+    public static final String GET_ARCHIVE_BATCH_END = "select max(ID) from (select ID from ticket where OUT_TIME < ? order by ID limit ?) b";
+    public static final String ARCHIVE_TICKETS = "insert into ticket_archive(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE_IN_CENTS, IN_TIME, OUT_TIME) select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE_IN_CENTS, IN_TIME, OUT_TIME from ticket where OUT_TIME < ? and ID <= ?";
+    public static final String ADD_ARCHIVED_VISITS = "insert into archived_visit(VEHICLE_REG_NUMBER, TICKETS) select VEHICLE_REG_NUMBER, count(*) from ticket where OUT_TIME < ? and ID <= ? group by VEHICLE_REG_NUMBER on duplicate key update TICKETS = TICKETS + values(TICKETS)";
+    public static final String DELETE_ARCHIVED_TICKETS = "delete from ticket where OUT_TIME < ? and ID <= ?";
+    public static final String GET_ARCHIVE_PARTITIONS = "select PARTITION_NAME from information_schema.PARTITIONS where TABLE_SCHEMA = database() and TABLE_NAME = 'ticket_archive'";
+    public static final String SPLIT_ARCHIVE_PMAX = "alter table ticket_archive reorganize partition pmax into (%s, partition pmax values less than maxvalue)";
+    public static final String ARCHIVE_YEAR_PARTITION = "partition p%d values less than (%d)";
 }
@@ -1,6 +1,6 @@
 package com.parkit.parkingsystem.constants;
 
 public class UserRecurrence {
-	public static final double DISCOUNT_RATE = 0.95;
+	public static final long DISCOUNT_PERCENT = 5;
 	public static final int MIN_TICKET_COUNT = 2;
 }
@@ -0,0 +1,51 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BatchResult {
+	private final int[] generatedIds;
+	private final boolean[] succeeded;
+	private final Map<Integer, String> failures = new TreeMap<>();
+
+	public BatchResult(int size) {
+		this.generatedIds = new int[size];
+		this.succeeded = new boolean[size];
+	}
+
+	void success(int row, int generatedId) {
+		succeeded[row] = true;
+		generatedIds[row] = generatedId;
+		failures.remove(row);
+	}
+
+	void failure(int row, String reason) {
+		succeeded[row] = false;
+		failures.put(row, reason);
+	}
+
+	public int getSize() {
+		return succeeded.length;
+	}
+
+	public boolean isSuccessful(int row) {
+		return succeeded[row];
+	}
+
+	public int getGeneratedId(int row) {
+		return generatedIds[row];
+	}
+
+	public int getSuccessCount() {
+		return succeeded.length - failures.size();
+	}
+
+	public int getFailureCount() {
+		return failures.size();
+	}
+
+	public Map<Integer, String> getFailures() {
+		return Collections.unmodifiableMap(failures);
+	}
+}
@@ -0,0 +1,625 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketHistory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/*
+ * Embedded storage backend for sites without a database server. Every ticket and spot change is a sequential append
+ * to a memory-mapped log, and all reads are served from in-memory indexes rebuilt from the last snapshot plus the log
+ * on open. Compaction starts the next generation of the log and writes a fresh snapshot of the current state that
+ * names it, so a mapped log is never truncated or renamed over; logs of older generations are deleted once the
+ * snapshot no longer points at them. Records are full states, so replaying a log already folded into a snapshot is
+ * harmless.
+ */
+public class JournalStore {
+	private static final Logger logger = LogManager.getLogger("JournalStore");
+	private static final String LOG_FILE = "parking.log";
+	private static final String SNAPSHOT_FILE = "parking.snapshot";
+	private static final int INITIAL_LOG_CAPACITY = 1 << 20;
+	private static final byte SPOT = 'P';
+	private static final byte TICKET = 'T';
+	private static final byte GENERATION = 'G';
+
+	private final Path directory;
+	private final long compactThresholdBytes;
+	private final boolean syncWrites;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Integer, ParkingSpot> spots = new TreeMap<>();
+	private final Map<ParkingType, TreeSet<Integer>> availableSpots = new EnumMap<>(ParkingType.class);
+	private final Map<Integer, Ticket> ticketsById = new HashMap<>();
+	private final Map<String, Ticket> latestTickets = new HashMap<>();
+	private final Map<String, Integer> ticketCounts = new HashMap<>();
+	private final TicketDAO ticketView = new JournalTicketDAO();
+	private final ParkingSpotDAO parkingSpotView = new JournalParkingSpotDAO();
+
+	private MappedLog log;
+	private long generation;
+	private long compactAtBytes;
+	private int lastTicketId;
+	private ScheduledExecutorService snapshotter;
+
+	public JournalStore(Path directory, long compactThresholdBytes, boolean syncWrites) {
+		this.directory = directory;
+		this.compactThresholdBytes = compactThresholdBytes;
+		this.compactAtBytes = compactThresholdBytes;
+		this.syncWrites = syncWrites;
+	}
+
+	public void open() throws IOException {
+		lock.writeLock().lock();
+		try {
+			Files.createDirectories(directory);
+			Path snapshot = directory.resolve(SNAPSHOT_FILE);
+			if (Files.exists(snapshot)) {
+				readFrames(ByteBuffer.wrap(Files.readAllBytes(snapshot)));
+			}
+			log = new MappedLog(logFile(generation), INITIAL_LOG_CAPACITY);
+			log.replay(this::apply);
+			deleteStaleLogs();
+			logger.info("Opened journal store with " + spots.size() + " parking spots and " + ticketsById.size()
+					+ " tickets");
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/* adds the spots that are not in the store yet, e.g. on first start */
+	public void seedParkingSpots(Collection<ParkingSpot> parkingSpots) throws IOException {
+		lock.writeLock().lock();
+		try {
+			for (ParkingSpot parkingSpot : parkingSpots) {
+				if (!spots.containsKey(parkingSpot.getId())) {
+					append(encode(parkingSpot));
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void startSnapshots(long intervalMillis) {
+		if (intervalMillis <= 0) {
+			return;
+		}
+		snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "journal-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		snapshotter.scheduleWithFixedDelay(() -> {
+			try {
+				compact();
+			} catch (IOException e) {
+				logger.error("Unable to snapshot journal store", e);
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public TicketDAO getTicketDAO() {
+		return ticketView;
+	}
+
+	public ParkingSpotDAO getParkingSpotDAO() {
+		return parkingSpotView;
+	}
+
+	public int getLogSize() {
+		lock.readLock().lock();
+		try {
+			return log.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public void compact() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (log == null || log.size() == 0) {
+				return;
+			}
+			long nextGeneration = generation + 1;
+			Path nextLogFile = logFile(nextGeneration);
+			Files.deleteIfExists(nextLogFile);
+			MappedLog nextLog = new MappedLog(nextLogFile, INITIAL_LOG_CAPACITY);
+			try {
+				writeSnapshot(nextGeneration);
+			} catch (IOException | RuntimeException e) {
+				/* the snapshot still names the current log, which keeps taking appends */
+				nextLog.close();
+				Files.deleteIfExists(nextLogFile);
+				throw e;
+			}
+			MappedLog compactedLog = log;
+			Path compactedLogFile = logFile(generation);
+			int compacted = compactedLog.size();
+			log = nextLog;
+			generation = nextGeneration;
+			compactAtBytes = compactThresholdBytes;
+			retire(compactedLog, compactedLogFile);
+			logger.info("Compacted " + compacted + " bytes of journal into a snapshot of " + ticketsById.size()
+					+ " tickets");
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void writeSnapshot(long logGeneration) throws IOException {
+		Path snapshot = directory.resolve(SNAPSHOT_FILE);
+		Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			writeFrame(channel, ByteBuffer.allocate(1 + 8).put(GENERATION).putLong(logGeneration).flip());
+			for (ParkingSpot parkingSpot : spots.values()) {
+				writeFrame(channel, encode(parkingSpot));
+			}
+			for (Ticket ticket : ticketsById.values()) {
+				writeFrame(channel, encode(ticket));
+			}
+			channel.force(true);
+		}
+		Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/* generation 0 keeps the original file name, so stores written before log generations open unchanged */
+	private Path logFile(long logGeneration) {
+		return directory.resolve(logGeneration == 0 ? LOG_FILE : LOG_FILE + "." + logGeneration);
+	}
+
+	private void deleteStaleLogs() throws IOException {
+		Path current = logFile(generation);
+		try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, LOG_FILE + "*")) {
+			for (Path file : logs) {
+				if (!file.equals(current)) {
+					deleteLog(file);
+				}
+			}
+		}
+	}
+
+	/* the snapshot already covers a retired log, so failing to close or delete it only leaves garbage behind */
+	private static void retire(MappedLog retiredLog, Path file) {
+		try {
+			retiredLog.close();
+		} catch (IOException e) {
+			logger.warn("Error closing compacted journal log " + file, e);
+		}
+		deleteLog(file);
+	}
+
+	/* a closed log can stay mapped until its buffer is collected, so a failed delete is retried on the next open */
+	private static void deleteLog(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			logger.warn("Unable to delete compacted journal log " + file + ", it is removed on the next open", e);
+		}
+	}
+
+	public void close() {
+		if (snapshotter != null) {
+			snapshotter.shutdownNow();
+		}
+		lock.writeLock().lock();
+		try {
+			if (log != null) {
+				log.close();
+				log = null;
+			}
+		} catch (IOException e) {
+			logger.error("Error closing journal store", e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void append(ByteBuffer record) throws IOException {
+		log.append(record.duplicate());
+		if (syncWrites) {
+			log.force();
+		}
+		apply(record);
+		if (compactThresholdBytes > 0 && log.size() >= compactAtBytes) {
+			try {
+				compact();
+			} catch (IOException | RuntimeException e) {
+				/* back off rather than retrying on every append, a successful compaction resets the threshold */
+				compactAtBytes = Math.max(compactAtBytes, log.size()) * 2;
+				logger.error("Unable to compact journal store, retrying once the log reaches " + compactAtBytes
+						+ " bytes", e);
+			}
+		}
+	}
+
+	private void apply(ByteBuffer record) {
+		ByteBuffer in = record.duplicate();
+		byte kind = in.get();
+		if (kind == SPOT) {
+			ParkingSpot parkingSpot = new ParkingSpot(in.getInt(), ParkingType.valueOf(readString(in)), in.get() != 0);
+			spots.put(parkingSpot.getId(), parkingSpot);
+			for (TreeSet<Integer> available : availableSpots.values()) {
+				available.remove(parkingSpot.getId());
+			}
+			if (parkingSpot.isAvailable()) {
+				availableSpots.computeIfAbsent(parkingSpot.getParkingType(), type -> new TreeSet<>())
+						.add(parkingSpot.getId());
+			}
+		} else if (kind == GENERATION) {
+			generation = in.getLong();
+		} else if (kind == TICKET) {
+			Ticket ticket = new Ticket();
+			ticket.setId(in.getInt());
+			ticket.setParkingSpot(new ParkingSpot(in.getInt(), ParkingType.valueOf(readString(in)), false));
+			ticket.setVehicleRegNumber(readString(in));
+			ticket.setPriceInCents(in.getLong());
+			ticket.setInTime(new Date(in.getLong()));
+			long outTime = in.getLong();
+			ticket.setOutTime(outTime < 0 ? null : new Date(outTime));
+			index(ticket);
+		} else {
+			throw new IllegalStateException("Unknown journal record kind " + (char) kind);
+		}
+	}
+
+	private void index(Ticket ticket) {
+		String vehicleRegNumber = ticket.getVehicleRegNumber();
+		if (ticketsById.put(ticket.getId(), ticket) == null) {
+			ticketCounts.merge(vehicleRegNumber, 1, Integer::sum);
+		}
+		Ticket latest = latestTickets.get(vehicleRegNumber);
+		if (latest == null || latest.getId() == ticket.getId()
+				|| !ticket.getInTime().before(latest.getInTime())) {
+			latestTickets.put(vehicleRegNumber, ticket);
+		}
+		lastTicketId = Math.max(lastTicketId, ticket.getId());
+	}
+
+	private ParkingSpot withCurrentState(ParkingSpot parkingSpot) {
+		ParkingSpot current = spots.get(parkingSpot.getId());
+		return current == null ? copy(parkingSpot) : copy(current);
+	}
+
+	private Ticket copy(Ticket ticket) {
+		Ticket copy = new Ticket();
+		copy.setId(ticket.getId());
+		copy.setParkingSpot(withCurrentState(ticket.getParkingSpot()));
+		copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+		copy.setPriceInCents(ticket.getPriceInCents());
+		copy.setInTime(new Date(ticket.getInTime().getTime()));
+		copy.setOutTime(ticket.getOutTime() == null ? null : new Date(ticket.getOutTime().getTime()));
+		return copy;
+	}
+
+	private static ParkingSpot copy(ParkingSpot parkingSpot) {
+		return new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable());
+	}
+
+	private static ByteBuffer encode(ParkingSpot parkingSpot) {
+		byte[] type = parkingSpot.getParkingType().name().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer out = ByteBuffer.allocate(1 + 4 + 2 + type.length + 1);
+		out.put(SPOT).putInt(parkingSpot.getId()).putShort((short) type.length).put(type)
+				.put((byte) (parkingSpot.isAvailable() ? 1 : 0));
+		return out.flip();
+	}
+
+	private static ByteBuffer encode(Ticket ticket) {
+		byte[] type = ticket.getParkingSpot().getParkingType().name().getBytes(StandardCharsets.UTF_8);
+		byte[] vehicleRegNumber = ticket.getVehicleRegNumber().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer out = ByteBuffer.allocate(1 + 4 + 4 + 2 + type.length + 2 + vehicleRegNumber.length + 8 * 3);
+		out.put(TICKET).putInt(ticket.getId()).putInt(ticket.getParkingSpot().getId())
+				.putShort((short) type.length).put(type)
+				.putShort((short) vehicleRegNumber.length).put(vehicleRegNumber)
+				.putLong(ticket.getPriceInCents()).putLong(ticket.getInTime().getTime())
+				.putLong(ticket.getOutTime() == null ? -1 : ticket.getOutTime().getTime());
+		return out.flip();
+	}
+
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getShort()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void readFrames(ByteBuffer in) {
+		while (in.remaining() >= 8) {
+			int length = in.getInt();
+			int crc = in.getInt();
+			ByteBuffer payload = in.slice();
+			payload.limit(length);
+			if (crc(payload.duplicate()) != crc) {
+				throw new IllegalStateException("Corrupt journal snapshot in " + directory);
+			}
+			apply(payload);
+			in.position(in.position() + length);
+		}
+	}
+
+	private static void writeFrame(FileChannel channel, ByteBuffer payload) throws IOException {
+		ByteBuffer frame = ByteBuffer.allocate(8 + payload.remaining());
+		frame.putInt(payload.remaining()).putInt(crc(payload.duplicate())).put(payload).flip();
+		while (frame.hasRemaining()) {
+			channel.write(frame);
+		}
+	}
+
+	private static int crc(ByteBuffer payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		return (int) crc.getValue();
+	}
+
+	private class JournalTicketDAO extends TicketDAO {
+		@Override
+		public boolean saveTicket(Ticket ticket) {
+			lock.writeLock().lock();
+			try {
+				Ticket saved = copy(ticket);
+				saved.setId(lastTicketId + 1);
+				append(encode(saved));
+				ticket.setId(saved.getId());
+				return true;
+			} catch (IOException | RuntimeException e) {
+				logger.error("Error saving ticket", e);
+				return false;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		@Override
+		public boolean updateTicket(Ticket ticket) {
+			lock.writeLock().lock();
+			try {
+				Ticket current = ticketsById.get(ticket.getId());
+				if (current == null || current.getOutTime() != null) {
+					return false;
+				}
+				Ticket updated = copy(current);
+				updated.setPriceInCents(ticket.getPriceInCents());
+				updated.setOutTime(ticket.getOutTime());
+				append(encode(updated));
+				return true;
+			} catch (IOException | RuntimeException e) {
+				logger.error("Error updating ticket", e);
+				return false;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		@Override
+		public BatchResult saveTickets(Collection<Ticket> tickets, int batchSize) {
+			BatchResult result = new BatchResult(tickets.size());
+			int row = 0;
+			for (Ticket ticket : tickets) {
+				if (saveTicket(ticket)) {
+					result.success(row, ticket.getId());
+				} else {
+					result.failure(row, "Unable to append ticket to the journal");
+				}
+				row++;
+			}
+			return result;
+		}
+
+		@Override
+		public BatchResult updateTickets(Collection<Ticket> tickets, int batchSize) {
+			BatchResult result = new BatchResult(tickets.size());
+			int row = 0;
+			for (Ticket ticket : tickets) {
+				if (updateTicket(ticket)) {
+					result.success(row, 0);
+				} else {
+					result.failure(row, "No ticket row matched");
+				}
+				row++;
+			}
+			return result;
+		}
+
+		@Override
+		public Ticket getTicket(String vehicleRegNumber) {
+			lock.readLock().lock();
+			try {
+				Ticket ticket = latestTickets.get(vehicleRegNumber);
+				return ticket == null ? null : copy(ticket);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		@Override
+		public Ticket getOpenTicket(String vehicleRegNumber) {
+			lock.readLock().lock();
+			try {
+				Ticket ticket = latestTickets.get(vehicleRegNumber);
+				return ticket == null || ticket.getOutTime() != null ? null : copy(ticket);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		@Override
+		public int getTicketsCount(String vehicleRegNumber) {
+			lock.readLock().lock();
+			try {
+				return ticketCounts.getOrDefault(vehicleRegNumber, 0);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		@Override
+		public boolean streamTicketHistory(Date from, Date to, int fetchSize, TicketHistory history) {
+			lock.readLock().lock();
+			try {
+				for (Ticket ticket : ticketsById.values()) {
+					long outTime = ticket.getOutTime() == null ? -1 : ticket.getOutTime().getTime();
+					if (ticket.getInTime().getTime() < to.getTime() && (outTime < 0 || outTime >= from.getTime())) {
+						history.add(ticket.getInTime().getTime(), outTime, ticket.getPriceInCents(),
+								ticket.getParkingSpot().getParkingType());
+					}
+				}
+				return true;
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		/* batches are filled under the read lock and handed out after it, so a slow sink never holds up the gates */
+		@Override
+		public boolean streamClosedTickets(Date from, Date to, int fetchSize, int batchSize,
+				Consumer<ClosedTicketBatch> sink) {
+			List<ClosedTicketBatch> batches = new ArrayList<>();
+			lock.readLock().lock();
+			try {
+				List<Ticket> tickets = new ArrayList<>(ticketsById.values());
+				tickets.sort(Comparator.comparing(Ticket::getVehicleRegNumber).thenComparing(Ticket::getInTime)
+						.thenComparingInt(Ticket::getId));
+				ClosedTicketBatch batch = new ClosedTicketBatch(batchSize);
+				int visit = 0;
+				String vehicleRegNumber = null;
+				for (Ticket ticket : tickets) {
+					visit = ticket.getVehicleRegNumber().equals(vehicleRegNumber) ? visit + 1 : 1;
+					vehicleRegNumber = ticket.getVehicleRegNumber();
+					Date outTime = ticket.getOutTime();
+					if (outTime != null && !outTime.before(from) && outTime.before(to)) {
+						batch.add(ticket.getId(), ticket.getInTime().getTime(), outTime.getTime(), ticket.getPriceInCents(),
+								ticket.getParkingSpot().getParkingType(), visit);
+						if (batch.isFull()) {
+							batches.add(batch);
+							batch = new ClosedTicketBatch(batchSize);
+						}
+					}
+				}
+				if (batch.size() > 0) {
+					batches.add(batch);
+				}
+			} finally {
+				lock.readLock().unlock();
+			}
+			try {
+				batches.forEach(sink);
+				return true;
+			} catch (RuntimeException e) {
+				logger.error("Error streaming closed tickets", e);
+				return false;
+			}
+		}
+
+		@Override
+		public boolean saveTicketRepricing(String runId, ClosedTicketBatch batch, long[] newPricesInCents) {
+			logger.error("The journal store has no repricing table, write repricing runs to a CSV file instead");
+			return false;
+		}
+	}
+
+	/* the journal keeps no layout, so it holds a single site and hands out spots in number order */
+	private class JournalParkingSpotDAO extends ParkingSpotDAO {
+		@Override
+		public int getNextAvailableSlot(String site, ParkingType parkingType, AllocationStrategy allocationStrategy) {
+			if (!ParkingSpot.DEFAULT_SITE.equals(site)) {
+				return 0;
+			}
+			lock.readLock().lock();
+			try {
+				TreeSet<Integer> available = availableSpots.get(parkingType);
+				return available == null || available.isEmpty() ? 0 : available.first();
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		@Override
+		public List<ParkingSpot> getParkingSpots() {
+			lock.readLock().lock();
+			try {
+				List<ParkingSpot> parkingSpots = new ArrayList<>(spots.size());
+				for (ParkingSpot parkingSpot : spots.values()) {
+					parkingSpots.add(copy(parkingSpot));
+				}
+				return parkingSpots;
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		@Override
+		public List<ParkingSpot> getParkingSpots(String site) {
+			return ParkingSpot.DEFAULT_SITE.equals(site) ? getParkingSpots() : new ArrayList<>();
+		}
+
+		@Override
+		public int claimNextAvailableSlot(String site, ParkingType parkingType, AllocationStrategy allocationStrategy) {
+			if (!ParkingSpot.DEFAULT_SITE.equals(site)) {
+				return -1;
+			}
+			lock.writeLock().lock();
+			try {
+				TreeSet<Integer> available = availableSpots.get(parkingType);
+				if (available == null || available.isEmpty()) {
+					return -1;
+				}
+				int parkingNumber = available.first();
+				append(encode(new ParkingSpot(parkingNumber, parkingType, false)));
+				return parkingNumber;
+			} catch (IOException | RuntimeException e) {
+				logger.error("Error claiming next available slot", e);
+				return -1;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		@Override
+		public boolean updateParking(ParkingSpot parkingSpot) {
+			lock.writeLock().lock();
+			try {
+				ParkingSpot current = spots.get(parkingSpot.getId());
+				if (current == null) {
+					return false;
+				}
+				append(encode(new ParkingSpot(current.getId(), current.getParkingType(), parkingSpot.isAvailable())));
+				return true;
+			} catch (IOException | RuntimeException e) {
+				logger.error("Error updating parking info", e);
+				return false;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only record log over a memory-mapped file. Each record is framed as "<length><crc32><payload>"; the mapping
+ * grows by doubling and the unused tail stays zeroed, so replay stops at the first empty or corrupt frame.
+ */
+final class MappedLog {
+	private static final int FRAME_HEADER = 8;
+
+	private final FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int position;
+
+	MappedLog(Path file, int initialCapacity) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), initialCapacity));
+	}
+
+	void replay(Consumer<ByteBuffer> consumer) {
+		int offset = 0;
+		while (offset + FRAME_HEADER <= buffer.capacity()) {
+			int length = buffer.getInt(offset);
+			if (length <= 0 || offset + FRAME_HEADER + length > buffer.capacity()) {
+				break;
+			}
+			ByteBuffer payload = slice(offset + FRAME_HEADER, length);
+			if (crc(payload.duplicate()) != buffer.getInt(offset + 4)) {
+				break;
+			}
+			consumer.accept(payload);
+			offset += FRAME_HEADER + length;
+		}
+		position = offset;
+		/* clear a torn tail so a later append can never be followed by stale bytes that look like a record */
+		for (int index = position; index < buffer.capacity(); index++) {
+			if (buffer.get(index) != 0) {
+				buffer.put(index, (byte) 0);
+			}
+		}
+	}
+
+	void append(ByteBuffer payload) throws IOException {
+		int length = payload.remaining();
+		ensureCapacity(position + FRAME_HEADER + length);
+		buffer.putInt(position + 4, crc(payload.duplicate()));
+		ByteBuffer target = slice(position + FRAME_HEADER, length);
+		target.put(payload);
+		buffer.putInt(position, length);
+		position += FRAME_HEADER + length;
+	}
+
+	int size() {
+		return position;
+	}
+
+	void force() {
+		buffer.force();
+	}
+
+	void close() throws IOException {
+		if (channel.isOpen()) {
+			buffer.force();
+			channel.close();
+		}
+	}
+
+	private void ensureCapacity(long required) throws IOException {
+		if (required <= buffer.capacity()) {
+			return;
+		}
+		long capacity = buffer.capacity();
+		while (capacity < required) {
+			capacity *= 2;
+		}
+		if (capacity > Integer.MAX_VALUE) {
+			throw new IOException("Log is full, compact it before appending more records");
+		}
+		buffer.force();
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+	}
+
+	private ByteBuffer slice(int offset, int length) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.position(offset).limit(offset + length);
+		return slice.slice();
+	}
+
+	private static int crc(ByteBuffer payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		return (int) crc.getValue();
+	}
+}
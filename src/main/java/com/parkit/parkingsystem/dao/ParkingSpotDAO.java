@@ -1,56 +1,242 @@
 package com.parkit.parkingsystem.dao;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.AllocationStrategy;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.util.LatencyRecorder;
+import com.parkit.parkingsystem.util.MetricsRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ParkingSpotDAO {
 	private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
+	private static final MetricsRegistry metrics = MetricsRegistry.getDefault();
+	private static final LatencyRecorder getNextAvailableSlotLatency = metrics.timer("dao.parkingSpot.getNextAvailableSlot");
+	private static final LatencyRecorder getParkingSpotsLatency = metrics.timer("dao.parkingSpot.getParkingSpots");
+	private static final LatencyRecorder claimNextAvailableSlotLatency = metrics.timer("dao.parkingSpot.claimNextAvailableSlot");
+	private static final LatencyRecorder updateParkingLatency = metrics.timer("dao.parkingSpot.updateParking");
+	private static final LongAdder errors = metrics.counter("dao.parkingSpot.errors");
 	public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
 	public int getNextAvailableSlot(ParkingType parkingType) {
+		return getNextAvailableSlot(ParkingSpot.DEFAULT_SITE, parkingType, AllocationStrategy.FILL_BY_LEVEL);
+	}
+
+	public int getNextAvailableSlot(String site, ParkingType parkingType, AllocationStrategy allocationStrategy) {
+		long start = System.nanoTime();
 		Connection con = null;
+		PreparedStatement ps = null;
+		ResultSet rs = null;
 		int result = -1;
 		try {
 			con = dataBaseConfig.getConnection();
-			PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
-			ps.setString(1, parkingType.toString());
-			ResultSet rs = ps.executeQuery();
-			if (rs.next()) {
-				result = rs.getInt(1);
+			ps = dataBaseConfig.prepareStatement(con, nextSpotQuery(allocationStrategy, false));
+			ps.setString(1, site);
+			ps.setString(2, parkingType.toString());
+			rs = ps.executeQuery();
+			result = rs.next() ? rs.getInt(1) : 0;
+		} catch (Exception ex) {
+			errors.increment();
+			logger.error("Error fetching next available slot", ex);
+		} finally {
+			dataBaseConfig.closeResultSet(rs);
+			dataBaseConfig.closePreparedStatement(ps);
+			dataBaseConfig.closeConnection(con);
+			getNextAvailableSlotLatency.record(System.nanoTime() - start);
+		}
+		return result;
+	}
+
+	public List<ParkingSpot> getParkingSpots() {
+		return findParkingSpots(DBConstants.GET_PARKING_SPOTS, null);
+	}
+
+	public List<ParkingSpot> getParkingSpots(String site) {
+		return findParkingSpots(DBConstants.GET_SITE_PARKING_SPOTS, site);
+	}
+
+	private List<ParkingSpot> findParkingSpots(String sql, String site) {
+		long start = System.nanoTime();
+		Connection con = null;
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		List<ParkingSpot> parkingSpots = new ArrayList<>();
+		try {
+			con = dataBaseConfig.getConnection();
+			ps = dataBaseConfig.prepareStatement(con, sql);
+			if (site != null) {
+				ps.setString(1, site);
+			}
+			rs = ps.executeQuery();
+			while (rs.next()) {
+				parkingSpots.add(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(2)), rs.getBoolean(3),
+						rs.getString(4), rs.getInt(5), rs.getString(6), rs.getInt(7)));
 			}
+		} catch (Exception ex) {
+			errors.increment();
+			logger.error("Error fetching parking spots", ex);
+		} finally {
 			dataBaseConfig.closeResultSet(rs);
 			dataBaseConfig.closePreparedStatement(ps);
+			dataBaseConfig.closeConnection(con);
+			getParkingSpotsLatency.record(System.nanoTime() - start);
+		}
+		return parkingSpots;
+	}
+
+	public int claimNextAvailableSlot(ParkingType parkingType) {
+		return claimNextAvailableSlot(ParkingSpot.DEFAULT_SITE, parkingType, AllocationStrategy.FILL_BY_LEVEL);
+	}
+
+	/*
+	 * Only rows of the given site are locked, so gates of different sites never wait on each other. Every locking query
+	 * walks an index in its order, so it locks the one spot it returns rather than every free spot it sorts.
+	 */
+	public int claimNextAvailableSlot(String site, ParkingType parkingType, AllocationStrategy allocationStrategy) {
+		long start = System.nanoTime();
+		Connection con = null;
+		PreparedStatement claim = null;
+		boolean ownTransaction = false;
+		int result = -1;
+		try {
+			con = dataBaseConfig.getConnection();
+			ownTransaction = con.getAutoCommit();
+			if (ownTransaction) {
+				con.setAutoCommit(false);
+			}
+			int parkingNumber = -1;
+			if (allocationStrategy == AllocationStrategy.SPREAD) {
+				/* the emptiest level is picked without locking, then a spot is locked on it in index order */
+				int level = findSpreadLevel(con, site, parkingType);
+				if (level != Integer.MIN_VALUE) {
+					parkingNumber = lockNextSpot(con, DBConstants.LOCK_NEXT_PARKING_SPOT_ON_LEVEL, site, parkingType, level);
+				}
+			}
+			if (parkingNumber <= 0) {
+				parkingNumber = lockNextSpot(con, nextSpotQuery(allocationStrategy, true), site, parkingType, null);
+			}
+			if (parkingNumber > 0) {
+				claim = dataBaseConfig.prepareStatement(con, DBConstants.CLAIM_PARKING_SPOT);
+				claim.setInt(1, parkingNumber);
+				if (claim.executeUpdate() == 1) {
+					result = parkingNumber;
+				}
+			}
+			if (ownTransaction) {
+				con.commit();
+			}
 		} catch (Exception ex) {
-			logger.error("Error fetching next available slot", ex);
+			errors.increment();
+			logger.error("Error claiming next available slot", ex);
+			rollback(con, ownTransaction);
+			result = -1;
 		} finally {
+			dataBaseConfig.closePreparedStatement(claim);
+			if (ownTransaction) {
+				restoreAutoCommit(con);
+			}
 			dataBaseConfig.closeConnection(con);
+			claimNextAvailableSlotLatency.record(System.nanoTime() - start);
 		}
 		return result;
 	}
 
 	public boolean updateParking(ParkingSpot parkingSpot) {
+		long start = System.nanoTime();
 		Connection con = null;
+		PreparedStatement ps = null;
 		try {
 			con = dataBaseConfig.getConnection();
-			PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+			ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_PARKING_SPOT);
 			ps.setBoolean(1, parkingSpot.isAvailable());
 			ps.setInt(2, parkingSpot.getId());
 			int updateRowCount = ps.executeUpdate();
-			dataBaseConfig.closePreparedStatement(ps);
 			return (updateRowCount == 1);
 		} catch (Exception ex) {
+			errors.increment();
 			logger.error("Error updating parking info", ex);
 			return false;
 		} finally {
+			dataBaseConfig.closePreparedStatement(ps);
 			dataBaseConfig.closeConnection(con);
+			updateParkingLatency.record(System.nanoTime() - start);
+		}
+	}
+
+	private int findSpreadLevel(Connection con, String site, ParkingType parkingType) throws SQLException {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_SPREAD_LEVEL);
+			ps.setString(1, site);
+			ps.setString(2, parkingType.toString());
+			rs = ps.executeQuery();
+			return rs.next() ? rs.getInt(1) : Integer.MIN_VALUE;
+		} finally {
+			dataBaseConfig.closeResultSet(rs);
+			dataBaseConfig.closePreparedStatement(ps);
+		}
+	}
+
+	private int lockNextSpot(Connection con, String sql, String site, ParkingType parkingType, Integer level)
+			throws SQLException {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			ps = dataBaseConfig.prepareStatement(con, sql);
+			ps.setString(1, site);
+			ps.setString(2, parkingType.toString());
+			if (level != null) {
+				ps.setInt(3, level);
+			}
+			rs = ps.executeQuery();
+			return rs.next() ? rs.getInt(1) : -1;
+		} finally {
+			dataBaseConfig.closeResultSet(rs);
+			dataBaseConfig.closePreparedStatement(ps);
+		}
+	}
+
+	/* a SPREAD claim whose level is taken meanwhile falls back to the first free spot by level */
+	private static String nextSpotQuery(AllocationStrategy allocationStrategy, boolean lock) {
+		switch (allocationStrategy) {
+			case NEAREST_ENTRANCE:
+				return lock ? DBConstants.LOCK_NEXT_PARKING_SPOT_NEAREST_ENTRANCE
+						: DBConstants.GET_NEXT_PARKING_SPOT_NEAREST_ENTRANCE;
+			case SPREAD:
+				return lock ? DBConstants.LOCK_NEXT_PARKING_SPOT_BY_LEVEL : DBConstants.GET_NEXT_PARKING_SPOT_SPREAD;
+			default:
+				return lock ? DBConstants.LOCK_NEXT_PARKING_SPOT_BY_LEVEL : DBConstants.GET_NEXT_PARKING_SPOT_BY_LEVEL;
+		}
+	}
+
+	private void rollback(Connection con, boolean ownTransaction) {
+		if (con != null && ownTransaction) {
+			try {
+				con.rollback();
+			} catch (SQLException e) {
+				logger.error("Error rolling back slot claim", e);
+			}
+		}
+	}
+
+	private void restoreAutoCommit(Connection con) {
+		if (con != null) {
+			try {
+				con.setAutoCommit(true);
+			} catch (SQLException e) {
+				logger.error("Error restoring auto-commit", e);
+			}
 		}
 	}
 }
@@ -0,0 +1,281 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.RevenueBucket;
+import com.parkit.parkingsystem.util.LatencyRecorder;
+import com.parkit.parkingsystem.util.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Revenue and ticket counts per hour and parking type, kept in the revenue_rollup table so reports read one row per
+ * bucket instead of every ticket. Closed tickets are added to in-memory sums that are flushed to the table
+ * periodically; reads combine the table with what has not been flushed yet. Sums still in memory when the process
+ * dies are lost, rebuild recomputes a period from the ticket table.
+ */
+public class RevenueRollup {
+	private static final Logger logger = LogManager.getLogger("RevenueRollup");
+	private static final MetricsRegistry metrics = MetricsRegistry.getDefault();
+	private static final LatencyRecorder flushLatency = metrics.timer("dao.rollup.flush");
+	private static final LongAdder errors = metrics.counter("dao.rollup.errors");
+	private static final long HOUR = 3_600_000L;
+	private static final ParkingType[] TYPES = ParkingType.values();
+
+	private final DataBaseConfig dataBaseConfig;
+	/* per hour: revenue then ticket count of each type, only ever changed inside compute on its key */
+	private final Map<Long, long[]> pending = new ConcurrentHashMap<>();
+	private ScheduledExecutorService flusher;
+
+	public RevenueRollup(DataBaseConfig dataBaseConfig) {
+		this.dataBaseConfig = dataBaseConfig;
+		metrics.gauge("rollup.pendingBuckets", pending::size);
+	}
+
+	public void record(Date outTime, ParkingType parkingType, long priceInCents) {
+		add(hourOf(outTime.getTime()), parkingType.ordinal(), priceInCents, 1);
+	}
+
+	private void add(long hour, int type, long revenueInCents, long tickets) {
+		pending.compute(hour, (key, sums) -> {
+			long[] updated = sums == null ? new long[TYPES.length * 2] : sums;
+			updated[type * 2] += revenueInCents;
+			updated[type * 2 + 1] += tickets;
+			return updated;
+		});
+	}
+
+	private static long hourOf(long time) {
+		return time - Math.floorMod(time, HOUR);
+	}
+
+	public synchronized void start(long flushIntervalMillis) {
+		if (flusher != null || flushIntervalMillis <= 0) {
+			return;
+		}
+		flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "revenue-rollup-flush");
+			thread.setDaemon(true);
+			return thread;
+		});
+		flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/* adds the sums recorded since the last flush to the table, keeping them in memory if that fails */
+	public synchronized boolean flush() {
+		long start = System.nanoTime();
+		Map<Long, long[]> drained = new TreeMap<>();
+		for (Long hour : new ArrayList<>(pending.keySet())) {
+			pending.computeIfPresent(hour, (key, sums) -> {
+				drained.put(key, sums);
+				return null;
+			});
+		}
+		if (drained.isEmpty()) {
+			return true;
+		}
+		Connection con = null;
+		PreparedStatement ps = null;
+		boolean autoCommit = true;
+		try {
+			con = dataBaseConfig.getConnection();
+			autoCommit = con.getAutoCommit();
+			con.setAutoCommit(false);
+			ps = dataBaseConfig.prepareStatement(con, DBConstants.ADD_REVENUE_ROLLUP);
+			for (Map.Entry<Long, long[]> bucket : drained.entrySet()) {
+				long[] sums = bucket.getValue();
+				for (int type = 0; type < TYPES.length; type++) {
+					if (sums[type * 2 + 1] != 0) {
+						ps.setTimestamp(1, new Timestamp(bucket.getKey()));
+						ps.setString(2, TYPES[type].toString());
+						ps.setLong(3, sums[type * 2]);
+						ps.setLong(4, sums[type * 2 + 1]);
+						ps.addBatch();
+					}
+				}
+			}
+			ps.executeBatch();
+			con.commit();
+			return true;
+		} catch (Exception ex) {
+			errors.increment();
+			logger.error("Error flushing revenue rollup, keeping " + drained.size() + " hours in memory", ex);
+			rollback(con);
+			drained.forEach((hour, sums) -> {
+				for (int type = 0; type < TYPES.length; type++) {
+					add(hour, type, sums[type * 2], sums[type * 2 + 1]);
+				}
+			});
+			return false;
+		} finally {
+			dataBaseConfig.closePreparedStatement(ps);
+			restoreAutoCommit(con, autoCommit);
+			dataBaseConfig.closeConnection(con);
+			flushLatency.record(System.nanoTime() - start);
+		}
+	}
+
+	/*
+	 * One bucket per hour and parking type with tickets paid in [from, to), or null if the table could not be read.
+	 * Synchronized with flush so sums on their way to the table are not missed.
+	 */
+	public synchronized List<RevenueBucket> getHourlyRevenue(Date from, Date to) {
+		Map<Long, long[]> hours = new TreeMap<>();
+		Connection con = null;
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			con = dataBaseConfig.getConnection();
+			ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_REVENUE_ROLLUP);
+			ps.setTimestamp(1, new Timestamp(hourOf(from.getTime())));
+			ps.setTimestamp(2, new Timestamp(to.getTime()));
+			rs = ps.executeQuery();
+			while (rs.next()) {
+				long[] sums = hours.computeIfAbsent(rs.getTimestamp(1).getTime(), key -> new long[TYPES.length * 2]);
+				int type = ParkingType.valueOf(rs.getString(2)).ordinal();
+				sums[type * 2] += rs.getLong(3);
+				sums[type * 2 + 1] += rs.getLong(4);
+			}
+		} catch (Exception ex) {
+			errors.increment();
+			logger.error("Error reading revenue rollup", ex);
+			return null;
+		} finally {
+			dataBaseConfig.closeResultSet(rs);
+			dataBaseConfig.closePreparedStatement(ps);
+			dataBaseConfig.closeConnection(con);
+		}
+		for (Long hour : new ArrayList<>(pending.keySet())) {
+			if (hour >= hourOf(from.getTime()) && hour < to.getTime()) {
+				pending.computeIfPresent(hour, (key, sums) -> {
+					long[] total = hours.computeIfAbsent(key, unused -> new long[TYPES.length * 2]);
+					for (int index = 0; index < sums.length; index++) {
+						total[index] += sums[index];
+					}
+					return sums;
+				});
+			}
+		}
+		return toBuckets(hours);
+	}
+
+	/* hourly buckets folded into days of the system time zone */
+	public List<RevenueBucket> getDailyRevenue(Date from, Date to) {
+		List<RevenueBucket> hourly = getHourlyRevenue(from, to);
+		if (hourly == null) {
+			return null;
+		}
+		ZoneId zone = ZoneId.systemDefault();
+		Map<Long, long[]> days = new TreeMap<>();
+		for (RevenueBucket bucket : hourly) {
+			long day = Instant.ofEpochMilli(bucket.getStart().getTime()).atZone(zone).toLocalDate()
+					.atStartOfDay(zone).toInstant().toEpochMilli();
+			long[] sums = days.computeIfAbsent(day, key -> new long[TYPES.length * 2]);
+			sums[bucket.getParkingType().ordinal() * 2] += bucket.getRevenueInCents();
+			sums[bucket.getParkingType().ordinal() * 2 + 1] += bucket.getTickets();
+		}
+		return toBuckets(days);
+	}
+
+	private static List<RevenueBucket> toBuckets(Map<Long, long[]> sumsByStart) {
+		List<RevenueBucket> buckets = new ArrayList<>();
+		sumsByStart.forEach((start, sums) -> {
+			for (int type = 0; type < TYPES.length; type++) {
+				if (sums[type * 2 + 1] != 0) {
+					buckets.add(new RevenueBucket(new Date(start), TYPES[type], sums[type * 2], sums[type * 2 + 1]));
+				}
+			}
+		});
+		return buckets;
+	}
+
+	/*
+	 * Recomputes the hours of [from, to) from the ticket table, e.g. after a crash lost sums not yet flushed. Tickets
+	 * closing while it runs may be counted twice, so it is meant to be run while the gates are idle.
+	 */
+	public synchronized boolean rebuild(Date from, Date to) {
+		if (!flush()) {
+			return false;
+		}
+		Connection con = null;
+		PreparedStatement delete = null;
+		PreparedStatement insert = null;
+		boolean autoCommit = true;
+		try {
+			con = dataBaseConfig.getConnection();
+			autoCommit = con.getAutoCommit();
+			con.setAutoCommit(false);
+			Timestamp start = new Timestamp(hourOf(from.getTime()));
+			Timestamp end = new Timestamp(hourOf(to.getTime() + HOUR - 1));
+			delete = dataBaseConfig.prepareStatement(con, DBConstants.DELETE_REVENUE_ROLLUP);
+			delete.setTimestamp(1, start);
+			delete.setTimestamp(2, end);
+			delete.executeUpdate();
+			insert = dataBaseConfig.prepareStatement(con, DBConstants.REBUILD_REVENUE_ROLLUP);
+			insert.setTimestamp(1, start);
+			insert.setTimestamp(2, end);
+			insert.executeUpdate();
+			con.commit();
+			return true;
+		} catch (Exception ex) {
+			errors.increment();
+			logger.error("Error rebuilding revenue rollup", ex);
+			rollback(con);
+			return false;
+		} finally {
+			dataBaseConfig.closePreparedStatement(insert);
+			dataBaseConfig.closePreparedStatement(delete);
+			restoreAutoCommit(con, autoCommit);
+			dataBaseConfig.closeConnection(con);
+		}
+	}
+
+	public void close() {
+		synchronized (this) {
+			if (flusher != null) {
+				flusher.shutdownNow();
+				flusher = null;
+			}
+		}
+		flush();
+	}
+
+	private static void rollback(Connection con) {
+		if (con != null) {
+			try {
+				con.rollback();
+			} catch (SQLException e) {
+				logger.error("Error while rolling back revenue rollup", e);
+			}
+		}
+	}
+
+	private static void restoreAutoCommit(Connection con, boolean autoCommit) {
+		if (con != null) {
+			try {
+				con.setAutoCommit(autoCommit);
+			} catch (SQLException e) {
+				logger.error("Error while restoring auto-commit", e);
+			}
+		}
+	}
+}
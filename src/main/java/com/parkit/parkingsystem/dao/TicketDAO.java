@@ -3,104 +3,683 @@ package com.parkit.parkingsystem.dao;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketHistory;
+import com.parkit.parkingsystem.util.LatencyRecorder;
+import com.parkit.parkingsystem.util.MetricsRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 public class TicketDAO {
     private static final Logger logger = LogManager.getLogger("TicketDAO");
+    private static final MetricsRegistry metrics = MetricsRegistry.getDefault();
+    private static final LatencyRecorder saveTicketLatency = metrics.timer("dao.ticket.saveTicket");
+    private static final LatencyRecorder getTicketLatency = metrics.timer("dao.ticket.getTicket");
+    private static final LatencyRecorder getOpenTicketLatency = metrics.timer("dao.ticket.getOpenTicket");
+    private static final LatencyRecorder getTicketsCountLatency = metrics.timer("dao.ticket.getTicketsCount");
+    private static final LatencyRecorder updateTicketLatency = metrics.timer("dao.ticket.updateTicket");
+    private static final LatencyRecorder saveTicketsLatency = metrics.timer("dao.ticket.saveTickets");
+    private static final LatencyRecorder updateTicketsLatency = metrics.timer("dao.ticket.updateTickets");
+    private static final LatencyRecorder streamTicketHistoryLatency = metrics.timer("dao.ticket.streamTicketHistory");
+    private static final LatencyRecorder streamClosedTicketsLatency = metrics.timer("dao.ticket.streamClosedTickets");
+    private static final LatencyRecorder saveTicketRepricingLatency = metrics.timer("dao.ticket.saveTicketRepricing");
+    private static final LatencyRecorder archiveClosedTicketsLatency = metrics.timer("dao.ticket.archiveClosedTickets");
+    private static final LatencyRecorder addArchivePartitionsLatency = metrics.timer("dao.ticket.addArchivePartitions");
+    private static final LatencyRecorder writeBehindAppliedLatency = metrics.timer("dao.ticket.writeBehindApplied");
+    private static final LongAdder errors = metrics.counter("dao.ticket.errors");
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+    public VisitCountCache visitCountCache;
+    public RevenueRollup revenueRollup;
+
+    private interface RowBinder {
+        void bind(PreparedStatement ps, Ticket ticket) throws SQLException;
+    }
 
     public boolean saveTicket(Ticket ticket) {
+        long start = System.nanoTime();
         Connection con = null;
+        PreparedStatement ps = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET);
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.SAVE_TICKET);
             ps.setInt(1,ticket.getParkingSpot().getId());
             ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
+            ps.setLong(3, ticket.getPriceInCents());
             ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
             ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
-            return ps.execute();
+            if (ps.executeUpdate() == 1) {
+                onTicketSaved(ticket);
+                return true;
+            }
+            return false;
         } catch (Exception ex) {
+            errors.increment();
             logger.error("Error fetching next available slot",ex);
         } finally {
+            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
-
+            saveTicketLatency.record(System.nanoTime() - start);
         }
         return false;
     }
 
     public Ticket getTicket(String vehicleRegNumber) {
+        return findTicket(DBConstants.GET_TICKET, vehicleRegNumber, getTicketLatency);
+    }
+
+    /* the ticket of a vehicle that is still parked, looked up by key in open_ticket rather than sorting its history */
+    public Ticket getOpenTicket(String vehicleRegNumber) {
+        return findTicket(DBConstants.GET_OPEN_TICKET, vehicleRegNumber, getOpenTicketLatency);
+    }
+
+    private Ticket findTicket(String sql, String vehicleRegNumber, LatencyRecorder latency) {
+        long start = System.nanoTime();
         Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
         Ticket ticket = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
+            ps = dataBaseConfig.prepareStatement(con, sql);
             ps.setString(1,vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
+            rs = ps.executeQuery();
             if(rs.next()){
                 ticket = new Ticket();
                 ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),rs.getBoolean(7));
                 ticket.setParkingSpot(parkingSpot);
                 ticket.setId(rs.getInt(2));
                 ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
+                ticket.setPriceInCents(rs.getLong(3));
                 ticket.setInTime(rs.getTimestamp(4));
                 ticket.setOutTime(rs.getTimestamp(5));
             }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
         } catch (Exception ex) {
+            errors.increment();
             logger.error("Error fetching next available slot",ex);
         } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
+            latency.record(System.nanoTime() - start);
         }
         return ticket;
     }
 
+    /* appends every ticket overlapping [from, to) to history, streaming the rows rather than loading the whole result */
+    public boolean streamTicketHistory(Date from, Date to, int fetchSize, TicketHistory history) {
+        long start = System.nanoTime();
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = dataBaseConfig.prepareStreamingStatement(con, DBConstants.GET_TICKET_HISTORY, fetchSize);
+            ps.setTimestamp(1, new Timestamp(to.getTime()));
+            ps.setTimestamp(2, new Timestamp(from.getTime()));
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                Timestamp outTime = rs.getTimestamp(2);
+                history.add(rs.getTimestamp(1).getTime(), outTime == null ? -1 : outTime.getTime(), rs.getLong(3),
+                        ParkingType.valueOf(rs.getString(4)));
+            }
+            return true;
+        } catch (Exception ex) {
+            errors.increment();
+            logger.error("Error streaming ticket history",ex);
+            return false;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+            streamTicketHistoryLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * Streams the tickets closed in [from, to) with their visit numbers, handing them to sink batchSize at a time.
+     * Each batch is new, so the sink may keep it; a sink that blocks holds back the read instead of buffering rows.
+     * Visits are numbered over the history of the vehicles with a ticket closed in the period only.
+     */
+    public boolean streamClosedTickets(Date from, Date to, int fetchSize, int batchSize, Consumer<ClosedTicketBatch> sink) {
+        long start = System.nanoTime();
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = dataBaseConfig.prepareStreamingStatement(con, DBConstants.GET_CLOSED_TICKETS_WITH_VISITS, fetchSize);
+            Timestamp fromTime = new Timestamp(from.getTime());
+            Timestamp toTime = new Timestamp(to.getTime());
+            int index = 1;
+            for (Timestamp bound : new Timestamp[]{fromTime, toTime, fromTime, toTime, toTime, toTime, fromTime, toTime}) {
+                ps.setTimestamp(index++, bound);
+            }
+            rs = ps.executeQuery();
+            ClosedTicketBatch batch = new ClosedTicketBatch(batchSize);
+            while (rs.next()) {
+                batch.add(rs.getInt(1), rs.getTimestamp(2).getTime(), rs.getTimestamp(3).getTime(), rs.getLong(4),
+                        ParkingType.valueOf(rs.getString(5)), rs.getInt(6));
+                if (batch.isFull()) {
+                    sink.accept(batch);
+                    batch = new ClosedTicketBatch(batchSize);
+                }
+            }
+            if (batch.size() > 0) {
+                sink.accept(batch);
+            }
+            return true;
+        } catch (Exception ex) {
+            errors.increment();
+            logger.error("Error streaming closed tickets",ex);
+            return false;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+            streamClosedTicketsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /* records under runId the tickets of batch whose new price differs from the one they paid */
+    public boolean saveTicketRepricing(String runId, ClosedTicketBatch batch, long[] newPricesInCents) {
+        long start = System.nanoTime();
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.SAVE_TICKET_REPRICING);
+            for (int row = 0; row < batch.size(); row++) {
+                if (newPricesInCents[row] != batch.getPriceInCents(row)) {
+                    ps.setString(1, runId);
+                    ps.setInt(2, batch.getId(row));
+                    ps.setString(3, batch.getParkingType(row).toString());
+                    ps.setLong(4, batch.getPriceInCents(row));
+                    ps.setLong(5, newPricesInCents[row]);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+            return true;
+        } catch (Exception ex) {
+            errors.increment();
+            logger.error("Error saving ticket repricing",ex);
+            return false;
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+            saveTicketRepricingLatency.record(System.nanoTime() - start);
+        }
+    }
+
     public int getTicketsCount(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        if (visitCountCache != null) {
+            Integer cachedCount = visitCountCache.get(vehicleRegNumber);
+            if (cachedCount != null) {
+                getTicketsCountLatency.record(System.nanoTime() - start);
+                return cachedCount;
+            }
+        }
+        VisitCountCache.Load load = visitCountCache == null ? null : visitCountCache.startLoad(vehicleRegNumber);
+        Integer loadedCount = null;
         Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
         int linesCount = 0;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKETS_COUNT);
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_TICKETS_COUNT);
             ps.setString(1,vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
+            ps.setString(2,vehicleRegNumber);
+            rs = ps.executeQuery();
             if(rs.next()){
                 linesCount = rs.getInt("linesCount");
             }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
+            loadedCount = linesCount;
         } catch (Exception ex) {
+            errors.increment();
             logger.error("Error checking user recurrence",ex);
         } finally {
+            if (load != null) {
+                visitCountCache.finishLoad(vehicleRegNumber, load, loadedCount);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
+            getTicketsCountLatency.record(System.nanoTime() - start);
         }
         return linesCount;
     }
 
+    /* false when the ticket was already closed, so of two exits racing for one ticket only one succeeds */
     public boolean updateTicket(Ticket ticket) {
+        long start = System.nanoTime();
         Connection con = null;
+        PreparedStatement ps = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
-            ps.setDouble(1, ticket.getPrice());
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_TICKET);
+            ps.setLong(1, ticket.getPriceInCents());
             ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
             ps.setInt(3,ticket.getId());
-            ps.execute();
-            return true;
+            if (ps.executeUpdate() == 1) {
+                onTicketClosed(ticket);
+                return true;
+            }
+            return false;
         } catch (Exception ex) {
+            errors.increment();
             logger.error("Error saving ticket info",ex);
         } finally {
+            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
+            updateTicketLatency.record(System.nanoTime() - start);
         }
         return false;
     }
+
+    /*
+     * Moves up to batchSize tickets closed before closedBefore, oldest first, to ticket_archive in one transaction,
+     * adding them to archived_visit so getTicketsCount still counts them. Returns the number moved, or -1 on error.
+     */
+    public int archiveClosedTickets(Date closedBefore, int batchSize) {
+        long start = System.nanoTime();
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        boolean ownTransaction = false;
+        try {
+            con = dataBaseConfig.getConnection();
+            ownTransaction = con.getAutoCommit();
+            if (ownTransaction) {
+                con.setAutoCommit(false);
+            }
+            Timestamp cutoff = new Timestamp(closedBefore.getTime());
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_ARCHIVE_BATCH_END);
+            ps.setTimestamp(1, cutoff);
+            ps.setInt(2, batchSize);
+            rs = ps.executeQuery();
+            int lastId = rs.next() ? rs.getInt(1) : 0;
+            dataBaseConfig.closeResultSet(rs);
+            rs = null;
+            dataBaseConfig.closePreparedStatement(ps);
+            ps = null;
+            if (lastId == 0) {
+                if (ownTransaction) {
+                    con.commit();
+                }
+                return 0;
+            }
+            int moved = 0;
+            for (String sql : new String[]{DBConstants.ARCHIVE_TICKETS, DBConstants.ADD_ARCHIVED_VISITS, DBConstants.DELETE_ARCHIVED_TICKETS}) {
+                ps = dataBaseConfig.prepareStatement(con, sql);
+                ps.setTimestamp(1, cutoff);
+                ps.setInt(2, lastId);
+                moved = ps.executeUpdate();
+                dataBaseConfig.closePreparedStatement(ps);
+                ps = null;
+            }
+            if (ownTransaction) {
+                con.commit();
+            }
+            return moved;
+        } catch (Exception ex) {
+            errors.increment();
+            logger.error("Error archiving closed tickets",ex);
+            if (ownTransaction) {
+                rollbackChunk(con, true, null);
+            }
+            return -1;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            if (ownTransaction) {
+                restoreAutoCommit(con);
+            }
+            dataBaseConfig.closeConnection(con);
+            archiveClosedTicketsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /* ids of the tickets written for the write-behind journal records numbered fromSeq to toSeq, null on error */
+    public Map<Long, Integer> getWriteBehindApplied(long fromSeq, long toSeq) {
+        long start = System.nanoTime();
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_WRITE_BEHIND_APPLIED);
+            ps.setLong(1, fromSeq);
+            ps.setLong(2, toSeq);
+            rs = ps.executeQuery();
+            Map<Long, Integer> ticketIds = new HashMap<>();
+            while (rs.next()) {
+                ticketIds.put(rs.getLong(1), rs.getInt(2));
+            }
+            return ticketIds;
+        } catch (Exception ex) {
+            errors.increment();
+            logger.error("Error reading applied write-behind records",ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+            writeBehindAppliedLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * Records the tickets written for write-behind journal records, meant to run in the transaction writing them,
+     * and forgets the records up to checkpointedSeq, which are never replayed again.
+     */
+    public boolean saveWriteBehindApplied(Map<Long, Integer> ticketIdsBySeq, long checkpointedSeq) {
+        long start = System.nanoTime();
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.DELETE_WRITE_BEHIND_APPLIED);
+            ps.setLong(1, checkpointedSeq);
+            ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            ps = null;
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.SAVE_WRITE_BEHIND_APPLIED);
+            for (Map.Entry<Long, Integer> applied : ticketIdsBySeq.entrySet()) {
+                ps.setLong(1, applied.getKey());
+                ps.setInt(2, applied.getValue());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            return true;
+        } catch (Exception ex) {
+            errors.increment();
+            logger.error("Error saving applied write-behind records",ex);
+            return false;
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+            writeBehindAppliedLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * Splits pmax of ticket_archive so that every year up to throughYear has its own partition. Returns the number of
+     * partitions added, 0 when there is nothing to do or the archive is not partitioned by year, or -1 on error.
+     */
+    public int addArchivePartitions(int throughYear) {
+        long start = System.nanoTime();
+        Connection con = null;
+        PreparedStatement ps = null;
+        Statement ddl = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_ARCHIVE_PARTITIONS);
+            rs = ps.executeQuery();
+            int lastYear = 0;
+            boolean hasPmax = false;
+            while (rs.next()) {
+                String name = rs.getString(1);
+                if ("pmax".equals(name)) {
+                    hasPmax = true;
+                } else if (name != null && name.matches("p\\d{4}")) {
+                    lastYear = Math.max(lastYear, Integer.parseInt(name.substring(1)));
+                }
+            }
+            dataBaseConfig.closeResultSet(rs);
+            rs = null;
+            dataBaseConfig.closePreparedStatement(ps);
+            ps = null;
+            if (!hasPmax || lastYear == 0 || lastYear >= throughYear) {
+                return 0;
+            }
+            List<String> partitions = new ArrayList<>();
+            for (int year = lastYear + 1; year <= throughYear; year++) {
+                partitions.add(String.format(DBConstants.ARCHIVE_YEAR_PARTITION, year, year + 1));
+            }
+            ddl = con.createStatement();
+            ddl.execute(String.format(DBConstants.SPLIT_ARCHIVE_PMAX, String.join(", ", partitions)));
+            return partitions.size();
+        } catch (Exception ex) {
+            errors.increment();
+            logger.error("Error adding ticket archive partitions",ex);
+            return -1;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeStatement(ddl);
+            dataBaseConfig.closeConnection(con);
+            addArchivePartitionsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public BatchResult saveTickets(Collection<Ticket> tickets) {
+        return saveTickets(tickets, getBatchSize());
+    }
+
+    public BatchResult saveTickets(Collection<Ticket> tickets, int batchSize) {
+        List<Ticket> rows = new ArrayList<>(tickets);
+        BatchResult result = executeBatch(DBConstants.SAVE_TICKET, rows, batchSize, true, this::bindSaveTicket, saveTicketsLatency);
+        for (int row = 0; row < rows.size(); row++) {
+            if (result.isSuccessful(row)) {
+                onTicketSaved(rows.get(row));
+            }
+        }
+        return result;
+    }
+
+    private void onTicketSaved(Ticket ticket) {
+        if (visitCountCache != null) {
+            String vehicleRegNumber = ticket.getVehicleRegNumber();
+            dataBaseConfig.afterCommit(() -> visitCountCache.increment(vehicleRegNumber));
+        }
+    }
+
+    public BatchResult updateTickets(Collection<Ticket> tickets) {
+        return updateTickets(tickets, getBatchSize());
+    }
+
+    public BatchResult updateTickets(Collection<Ticket> tickets, int batchSize) {
+        List<Ticket> rows = new ArrayList<>(tickets);
+        BatchResult result = executeBatch(DBConstants.UPDATE_TICKET, rows, batchSize, false, this::bindUpdateTicket, updateTicketsLatency);
+        for (int row = 0; row < rows.size(); row++) {
+            if (result.isSuccessful(row)) {
+                onTicketClosed(rows.get(row));
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Only for updates that closed the ticket, those matching a closed one count no row, and only once the exit
+     * commits, so a rolled back exit never reaches the rollup.
+     */
+    private void onTicketClosed(Ticket ticket) {
+        if (revenueRollup != null) {
+            Date outTime = new Date(ticket.getOutTime().getTime());
+            ParkingType parkingType = ticket.getParkingSpot().getParkingType();
+            long priceInCents = ticket.getPriceInCents();
+            dataBaseConfig.afterCommit(() -> revenueRollup.record(outTime, parkingType, priceInCents));
+        }
+    }
+
+    private int getBatchSize() {
+        return dataBaseConfig.getIntProperty("db.batchSize", 500);
+    }
+
+    private void bindSaveTicket(PreparedStatement ps, Ticket ticket) throws SQLException {
+        ps.setInt(1,ticket.getParkingSpot().getId());
+        ps.setString(2, ticket.getVehicleRegNumber());
+        ps.setLong(3, ticket.getPriceInCents());
+        ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
+        ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
+    }
+
+    private void bindUpdateTicket(PreparedStatement ps, Ticket ticket) throws SQLException {
+        ps.setLong(1, ticket.getPriceInCents());
+        ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+        ps.setInt(3,ticket.getId());
+    }
+
+    private BatchResult executeBatch(String sql, List<Ticket> tickets, int batchSize, boolean generatedKeys, RowBinder binder,
+                                     LatencyRecorder latency) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult(tickets.size());
+        Connection con = null;
+        PreparedStatement ps = null;
+        boolean ownTransaction = false;
+        int from = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            ownTransaction = con.getAutoCommit();
+            if (ownTransaction) {
+                con.setAutoCommit(false);
+            }
+            ps = dataBaseConfig.prepareStatement(con, sql, generatedKeys ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS);
+            for (; from < tickets.size(); from += batchSize) {
+                int to = Math.min(from + batchSize, tickets.size());
+                Savepoint savepoint = ownTransaction ? null : con.setSavepoint();
+                try {
+                    for (int row = from; row < to; row++) {
+                        binder.bind(ps, tickets.get(row));
+                        ps.addBatch();
+                    }
+                    int[] updateCounts = ps.executeBatch();
+                    if (!generatedKeys && hasUnknownCount(updateCounts)) {
+                        throw new SQLException("Driver reported no update count, checking rows one by one");
+                    }
+                    int[] ids = generatedKeys ? readGeneratedKeys(ps, to - from) : null;
+                    endChunk(con, ownTransaction, savepoint);
+                    for (int row = from; row < to; row++) {
+                        recordSuccess(result, tickets.get(row), row, ids == null ? 0 : ids[row - from], updateCounts, row - from);
+                    }
+                } catch (SQLException | RuntimeException chunkFailure) {
+                    ps.clearBatch();
+                    rollbackChunk(con, ownTransaction, savepoint);
+                    logger.error("Batch of " + (to - from) + " tickets failed, retrying row by row", chunkFailure);
+                    for (int row = from; row < to; row++) {
+                        executeRow(con, ps, tickets.get(row), row, result, ownTransaction, generatedKeys, binder);
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            errors.increment();
+            logger.error("Error executing ticket batch",ex);
+            for (int row = from; row < tickets.size(); row++) {
+                if (!result.isSuccessful(row) && !result.getFailures().containsKey(row)) {
+                    result.failure(row, String.valueOf(ex.getMessage()));
+                }
+            }
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+            if (ownTransaction) {
+                restoreAutoCommit(con);
+            }
+            dataBaseConfig.closeConnection(con);
+            latency.record(System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    private void executeRow(Connection con, PreparedStatement ps, Ticket ticket, int row, BatchResult result,
+                            boolean ownTransaction, boolean generatedKeys, RowBinder binder) throws SQLException {
+        Savepoint savepoint = ownTransaction ? null : con.setSavepoint();
+        try {
+            binder.bind(ps, ticket);
+            int updateCount = ps.executeUpdate();
+            int[] ids = generatedKeys ? readGeneratedKeys(ps, 1) : null;
+            endChunk(con, ownTransaction, savepoint);
+            recordSuccess(result, ticket, row, ids == null ? 0 : ids[0], new int[]{updateCount}, 0);
+        } catch (SQLException | RuntimeException rowFailure) {
+            rollbackChunk(con, ownTransaction, savepoint);
+            result.failure(row, String.valueOf(rowFailure.getMessage()));
+        }
+    }
+
+    /* an update that matched no open ticket must not count as a close, so counts have to be known row by row */
+    private static boolean hasUnknownCount(int[] updateCounts) {
+        for (int updateCount : updateCounts) {
+            if (updateCount == Statement.SUCCESS_NO_INFO) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordSuccess(BatchResult result, Ticket ticket, int row, int generatedId, int[] updateCounts, int index) {
+        if (updateCounts[index] == 0) {
+            result.failure(row, "No ticket row matched");
+            return;
+        }
+        if (generatedId > 0) {
+            ticket.setId(generatedId);
+        }
+        result.success(row, generatedId);
+    }
+
+    private int[] readGeneratedKeys(PreparedStatement ps, int expected) throws SQLException {
+        int[] ids = new int[expected];
+        ResultSet keys = ps.getGeneratedKeys();
+        try {
+            for (int index = 0; index < expected && keys.next(); index++) {
+                ids[index] = keys.getInt(1);
+            }
+        } finally {
+            dataBaseConfig.closeResultSet(keys);
+        }
+        return ids;
+    }
+
+    private void endChunk(Connection con, boolean ownTransaction, Savepoint savepoint) throws SQLException {
+        if (ownTransaction) {
+            con.commit();
+        } else {
+            con.releaseSavepoint(savepoint);
+        }
+    }
+
+    private void rollbackChunk(Connection con, boolean ownTransaction, Savepoint savepoint) {
+        try {
+            if (ownTransaction) {
+                con.rollback();
+            } else {
+                con.rollback(savepoint);
+            }
+        } catch (SQLException e) {
+            logger.error("Error rolling back ticket batch",e);
+        }
+    }
+
+    private void restoreAutoCommit(Connection con) {
+        if (con != null) {
+            try {
+                con.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("Error restoring auto-commit",e);
+            }
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class VisitCountCache {
+	private final int maxSize;
+	private final long ttlMillis;
+	private final Map<String, Entry> entries;
+	private final Map<String, Load> loads = new HashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public VisitCountCache(int maxSize, long ttlMillis) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+		}
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlMillis;
+		this.entries = new LinkedHashMap<>(Math.min(maxSize, 1024), 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > VisitCountCache.this.maxSize;
+			}
+		};
+	}
+
+	public synchronized Integer get(String vehicleRegNumber) {
+		Entry entry = entries.get(vehicleRegNumber);
+		if (entry == null || isExpired(entry)) {
+			if (entry != null) {
+				entries.remove(vehicleRegNumber);
+			}
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return entry.count;
+	}
+
+	public synchronized void put(String vehicleRegNumber, int count) {
+		entries.put(vehicleRegNumber, new Entry(count, System.currentTimeMillis()));
+	}
+
+	/*
+	 * A count read from the database is only cached if no save of the vehicle was counted while it was read. Such a
+	 * save finds no entry to increment, so caching the read afterwards would hide it until the entry expires.
+	 */
+	public synchronized Load startLoad(String vehicleRegNumber) {
+		Load load = loads.computeIfAbsent(vehicleRegNumber, key -> new Load());
+		load.loaders++;
+		return load;
+	}
+
+	/* count is null when the read failed; an entry another load cached meanwhile is kept */
+	public synchronized void finishLoad(String vehicleRegNumber, Load load, Integer count) {
+		if (--load.loaders == 0) {
+			loads.remove(vehicleRegNumber, load);
+		}
+		if (count == null || load.stale) {
+			return;
+		}
+		Entry entry = entries.get(vehicleRegNumber);
+		if (entry == null || isExpired(entry)) {
+			entries.put(vehicleRegNumber, new Entry(count, System.currentTimeMillis()));
+		}
+	}
+
+	public synchronized void increment(String vehicleRegNumber) {
+		markLoadStale(vehicleRegNumber);
+		Entry entry = entries.get(vehicleRegNumber);
+		if (entry != null && !isExpired(entry)) {
+			entry.count++;
+		}
+	}
+
+	public synchronized void invalidate(String vehicleRegNumber) {
+		markLoadStale(vehicleRegNumber);
+		entries.remove(vehicleRegNumber);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	private void markLoadStale(String vehicleRegNumber) {
+		Load load = loads.get(vehicleRegNumber);
+		if (load != null) {
+			load.stale = true;
+		}
+	}
+
+	private boolean isExpired(Entry entry) {
+		return ttlMillis > 0 && System.currentTimeMillis() - entry.loadedAtMillis > ttlMillis;
+	}
+
+	public static final class Load {
+		private int loaders;
+		private boolean stale;
+
+		private Load() {
+		}
+	}
+
+	private static class Entry {
+		private int count;
+		private final long loadedAtMillis;
+
+		private Entry(int count, long loadedAtMillis) {
+			this.count = count;
+			this.loadedAtMillis = loadedAtMillis;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.parkit.parkingsystem.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Local redo log of the write-behind store. Each line is "<kind>\t<seq>\t<fields...>"; a "C\t<seq>" line marks every
+ * record up to seq as persisted, and the file is cut back to that line whenever the writer has caught up with the last
+ * append, so seqs keep increasing across restarts.
+ */
+final class WriteBehindJournal {
+	static final String CHECKPOINT = "C";
+
+	private final FileChannel channel;
+	private final boolean sync;
+	private long lastAppended;
+
+	WriteBehindJournal(Path file, boolean sync) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		this.sync = sync;
+	}
+
+	synchronized List<String[]> readUnpersisted() throws IOException {
+		long size = channel.size();
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+			// keep reading until the whole file is in memory
+		}
+		String content = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+		int complete = content.lastIndexOf('\n') + 1;
+
+		List<String[]> records = new ArrayList<>();
+		long checkpoint = 0;
+		for (String line : content.substring(0, complete).split("\n")) {
+			if (line.isEmpty()) {
+				continue;
+			}
+			String[] fields = line.split("\t", -1);
+			long seq = Long.parseLong(fields[1]);
+			if (CHECKPOINT.equals(fields[0])) {
+				checkpoint = Math.max(checkpoint, seq);
+			} else {
+				records.add(fields);
+			}
+			lastAppended = Math.max(lastAppended, seq);
+		}
+		List<String[]> unpersisted = new ArrayList<>();
+		for (String[] record : records) {
+			if (Long.parseLong(record[1]) > checkpoint) {
+				unpersisted.add(record);
+			}
+		}
+		channel.truncate(complete);
+		return unpersisted;
+	}
+
+	synchronized long getLastAppended() {
+		return lastAppended;
+	}
+
+	synchronized void append(String kind, long seq, String fields) throws IOException {
+		write(kind + "\t" + seq + "\t" + fields + "\n");
+		lastAppended = seq;
+	}
+
+	synchronized void checkpoint(long seq) throws IOException {
+		if (seq >= lastAppended) {
+			channel.truncate(0);
+		}
+		write(CHECKPOINT + "\t" + seq + "\n");
+	}
+
+	synchronized void close() throws IOException {
+		channel.close();
+	}
+
+	private void write(String line) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+		long position = channel.size();
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+		if (sync) {
+			channel.force(false);
+		}
+	}
+}
@@ -0,0 +1,651 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Write-behind persistence for tickets and spot availability. Writes made through getTicketDAO() and
+ * getParkingSpotDAO() are appended to a local journal and acknowledged at once; a single writer thread drains them
+ * from a bounded queue and persists them in batched transactions. A write that finds the queue full for
+ * ENQUEUE_TIMEOUT_MILLIS is rejected. Reads of tickets that are not persisted yet are served from memory, and journal
+ * entries left by a crash are replayed on start.
+ */
+public class WriteBehindStore {
+	private static final Logger logger = LogManager.getLogger("WriteBehindStore");
+	private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+	private static final long ENQUEUE_TIMEOUT_MILLIS = 2000;
+	private static final int RESOLVED_ID_CACHE_SIZE = 10000;
+
+	private enum Kind {
+		SAVE("S"), UPDATE("U"), SPOT("P");
+
+		private final String code;
+
+		Kind(String code) {
+			this.code = code;
+		}
+
+		static Kind of(String code) {
+			for (Kind kind : values()) {
+				if (kind.code.equals(code)) {
+					return kind;
+				}
+			}
+			throw new IllegalArgumentException("Unknown journal record kind " + code);
+		}
+	}
+
+	private static final class PendingWrite {
+		final Kind kind;
+		final long seq;
+		final Ticket ticket;
+		final ParkingSpot parkingSpot;
+		final boolean replayed;
+
+		PendingWrite(Kind kind, long seq, Ticket ticket, ParkingSpot parkingSpot, boolean replayed) {
+			this.kind = kind;
+			this.seq = seq;
+			this.ticket = ticket;
+			this.parkingSpot = parkingSpot;
+			this.replayed = replayed;
+		}
+	}
+
+	private final TicketDAO ticketDAO;
+	private final ParkingSpotDAO parkingSpotDAO;
+	private final DataBaseConfig dataBaseConfig;
+	private final WriteBehindJournal journal;
+	private final BlockingQueue<PendingWrite> queue;
+	private final Semaphore queueSlots;
+	private final int batchSize;
+	private final Object appendLock = new Object();
+	private final Map<String, PendingWrite> pendingTickets = new ConcurrentHashMap<>();
+	private final Map<String, Integer> pendingSaves = new ConcurrentHashMap<>();
+	private final ReadWriteLock savesVisibility = new ReentrantReadWriteLock();
+	private final Map<Integer, Integer> resolvedIds = new LinkedHashMap<Integer, Integer>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+			return size() > RESOLVED_ID_CACHE_SIZE;
+		}
+	};
+	private final TicketDAO ticketView = new PendingTicketDAO();
+	private final ParkingSpotDAO parkingSpotView = new PendingParkingSpotDAO();
+
+	private long lastSeq;
+	private volatile long persistedSeq;
+	private volatile boolean closed;
+	private Thread writer;
+
+	public WriteBehindStore(TicketDAO ticketDAO, ParkingSpotDAO parkingSpotDAO, DataBaseConfig dataBaseConfig,
+			Path journalFile, int queueCapacity, int batchSize, boolean syncJournal) throws IOException {
+		if (queueCapacity < 1 || batchSize < 1) {
+			throw new IllegalArgumentException("Invalid write-behind sizes: queue=" + queueCapacity + ", batch=" + batchSize);
+		}
+		this.ticketDAO = ticketDAO;
+		this.parkingSpotDAO = parkingSpotDAO;
+		this.dataBaseConfig = dataBaseConfig;
+		this.journal = new WriteBehindJournal(journalFile, syncJournal);
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.queueSlots = new Semaphore(queueCapacity);
+		this.batchSize = batchSize;
+	}
+
+	public synchronized void start() throws IOException {
+		List<String[]> unpersisted = journal.readUnpersisted();
+		lastSeq = journal.getLastAppended();
+		persistedSeq = unpersisted.isEmpty() ? lastSeq : Long.parseLong(unpersisted.get(0)[1]) - 1;
+		writer = new Thread(this::drain, "write-behind-writer");
+		writer.setDaemon(true);
+		writer.start();
+		if (!unpersisted.isEmpty()) {
+			logger.info("Replaying " + unpersisted.size() + " journaled writes");
+		}
+		for (String[] record : unpersisted) {
+			PendingWrite write = decode(record);
+			track(write);
+			queueSlots.acquireUninterruptibly();
+			queue.add(write);
+		}
+	}
+
+	public TicketDAO getTicketDAO() {
+		return ticketView;
+	}
+
+	public ParkingSpotDAO getParkingSpotDAO() {
+		return parkingSpotView;
+	}
+
+	public int getQueuedWrites() {
+		return queue.size();
+	}
+
+	public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+		long target;
+		synchronized (appendLock) {
+			target = lastSeq;
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (this) {
+			while (persistedSeq < target) {
+				long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remainingMillis <= 0) {
+					return false;
+				}
+				wait(remainingMillis);
+			}
+		}
+		return true;
+	}
+
+	public void close() {
+		closed = true;
+		Thread drainingWriter;
+		synchronized (this) {
+			drainingWriter = writer;
+		}
+		if (drainingWriter != null) {
+			try {
+				drainingWriter.join(TimeUnit.SECONDS.toMillis(30));
+				if (drainingWriter.isAlive()) {
+					logger.error("Timed out persisting queued writes, they stay in the journal for the next start");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		try {
+			journal.close();
+		} catch (IOException e) {
+			logger.error("Error closing write-behind journal", e);
+		}
+	}
+
+	private boolean enqueue(Kind kind, Ticket ticket, ParkingSpot parkingSpot) {
+		if (closed) {
+			logger.error("Write-behind store is closed, rejecting " + kind + " write");
+			return false;
+		}
+		/* a slot is reserved before taking the lock, so a full queue only holds back this caller, and for a bounded time */
+		if (!acquireQueueSlot()) {
+			logger.error("Write-behind queue is full, rejecting " + kind + " write");
+			return false;
+		}
+		synchronized (appendLock) {
+			if (kind == Kind.UPDATE && isClosedPending(ticket)) {
+				queueSlots.release();
+				logger.error("Ticket " + ticket.getId() + " of vehicle " + ticket.getVehicleRegNumber() + " is already closed");
+				return false;
+			}
+			long seq = lastSeq + 1;
+			if (kind == Kind.SAVE) {
+				ticket.setId(provisionalId(seq));
+			}
+			PendingWrite write = new PendingWrite(kind, seq, ticket == null ? null : copy(ticket),
+					parkingSpot == null ? null : copy(parkingSpot), false);
+			try {
+				journal.append(kind.code, seq, encode(write));
+			} catch (IOException e) {
+				queueSlots.release();
+				logger.error("Unable to journal " + kind + " write", e);
+				return false;
+			}
+			lastSeq = seq;
+			track(write);
+			queue.add(write);
+			return true;
+		}
+	}
+
+	private boolean acquireQueueSlot() {
+		try {
+			return queueSlots.tryAcquire(ENQUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private BatchResult enqueueAll(Kind kind, Collection<Ticket> tickets) {
+		BatchResult result = new BatchResult(tickets.size());
+		int row = 0;
+		for (Ticket ticket : tickets) {
+			if (enqueue(kind, ticket, null)) {
+				result.success(row, ticket.getId());
+			} else {
+				result.failure(row, "Unable to journal " + kind + " write");
+			}
+			row++;
+		}
+		return result;
+	}
+
+	/* the database rejects closing a closed ticket, pending writes have to as well */
+	private boolean isClosedPending(Ticket ticket) {
+		PendingWrite pending = pendingTickets.get(ticket.getVehicleRegNumber());
+		return pending != null && pending.ticket.getId() == ticket.getId() && pending.ticket.getOutTime() != null;
+	}
+
+	private void track(PendingWrite write) {
+		if (write.ticket != null) {
+			pendingTickets.put(write.ticket.getVehicleRegNumber(), write);
+			if (write.kind == Kind.SAVE) {
+				pendingSaves.merge(write.ticket.getVehicleRegNumber(), 1, Integer::sum);
+			}
+		}
+	}
+
+	private void untrack(PendingWrite write) {
+		if (write.ticket != null) {
+			pendingTickets.remove(write.ticket.getVehicleRegNumber(), write);
+		}
+	}
+
+	/*
+	 * Saves leave pendingSaves in the step that commits them, with readers of the count held off, so getTicketsCount
+	 * never sees a ticket both in the database and pending.
+	 */
+	private void commitAndUntrackSaves(List<PendingWrite> batch) throws SQLException {
+		savesVisibility.writeLock().lock();
+		try {
+			commitTransaction();
+			for (PendingWrite write : batch) {
+				if (write.kind == Kind.SAVE) {
+					pendingSaves.computeIfPresent(write.ticket.getVehicleRegNumber(),
+							(key, count) -> count > 1 ? count - 1 : null);
+				}
+			}
+		} finally {
+			savesVisibility.writeLock().unlock();
+		}
+	}
+
+	private void drain() {
+		List<PendingWrite> batch = new ArrayList<>(batchSize);
+		while (true) {
+			PendingWrite first;
+			try {
+				first = queue.poll(100, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (first == null) {
+				if (closed) {
+					return;
+				}
+				continue;
+			}
+			batch.add(first);
+			queue.drainTo(batch, batchSize - 1);
+			queueSlots.release(batch.size());
+			if (!persistWithRetry(batch)) {
+				logger.error("Stopping write-behind writer with " + (batch.size() + queue.size())
+						+ " writes left in the journal");
+				return;
+			}
+			batch.clear();
+		}
+	}
+
+	private boolean persistWithRetry(List<PendingWrite> batch) {
+		long delayMillis = 100;
+		while (true) {
+			try {
+				persist(batch);
+				break;
+			} catch (Exception e) {
+				if (closed) {
+					logger.error("Unable to persist " + batch.size() + " writes while closing", e);
+					return false;
+				}
+				logger.error("Unable to persist " + batch.size() + " writes, retrying in " + delayMillis + "ms", e);
+				try {
+					Thread.sleep(delayMillis);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+				delayMillis = Math.min(delayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+			}
+		}
+
+		long seq = batch.get(batch.size() - 1).seq;
+		try {
+			journal.checkpoint(seq);
+		} catch (IOException e) {
+			logger.error("Unable to checkpoint write-behind journal at " + seq, e);
+		}
+		for (PendingWrite write : batch) {
+			untrack(write);
+		}
+		synchronized (this) {
+			persistedSeq = seq;
+			notifyAll();
+		}
+		return true;
+	}
+
+	private void persist(List<PendingWrite> batch) throws Exception {
+		List<Ticket> saves = new ArrayList<>();
+		List<Integer> provisionalIds = new ArrayList<>();
+		List<Long> saveSeqs = new ArrayList<>();
+		long firstReplayedSeq = -1;
+		long lastReplayedSeq = -1;
+		List<PendingWrite> updates = new ArrayList<>();
+		Map<Integer, ParkingSpot> spots = new LinkedHashMap<>();
+		for (PendingWrite write : batch) {
+			if (write.replayed && write.kind != Kind.SPOT) {
+				firstReplayedSeq = firstReplayedSeq < 0 ? write.seq : firstReplayedSeq;
+				lastReplayedSeq = write.seq;
+			}
+			switch (write.kind) {
+				case SAVE:
+					saves.add(copy(write.ticket));
+					provisionalIds.add(write.ticket.getId());
+					saveSeqs.add(write.seq);
+					break;
+				case UPDATE:
+					updates.add(write);
+					break;
+				default:
+					spots.put(write.parkingSpot.getId(), write.parkingSpot);
+			}
+		}
+
+		Map<Integer, Integer> savedIds = new HashMap<>();
+		Map<Long, Integer> appliedSeqs = new HashMap<>();
+		beginTransaction();
+		try {
+			Map<Long, Integer> applied = Collections.emptyMap();
+			if (firstReplayedSeq >= 0) {
+				applied = ticketDAO.getWriteBehindApplied(firstReplayedSeq, lastReplayedSeq);
+				if (applied == null) {
+					throw new SQLException("Unable to read the journal records already applied");
+				}
+				skipAppliedSaves(applied, saves, provisionalIds, saveSeqs, savedIds);
+			}
+			if (!saves.isEmpty()) {
+				BatchResult result = ticketDAO.saveTickets(saves, batchSize);
+				checkNotAllFailed(result, "ticket inserts");
+				for (int row = 0; row < saves.size(); row++) {
+					if (result.isSuccessful(row)) {
+						savedIds.put(provisionalIds.get(row), saves.get(row).getId());
+						appliedSeqs.put(saveSeqs.get(row), saves.get(row).getId());
+					} else {
+						logger.error("Dropping ticket of vehicle " + saves.get(row).getVehicleRegNumber() + ": "
+								+ result.getFailures().get(row));
+					}
+				}
+			}
+
+			List<Ticket> updatedTickets = new ArrayList<>();
+			List<Long> updateSeqs = new ArrayList<>();
+			for (PendingWrite update : updates) {
+				if (update.replayed && applied.containsKey(update.seq)) {
+					/* committed before the crash, the ticket is closed and would match no open row */
+					continue;
+				}
+				Ticket ticket = copy(update.ticket);
+				if (ticket.getId() < 0) {
+					Integer id = resolveId(ticket, savedIds);
+					if (id == null) {
+						logger.error("Dropping update of vehicle " + ticket.getVehicleRegNumber()
+								+ ": its ticket was never persisted");
+						continue;
+					}
+					ticket.setId(id);
+				}
+				updatedTickets.add(ticket);
+				updateSeqs.add(update.seq);
+			}
+			if (!updatedTickets.isEmpty()) {
+				BatchResult result = ticketDAO.updateTickets(updatedTickets, batchSize);
+				checkNotAllFailed(result, "ticket updates");
+				for (int row = 0; row < updatedTickets.size(); row++) {
+					if (result.isSuccessful(row)) {
+						appliedSeqs.put(updateSeqs.get(row), updatedTickets.get(row).getId());
+					} else {
+						logger.error("Dropping update of vehicle " + updatedTickets.get(row).getVehicleRegNumber() + ": "
+								+ result.getFailures().get(row));
+					}
+				}
+			}
+			if (!appliedSeqs.isEmpty() && !ticketDAO.saveWriteBehindApplied(appliedSeqs, persistedSeq)) {
+				throw new SQLException("Unable to record the journal records of " + appliedSeqs.size() + " ticket writes");
+			}
+
+			int failedSpots = 0;
+			for (ParkingSpot parkingSpot : spots.values()) {
+				if (!parkingSpotDAO.updateParking(parkingSpot)) {
+					failedSpots++;
+					logger.error("Dropping availability change of parking spot " + parkingSpot.getId());
+				}
+			}
+			if (failedSpots > 0 && failedSpots == spots.size()) {
+				throw new SQLException("All " + failedSpots + " parking spot updates failed");
+			}
+			commitAndUntrackSaves(batch);
+		} catch (Exception e) {
+			rollbackTransaction();
+			throw e;
+		}
+		synchronized (resolvedIds) {
+			resolvedIds.putAll(savedIds);
+		}
+	}
+
+	/*
+	 * A crash between committing a batch and checkpointing it replays ticket writes that are already in the database.
+	 * Each insert and update records its journal seq in the same transaction, so those are found by seq and skipped,
+	 * inserts keeping their ticket id.
+	 */
+	private void skipAppliedSaves(Map<Long, Integer> applied, List<Ticket> saves, List<Integer> provisionalIds,
+			List<Long> saveSeqs, Map<Integer, Integer> savedIds) {
+		for (int index = saves.size() - 1; index >= 0; index--) {
+			Integer id = applied.get(saveSeqs.get(index));
+			if (id != null) {
+				savedIds.put(provisionalIds.get(index), id);
+				saves.remove(index);
+				provisionalIds.remove(index);
+				saveSeqs.remove(index);
+			}
+		}
+	}
+
+	private Integer resolveId(Ticket ticket, Map<Integer, Integer> savedIds) {
+		Integer id = savedIds.get(ticket.getId());
+		if (id == null) {
+			synchronized (resolvedIds) {
+				id = resolvedIds.get(ticket.getId());
+			}
+		}
+		if (id == null) {
+			Ticket persisted = ticketDAO.getTicket(ticket.getVehicleRegNumber());
+			if (persisted != null && sameSecond(persisted.getInTime(), ticket.getInTime())) {
+				id = persisted.getId();
+			}
+		}
+		return id;
+	}
+
+	private static boolean sameSecond(Date first, Date second) {
+		return first != null && second != null && first.getTime() / 1000 == second.getTime() / 1000;
+	}
+
+	private static void checkNotAllFailed(BatchResult result, String what) throws SQLException {
+		if (result.getSize() > 0 && result.getFailureCount() == result.getSize()) {
+			throw new SQLException("All " + result.getSize() + " " + what + " failed: " + result.getFailures().get(0));
+		}
+	}
+
+	private void beginTransaction() throws ClassNotFoundException, SQLException {
+		if (dataBaseConfig != null) {
+			dataBaseConfig.beginTransaction();
+		}
+	}
+
+	private void commitTransaction() throws SQLException {
+		if (dataBaseConfig != null) {
+			dataBaseConfig.commitTransaction();
+		}
+	}
+
+	private void rollbackTransaction() {
+		if (dataBaseConfig != null) {
+			dataBaseConfig.rollbackTransaction();
+		}
+	}
+
+	private static int provisionalId(long seq) {
+		return -1 - (int) (seq % Integer.MAX_VALUE);
+	}
+
+	private static String encode(PendingWrite write) {
+		if (write.kind == Kind.SPOT) {
+			ParkingSpot parkingSpot = write.parkingSpot;
+			return parkingSpot.getId() + "\t" + parkingSpot.getParkingType() + "\t" + parkingSpot.isAvailable();
+		}
+		Ticket ticket = write.ticket;
+		ParkingSpot parkingSpot = ticket.getParkingSpot();
+		return ticket.getId() + "\t" + parkingSpot.getId() + "\t" + parkingSpot.getParkingType() + "\t"
+				+ URLEncoder.encode(ticket.getVehicleRegNumber(), StandardCharsets.UTF_8) + "\t"
+				+ ticket.getPriceInCents() + "\t" + ticket.getInTime().getTime() + "\t"
+				+ (ticket.getOutTime() == null ? -1 : ticket.getOutTime().getTime());
+	}
+
+	private static PendingWrite decode(String[] record) {
+		Kind kind = Kind.of(record[0]);
+		long seq = Long.parseLong(record[1]);
+		if (kind == Kind.SPOT) {
+			ParkingSpot parkingSpot = new ParkingSpot(Integer.parseInt(record[2]), ParkingType.valueOf(record[3]),
+					Boolean.parseBoolean(record[4]));
+			return new PendingWrite(kind, seq, null, parkingSpot, true);
+		}
+		Ticket ticket = new Ticket();
+		ticket.setId(Integer.parseInt(record[2]));
+		ticket.setParkingSpot(new ParkingSpot(Integer.parseInt(record[3]), ParkingType.valueOf(record[4]), false));
+		ticket.setVehicleRegNumber(URLDecoder.decode(record[5], StandardCharsets.UTF_8));
+		ticket.setPriceInCents(Long.parseLong(record[6]));
+		ticket.setInTime(new Date(Long.parseLong(record[7])));
+		long outTime = Long.parseLong(record[8]);
+		ticket.setOutTime(outTime < 0 ? null : new Date(outTime));
+		return new PendingWrite(kind, seq, ticket, null, true);
+	}
+
+	private static Ticket copy(Ticket ticket) {
+		Ticket copy = new Ticket();
+		copy.setId(ticket.getId());
+		copy.setParkingSpot(ticket.getParkingSpot() == null ? null : copy(ticket.getParkingSpot()));
+		copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+		copy.setPriceInCents(ticket.getPriceInCents());
+		copy.setInTime(ticket.getInTime() == null ? null : new Date(ticket.getInTime().getTime()));
+		copy.setOutTime(ticket.getOutTime() == null ? null : new Date(ticket.getOutTime().getTime()));
+		return copy;
+	}
+
+	private static ParkingSpot copy(ParkingSpot parkingSpot) {
+		return new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable());
+	}
+
+	private class PendingTicketDAO extends TicketDAO {
+		@Override
+		public boolean saveTicket(Ticket ticket) {
+			return enqueue(Kind.SAVE, ticket, null);
+		}
+
+		@Override
+		public boolean updateTicket(Ticket ticket) {
+			return enqueue(Kind.UPDATE, ticket, null);
+		}
+
+		@Override
+		public BatchResult saveTickets(Collection<Ticket> tickets, int batchSize) {
+			return enqueueAll(Kind.SAVE, tickets);
+		}
+
+		@Override
+		public BatchResult updateTickets(Collection<Ticket> tickets, int batchSize) {
+			return enqueueAll(Kind.UPDATE, tickets);
+		}
+
+		@Override
+		public Ticket getTicket(String vehicleRegNumber) {
+			PendingWrite pending = pendingTickets.get(vehicleRegNumber);
+			return pending != null ? copy(pending.ticket) : ticketDAO.getTicket(vehicleRegNumber);
+		}
+
+		@Override
+		public Ticket getOpenTicket(String vehicleRegNumber) {
+			PendingWrite pending = pendingTickets.get(vehicleRegNumber);
+			if (pending == null) {
+				return ticketDAO.getOpenTicket(vehicleRegNumber);
+			}
+			return pending.ticket.getOutTime() == null ? copy(pending.ticket) : null;
+		}
+
+		@Override
+		public int getTicketsCount(String vehicleRegNumber) {
+			savesVisibility.readLock().lock();
+			try {
+				return ticketDAO.getTicketsCount(vehicleRegNumber) + pendingSaves.getOrDefault(vehicleRegNumber, 0);
+			} finally {
+				savesVisibility.readLock().unlock();
+			}
+		}
+	}
+
+	private class PendingParkingSpotDAO extends ParkingSpotDAO {
+		@Override
+		public int getNextAvailableSlot(String site, ParkingType parkingType, AllocationStrategy allocationStrategy) {
+			return parkingSpotDAO.getNextAvailableSlot(site, parkingType, allocationStrategy);
+		}
+
+		@Override
+		public List<ParkingSpot> getParkingSpots() {
+			return parkingSpotDAO.getParkingSpots();
+		}
+
+		@Override
+		public List<ParkingSpot> getParkingSpots(String site) {
+			return parkingSpotDAO.getParkingSpots(site);
+		}
+
+		@Override
+		public int claimNextAvailableSlot(String site, ParkingType parkingType, AllocationStrategy allocationStrategy) {
+			return parkingSpotDAO.claimNextAvailableSlot(site, parkingType, allocationStrategy);
+		}
+
+		@Override
+		public boolean updateParking(ParkingSpot parkingSpot) {
+			return enqueue(Kind.SPOT, null, parkingSpot);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/*
+ * A fixed-size run of closed tickets held column by column, as streamed for re-pricing. The visit number is the
+ * position of the ticket among all tickets of its vehicle, 1 for its first visit, which is what getTicketsCount
+ * returned when it left.
+ */
+public class ClosedTicketBatch {
+	private static final ParkingType[] TYPES = ParkingType.values();
+
+	private final int[] ids;
+	private final long[] inTimes;
+	private final long[] outTimes;
+	private final long[] pricesInCents;
+	private final byte[] types;
+	private final int[] visits;
+	private int size;
+
+	public ClosedTicketBatch(int capacity) {
+		ids = new int[capacity];
+		inTimes = new long[capacity];
+		outTimes = new long[capacity];
+		pricesInCents = new long[capacity];
+		types = new byte[capacity];
+		visits = new int[capacity];
+	}
+
+	public void add(int id, long inTime, long outTime, long priceInCents, ParkingType parkingType, int visit) {
+		ids[size] = id;
+		inTimes[size] = inTime;
+		outTimes[size] = outTime;
+		pricesInCents[size] = priceInCents;
+		types[size] = (byte) parkingType.ordinal();
+		visits[size] = visit;
+		size++;
+	}
+
+	public boolean isFull() {
+		return size == ids.length;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getId(int row) {
+		return ids[row];
+	}
+
+	public long getInTime(int row) {
+		return inTimes[row];
+	}
+
+	public long getOutTime(int row) {
+		return outTimes[row];
+	}
+
+	public long getPriceInCents(int row) {
+		return pricesInCents[row];
+	}
+
+	public ParkingType getParkingType(int row) {
+		return TYPES[types[row]];
+	}
+
+	public int getVisit(int row) {
+		return visits[row];
+	}
+}
@@ -0,0 +1,40 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Date;
+
+public class EntryRequest {
+	private final ParkingType parkingType;
+	private final String vehicleRegNumber;
+	private final Date inTime;
+	private final String site;
+
+	public EntryRequest(ParkingType parkingType, String vehicleRegNumber, Date inTime) {
+		this(parkingType, vehicleRegNumber, inTime, null);
+	}
+
+	/* a null site stands for the site the gate process is configured for */
+	public EntryRequest(ParkingType parkingType, String vehicleRegNumber, Date inTime, String site) {
+		this.parkingType = parkingType;
+		this.vehicleRegNumber = vehicleRegNumber;
+		this.inTime = inTime;
+		this.site = site;
+	}
+
+	public ParkingType getParkingType() {
+		return parkingType;
+	}
+
+	public String getVehicleRegNumber() {
+		return vehicleRegNumber;
+	}
+
+	public Date getInTime() {
+		return inTime;
+	}
+
+	public String getSite() {
+		return site;
+	}
+}
@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.model;
+
+public class EntryResult {
+	public enum Status {
+		PARKED,
+		NO_SPOT_AVAILABLE,
+		INVALID_REQUEST,
+		FAILED
+	}
+
+	private final Status status;
+	private final Ticket ticket;
+	private final boolean recurrent;
+	private final String message;
+
+	private EntryResult(Status status, Ticket ticket, boolean recurrent, String message) {
+		this.status = status;
+		this.ticket = ticket;
+		this.recurrent = recurrent;
+		this.message = message;
+	}
+
+	public static EntryResult parked(Ticket ticket, boolean recurrent) {
+		return new EntryResult(Status.PARKED, ticket, recurrent, null);
+	}
+
+	public static EntryResult noSpotAvailable() {
+		return new EntryResult(Status.NO_SPOT_AVAILABLE, null, false, "Parking slots might be full");
+	}
+
+	public static EntryResult invalidRequest(String message) {
+		return new EntryResult(Status.INVALID_REQUEST, null, false, message);
+	}
+
+	public static EntryResult failed(String message) {
+		return new EntryResult(Status.FAILED, null, false, message);
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public boolean isParked() {
+		return status == Status.PARKED;
+	}
+
+	public Ticket getTicket() {
+		return ticket;
+	}
+
+	public ParkingSpot getParkingSpot() {
+		return ticket == null ? null : ticket.getParkingSpot();
+	}
+
+	public boolean isRecurrent() {
+		return recurrent;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+}
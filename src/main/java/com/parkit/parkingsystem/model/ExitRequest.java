@@ -0,0 +1,21 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.Date;
+
+public class ExitRequest {
+	private final String vehicleRegNumber;
+	private final Date outTime;
+
+	public ExitRequest(String vehicleRegNumber, Date outTime) {
+		this.vehicleRegNumber = vehicleRegNumber;
+		this.outTime = outTime;
+	}
+
+	public String getVehicleRegNumber() {
+		return vehicleRegNumber;
+	}
+
+	public Date getOutTime() {
+		return outTime;
+	}
+}
@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.model;
+
+public class ExitResult {
+	public enum Status {
+		PAID,
+		TICKET_NOT_FOUND,
+		INVALID_REQUEST,
+		FAILED
+	}
+
+	private final Status status;
+	private final Ticket ticket;
+	private final boolean recurrent;
+	private final String message;
+
+	private ExitResult(Status status, Ticket ticket, boolean recurrent, String message) {
+		this.status = status;
+		this.ticket = ticket;
+		this.recurrent = recurrent;
+		this.message = message;
+	}
+
+	public static ExitResult paid(Ticket ticket, boolean recurrent) {
+		return new ExitResult(Status.PAID, ticket, recurrent, null);
+	}
+
+	public static ExitResult ticketNotFound(String vehicleRegNumber) {
+		return new ExitResult(Status.TICKET_NOT_FOUND, null, false, "No ticket found for vehicle " + vehicleRegNumber);
+	}
+
+	public static ExitResult invalidRequest(String message) {
+		return new ExitResult(Status.INVALID_REQUEST, null, false, message);
+	}
+
+	public static ExitResult failed(String message) {
+		return new ExitResult(Status.FAILED, null, false, message);
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public boolean isPaid() {
+		return status == Status.PAID;
+	}
+
+	public Ticket getTicket() {
+		return ticket;
+	}
+
+	public long getPriceInCents() {
+		return ticket == null ? 0 : ticket.getPriceInCents();
+	}
+
+	public boolean isRecurrent() {
+		return recurrent;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+}
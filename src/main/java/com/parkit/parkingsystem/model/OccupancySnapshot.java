@@ -0,0 +1,76 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/* immutable spot counts per parking type; a higher version is always a later state */
+public class OccupancySnapshot {
+	private final long version;
+	private final long timestamp;
+	private final int[] total;
+	private final int[] occupied;
+
+	public OccupancySnapshot(long version, long timestamp, int[] total, int[] occupied) {
+		this.version = version;
+		this.timestamp = timestamp;
+		this.total = total.clone();
+		this.occupied = occupied.clone();
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public Date getTimestamp() {
+		return new Date(timestamp);
+	}
+
+	public int getTotal(ParkingType parkingType) {
+		return total[parkingType.ordinal()];
+	}
+
+	public int getOccupied(ParkingType parkingType) {
+		return occupied[parkingType.ordinal()];
+	}
+
+	public int getFree(ParkingType parkingType) {
+		return total[parkingType.ordinal()] - occupied[parkingType.ordinal()];
+	}
+
+	/* occupied count moved by delta and kept within [0, total], since a resync may race with gate updates */
+	public OccupancySnapshot withOccupied(ParkingType parkingType, int delta, long timestamp) {
+		int[] nextOccupied = occupied.clone();
+		int index = parkingType.ordinal();
+		nextOccupied[index] = Math.max(0, Math.min(total[index], occupied[index] + delta));
+		return new OccupancySnapshot(version + 1, timestamp, total, nextOccupied);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder("OccupancySnapshot{version=").append(version);
+		for (ParkingType parkingType : ParkingType.values()) {
+			out.append(", ").append(parkingType).append('=').append(getFree(parkingType)).append('/')
+					.append(getTotal(parkingType)).append(" free");
+		}
+		return out.append('}').toString();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		OccupancySnapshot that = (OccupancySnapshot) o;
+		return version == that.version && Arrays.equals(total, that.total) && Arrays.equals(occupied, that.occupied);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Long.hashCode(version) + Arrays.hashCode(occupied);
+	}
+}
@@ -3,14 +3,30 @@ package com.parkit.parkingsystem.model;
 import com.parkit.parkingsystem.constants.ParkingType;
 
 public class ParkingSpot {
+	public static final String DEFAULT_SITE = "MAIN";
+
 	private int number;
 	private ParkingType parkingType;
 	private boolean isAvailable;
+	private String site;
+	private int level;
+	private String zone;
+	private int entranceDistance;
 
 	public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable) {
+		this(number, parkingType, isAvailable, DEFAULT_SITE, 0, null, 0);
+	}
+
+	/* spot numbers stay unique across sites; entranceDistance is only compared between spots of the same site */
+	public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable, String site, int level, String zone,
+			int entranceDistance) {
 		this.number = number;
 		this.parkingType = parkingType;
 		this.isAvailable = isAvailable;
+		this.site = site;
+		this.level = level;
+		this.zone = zone;
+		this.entranceDistance = entranceDistance;
 	}
 
 	public int getId() {
@@ -29,6 +45,22 @@ public class ParkingSpot {
 		isAvailable = available;
 	}
 
+	public String getSite() {
+		return site;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public String getZone() {
+		return zone;
+	}
+
+	public int getEntranceDistance() {
+		return entranceDistance;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -0,0 +1,41 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Date;
+
+/* revenue and number of tickets paid for one parking type over one hour or one day */
+public class RevenueBucket {
+	private final Date start;
+	private final ParkingType parkingType;
+	private final long revenueInCents;
+	private final long tickets;
+
+	public RevenueBucket(Date start, ParkingType parkingType, long revenueInCents, long tickets) {
+		this.start = new Date(start.getTime());
+		this.parkingType = parkingType;
+		this.revenueInCents = revenueInCents;
+		this.tickets = tickets;
+	}
+
+	public Date getStart() {
+		return new Date(start.getTime());
+	}
+
+	public ParkingType getParkingType() {
+		return parkingType;
+	}
+
+	public long getRevenueInCents() {
+		return revenueInCents;
+	}
+
+	public long getTickets() {
+		return tickets;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%tF %<tR %s: %d tickets, %.2f", start, parkingType, tickets, revenueInCents / 100.0);
+	}
+}
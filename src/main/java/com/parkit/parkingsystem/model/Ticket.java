@@ -6,7 +6,7 @@ public class Ticket {
 	private int id;
 	private ParkingSpot parkingSpot;
 	private String vehicleRegNumber;
-	private double price;
+	private long priceInCents;
 	private Date inTime;
 	private Date outTime;
 
@@ -34,12 +34,12 @@ public class Ticket {
 		this.vehicleRegNumber = vehicleRegNumber;
 	}
 
-	public double getPrice() {
-		return price;
+	public long getPriceInCents() {
+		return priceInCents;
 	}
 
-	public void setPrice(double price) {
-		this.price = price;
+	public void setPriceInCents(long priceInCents) {
+		this.priceInCents = priceInCents;
 	}
 
 	public Date getInTime() {
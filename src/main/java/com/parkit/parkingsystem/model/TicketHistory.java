@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Arrays;
+
+/*
+ * Ticket rows held column by column in primitive arrays, for scans over many tickets without a Ticket object per row.
+ * Times are epoch milliseconds and an open ticket has an out time of -1.
+ */
+public class TicketHistory {
+	private static final ParkingType[] TYPES = ParkingType.values();
+
+	private long[] inTimes;
+	private long[] outTimes;
+	private long[] pricesInCents;
+	private byte[] types;
+	private int size;
+
+	public TicketHistory() {
+		this(1024);
+	}
+
+	public TicketHistory(int initialCapacity) {
+		int capacity = Math.max(16, initialCapacity);
+		inTimes = new long[capacity];
+		outTimes = new long[capacity];
+		pricesInCents = new long[capacity];
+		types = new byte[capacity];
+	}
+
+	public void add(long inTime, long outTime, long priceInCents, ParkingType parkingType) {
+		if (size == inTimes.length) {
+			int capacity = size * 2;
+			inTimes = Arrays.copyOf(inTimes, capacity);
+			outTimes = Arrays.copyOf(outTimes, capacity);
+			pricesInCents = Arrays.copyOf(pricesInCents, capacity);
+			types = Arrays.copyOf(types, capacity);
+		}
+		inTimes[size] = inTime;
+		outTimes[size] = outTime;
+		pricesInCents[size] = priceInCents;
+		types[size] = (byte) parkingType.ordinal();
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getInTime(int row) {
+		return inTimes[row];
+	}
+
+	public long getOutTime(int row) {
+		return outTimes[row];
+	}
+
+	public long getPriceInCents(int row) {
+		return pricesInCents[row];
+	}
+
+	public int getTypeOrdinal(int row) {
+		return types[row];
+	}
+
+	public ParkingType getParkingType(int row) {
+		return TYPES[types[row]];
+	}
+}
@@ -0,0 +1,154 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Date;
+
+/* outcome of one TicketAnalytics run; hours, days and occupancy slots count from the start of the period */
+public class AnalyticsReport {
+	private static final int TYPES = ParkingType.values().length;
+
+	private final Date from;
+	private final int hours;
+	private final long[] revenueInCents;
+	private final int dwellBucketMinutes;
+	private final int dwellBuckets;
+	private final long[] dwellCounts;
+	private final int occupancyResolutionMinutes;
+	private final int occupancySlots;
+	private final int[] occupancy;
+	private final long tickets;
+
+	AnalyticsReport(Date from, int hours, long[] revenueInCents, int dwellBucketMinutes, int dwellBuckets,
+			long[] dwellCounts, int occupancyResolutionMinutes, int occupancySlots, int[] occupancy, long tickets) {
+		this.from = new Date(from.getTime());
+		this.hours = hours;
+		this.revenueInCents = revenueInCents;
+		this.dwellBucketMinutes = dwellBucketMinutes;
+		this.dwellBuckets = dwellBuckets;
+		this.dwellCounts = dwellCounts;
+		this.occupancyResolutionMinutes = occupancyResolutionMinutes;
+		this.occupancySlots = occupancySlots;
+		this.occupancy = occupancy;
+		this.tickets = tickets;
+	}
+
+	public Date getFrom() {
+		return new Date(from.getTime());
+	}
+
+	public int getHours() {
+		return hours;
+	}
+
+	public int getDays() {
+		return (hours + 23) / 24;
+	}
+
+	/* tickets overlapping the period, whether or not they were paid in it */
+	public long getTicketCount() {
+		return tickets;
+	}
+
+	public long getRevenueInCents(ParkingType parkingType, int hour) {
+		return revenueInCents[parkingType.ordinal() * hours + hour];
+	}
+
+	public long getDailyRevenueInCents(ParkingType parkingType, int day) {
+		long revenue = 0;
+		for (int hour = day * 24; hour < Math.min(hours, (day + 1) * 24); hour++) {
+			revenue += getRevenueInCents(parkingType, hour);
+		}
+		return revenue;
+	}
+
+	public long getTotalRevenueInCents(ParkingType parkingType) {
+		long revenue = 0;
+		for (int hour = 0; hour < hours; hour++) {
+			revenue += getRevenueInCents(parkingType, hour);
+		}
+		return revenue;
+	}
+
+	public int getDwellBucketMinutes() {
+		return dwellBucketMinutes;
+	}
+
+	/* the last bucket holds every stay longer than the ones before it */
+	public int getDwellBuckets() {
+		return dwellBuckets;
+	}
+
+	public long getDwellCount(ParkingType parkingType, int bucket) {
+		return dwellCounts[parkingType.ordinal() * dwellBuckets + bucket];
+	}
+
+	/* upper bound in minutes of the bucket holding the given percentile of stays, or -1 when there were none */
+	public int getDwellPercentileMinutes(ParkingType parkingType, double percentile) {
+		long count = 0;
+		for (int bucket = 0; bucket < dwellBuckets; bucket++) {
+			count += getDwellCount(parkingType, bucket);
+		}
+		if (count == 0) {
+			return -1;
+		}
+		long rank = (long) Math.ceil(percentile / 100 * count);
+		long seen = 0;
+		for (int bucket = 0; bucket < dwellBuckets; bucket++) {
+			seen += getDwellCount(parkingType, bucket);
+			if (seen >= Math.max(1, rank)) {
+				return (bucket + 1) * dwellBucketMinutes;
+			}
+		}
+		return dwellBuckets * dwellBucketMinutes;
+	}
+
+	public int getOccupancyResolutionMinutes() {
+		return occupancyResolutionMinutes;
+	}
+
+	public int getOccupancySlots() {
+		return occupancySlots;
+	}
+
+	public int getOccupancy(ParkingType parkingType, int slot) {
+		return occupancy[parkingType.ordinal() * occupancySlots + slot];
+	}
+
+	public int getPeakOccupancy(ParkingType parkingType) {
+		int peak = 0;
+		for (int slot = 0; slot < occupancySlots; slot++) {
+			peak = Math.max(peak, getOccupancy(parkingType, slot));
+		}
+		return peak;
+	}
+
+	/* peak of all types together, which need not fall in the slot where any one type peaked */
+	public int getPeakOccupancy() {
+		int peak = 0;
+		for (int slot = 0; slot < occupancySlots; slot++) {
+			int present = 0;
+			for (int type = 0; type < TYPES; type++) {
+				present += occupancy[type * occupancySlots + slot];
+			}
+			peak = Math.max(peak, present);
+		}
+		return peak;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder(String.format("Ticket analytics from %tF %<tR over %d hours: %d tickets,"
+				+ " peak occupancy %d", from, hours, tickets, getPeakOccupancy()));
+		for (ParkingType parkingType : ParkingType.values()) {
+			report.append(String.format("%n  %-4s revenue %.2f, peak occupancy %d, median stay <= %d min, p90 <= %d min",
+					parkingType, getTotalRevenueInCents(parkingType) / 100.0, getPeakOccupancy(parkingType),
+					getDwellPercentileMinutes(parkingType, 50), getDwellPercentileMinutes(parkingType, 90)));
+			for (int day = 0; day < getDays(); day++) {
+				report.append(String.format("%n    day %d: %.2f", day + 1,
+						getDailyRevenueInCents(parkingType, day) / 100.0));
+			}
+		}
+		return report.toString();
+	}
+}
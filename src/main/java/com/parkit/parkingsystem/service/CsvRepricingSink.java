@@ -0,0 +1,46 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/* one line per re-priced ticket, in the order batches finish rather than in ticket order */
+public class CsvRepricingSink implements RepricingSink {
+	private final BufferedWriter writer;
+
+	public CsvRepricingSink(Path file) throws IOException {
+		writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+		writer.write("TICKET_ID,TYPE,IN_TIME,OUT_TIME,OLD_PRICE_IN_CENTS,NEW_PRICE_IN_CENTS,DIFFERENCE_IN_CENTS");
+		writer.newLine();
+	}
+
+	@Override
+	public void write(ClosedTicketBatch batch, long[] newPricesInCents) throws IOException {
+		StringBuilder lines = new StringBuilder();
+		for (int row = 0; row < batch.size(); row++) {
+			long oldPrice = batch.getPriceInCents(row);
+			if (newPricesInCents[row] != oldPrice) {
+				lines.append(batch.getId(row)).append(',').append(batch.getParkingType(row)).append(',')
+						.append(Instant.ofEpochMilli(batch.getInTime(row))).append(',')
+						.append(Instant.ofEpochMilli(batch.getOutTime(row))).append(',')
+						.append(oldPrice).append(',').append(newPricesInCents[row]).append(',')
+						.append(newPricesInCents[row] - oldPrice).append(System.lineSeparator());
+			}
+		}
+		synchronized (writer) {
+			writer.write(lines.toString());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (writer) {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.LatencyRecorder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.PrintStream;
+import java.util.Date;
+
+/*
+ * Text front end of one gate: prompts for the vehicle details, hands them to ParkingService as a request and
+ * prints the result.
+ */
+public class GateConsole {
+	private static final Logger logger = LogManager.getLogger("GateConsole");
+
+	private final ParkingService parkingService;
+	private final InputReaderUtil inputReaderUtil;
+	private final PrintStream out;
+	private final LatencyRecorder entryLatency;
+	private final LatencyRecorder exitLatency;
+
+	public GateConsole(ParkingService parkingService, InputReaderUtil inputReaderUtil, PrintStream out) {
+		this(parkingService, inputReaderUtil, out, null, null);
+	}
+
+	public GateConsole(ParkingService parkingService, InputReaderUtil inputReaderUtil, PrintStream out,
+			LatencyRecorder entryLatency, LatencyRecorder exitLatency) {
+		this.parkingService = parkingService;
+		this.inputReaderUtil = inputReaderUtil;
+		this.out = out;
+		this.entryLatency = entryLatency;
+		this.exitLatency = exitLatency;
+	}
+
+	public void processIncomingVehicle(Date inTime) {
+		EntryRequest request;
+		try {
+			request = new EntryRequest(readVehicleType(), readVehicleRegNumber(), inTime);
+		} catch (Exception e) {
+			logger.error("Unable to process incoming vehicle", e);
+			return;
+		}
+
+		long start = System.nanoTime();
+		EntryResult result = parkingService.processIncomingVehicle(request);
+		if (entryLatency != null) {
+			entryLatency.record(System.nanoTime() - start);
+		}
+		if (result.isParked()) {
+			if (result.isRecurrent()) {
+				out.println("Happy to see you again! As a recurring user, you will get a "
+						+ parkingService.getRecurrentDiscountPercent() + "% discount.");
+			}
+			out.println("Generated Ticket and saved in DB");
+			out.println("Please park your vehicle in spot number:" + result.getParkingSpot().getId());
+			out.println("Recorded in-time for vehicle number:" + request.getVehicleRegNumber() + " is:" + inTime);
+		} else {
+			out.println("Unable to allocate a parking spot. " + result.getMessage());
+		}
+	}
+
+	public void processExitingVehicle(Date outTime) {
+		String vehicleRegNumber;
+		try {
+			vehicleRegNumber = readVehicleRegNumber();
+		} catch (Exception e) {
+			logger.error("Unable to process exiting vehicle", e);
+			return;
+		}
+
+		long start = System.nanoTime();
+		ExitResult result = parkingService.processExitingVehicle(new ExitRequest(vehicleRegNumber, outTime));
+		if (exitLatency != null) {
+			exitLatency.record(System.nanoTime() - start);
+		}
+		switch (result.getStatus()) {
+			case PAID: {
+				Ticket ticket = result.getTicket();
+				out.println("Please pay the parking fare:" + formatPrice(result.getPriceInCents()));
+				out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
+				break;
+			}
+			case TICKET_NOT_FOUND: {
+				out.println(result.getMessage());
+				break;
+			}
+			default:
+				out.println("Unable to update ticket information. Error occurred");
+		}
+	}
+
+	ParkingType readVehicleType() {
+		out.println("Please select vehicle type from menu");
+		out.println("1 CAR");
+		out.println("2 BIKE");
+		int input = inputReaderUtil.readSelection();
+		switch (input) {
+			case 1: {
+				return ParkingType.CAR;
+			}
+			case 2: {
+				return ParkingType.BIKE;
+			}
+			default: {
+				out.println("Incorrect input provided");
+				throw new IllegalArgumentException("Entered input is invalid");
+			}
+		}
+	}
+
+	private String readVehicleRegNumber() throws Exception {
+		out.println("Please type the vehicle registration number and press enter key");
+		return inputReaderUtil.readVehicleRegistrationNumber();
+	}
+
+	private static String formatPrice(long priceInCents) {
+		return String.format("%d.%02d", priceInCents / 100, priceInCents % 100);
+	}
+}
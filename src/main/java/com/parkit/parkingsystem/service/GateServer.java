@@ -0,0 +1,223 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.LatencyRecorder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Serves many gate terminals from one JVM. Each gate connects over TCP and gets the same line based menu as the
+ * console; all gates share one ParkingService, with prompts read from and answers written to their own connection.
+ * Latency covers the ParkingService call only, not the time a gate takes to answer the prompts.
+ */
+public class GateServer {
+	private static final Logger logger = LogManager.getLogger("GateServer");
+
+	private final ParkingService parkingService;
+	private final InetAddress bindAddress;
+	private final int port;
+	private final LatencyRecorder entryLatency = new LatencyRecorder();
+	private final LatencyRecorder exitLatency = new LatencyRecorder();
+	private final Set<Socket> gates = ConcurrentHashMap.newKeySet();
+
+	private ServerSocket serverSocket;
+	private ExecutorService gateExecutor;
+	private ScheduledExecutorService reporter;
+	private Thread acceptor;
+	private volatile boolean closed;
+
+	public GateServer(ParkingService parkingService, InetAddress bindAddress, int port) {
+		this.parkingService = parkingService;
+		this.bindAddress = bindAddress;
+		this.port = port;
+	}
+
+	public static void loadServer() {
+		ParkingComponents parkingComponents = new ParkingComponents();
+		DataBaseConfig dataBaseConfig = parkingComponents.dataBaseConfig;
+		GateServer gateServer;
+		try {
+			gateServer = new GateServer(parkingComponents.newParkingService(),
+					InetAddress.getByName(dataBaseConfig.getProperty("server.bindAddress", "127.0.0.1")),
+					dataBaseConfig.getIntProperty("server.port", 9090));
+			gateServer.start(dataBaseConfig.getLongProperty("server.latencyReportIntervalMillis", 60000));
+		} catch (IOException e) {
+			logger.error("Unable to start gate server", e);
+			parkingComponents.close();
+			return;
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			gateServer.close();
+			parkingComponents.close();
+		}, "gate-server-shutdown"));
+	}
+
+	public synchronized void start(long latencyReportIntervalMillis) throws IOException {
+		serverSocket = new ServerSocket(port, 512, bindAddress);
+		gateExecutor = newGateExecutor();
+		acceptor = new Thread(this::acceptGates, "gate-server-acceptor");
+		acceptor.start();
+		if (latencyReportIntervalMillis > 0) {
+			reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "gate-server-latency-report");
+				thread.setDaemon(true);
+				return thread;
+			});
+			reporter.scheduleAtFixedRate(this::reportLatency, latencyReportIntervalMillis, latencyReportIntervalMillis,
+					TimeUnit.MILLISECONDS);
+		}
+		logger.info("Gate server listening on " + serverSocket.getLocalSocketAddress());
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public int getConnectedGates() {
+		return gates.size();
+	}
+
+	public LatencyRecorder getEntryLatency() {
+		return entryLatency;
+	}
+
+	public LatencyRecorder getExitLatency() {
+		return exitLatency;
+	}
+
+	public void reportLatency() {
+		logger.info("Gates connected: " + gates.size());
+		logger.info("Entry latency: " + entryLatency.summary());
+		logger.info("Exit latency: " + exitLatency.summary());
+	}
+
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			logger.error("Error closing gate server socket", e);
+		}
+		for (Socket gate : gates) {
+			closeQuietly(gate);
+		}
+		gateExecutor.shutdown();
+		try {
+			if (!gateExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+				logger.error("Timed out waiting for gate sessions to finish");
+			}
+			acceptor.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (reporter != null) {
+			reporter.shutdownNow();
+		}
+		reportLatency();
+	}
+
+	private void acceptGates() {
+		while (!closed) {
+			try {
+				Socket gate = serverSocket.accept();
+				gates.add(gate);
+				gateExecutor.execute(() -> serveGate(gate));
+			} catch (SocketException e) {
+				if (!closed) {
+					logger.error("Gate server socket failed", e);
+				}
+				return;
+			} catch (IOException e) {
+				logger.error("Error accepting gate connection", e);
+			}
+		}
+	}
+
+	private void serveGate(Socket gate) {
+		try (Socket socket = gate;
+				PrintStream out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8.name())) {
+			InputReaderUtil inputReaderUtil = new InputReaderUtil(socket.getInputStream(), out);
+			GateConsole gateConsole = new GateConsole(parkingService, inputReaderUtil, out, entryLatency,
+					exitLatency);
+			out.println("Welcome to Parking System!");
+			boolean connected = true;
+			while (connected && !closed) {
+				loadMenu(out);
+				if (!inputReaderUtil.hasInput()) {
+					break;
+				}
+				int option = inputReaderUtil.readSelection();
+				switch (option) {
+					case 1: {
+						gateConsole.processIncomingVehicle(new Date());
+						break;
+					}
+					case 2: {
+						gateConsole.processExitingVehicle(new Date());
+						break;
+					}
+					case 3: {
+						out.println("Disconnecting gate");
+						connected = false;
+						break;
+					}
+					default:
+						out.println("Unsupported option. Please enter a number corresponding to the provided menu");
+				}
+			}
+		} catch (IOException e) {
+			if (!closed) {
+				logger.error("Gate connection failed", e);
+			}
+		} finally {
+			gates.remove(gate);
+		}
+	}
+
+	private static void loadMenu(PrintStream out) {
+		out.println("Please select an option. Simply enter the number to choose an action");
+		out.println("1 New Vehicle Entering - Allocate Parking Space");
+		out.println("2 Vehicle Exiting - Generate Ticket Price");
+		out.println("3 Disconnect Gate");
+	}
+
+	private static ExecutorService newGateExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			logger.info("Virtual threads are not available on this JVM, serving each gate on a platform thread");
+			return Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "gate-session");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			logger.error("Error closing gate connection", e);
+		}
+	}
+}
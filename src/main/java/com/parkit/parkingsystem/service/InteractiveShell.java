@@ -1,7 +1,5 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,24 +16,24 @@ public class InteractiveShell {
 
 		boolean continueApp = true;
 		InputReaderUtil inputReaderUtil = new InputReaderUtil();
-		ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
-		TicketDAO ticketDAO = new TicketDAO();
-		ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+		ParkingComponents parkingComponents = new ParkingComponents();
+		GateConsole gateConsole = new GateConsole(parkingComponents.newParkingService(), inputReaderUtil, System.out);
 
 		while (continueApp) {
 			loadMenu();
 			int option = inputReaderUtil.readSelection();
 			switch (option) {
 				case 1: {
-					parkingService.processIncomingVehicle(new Date());
+					gateConsole.processIncomingVehicle(new Date());
 					break;
 				}
 				case 2: {
-					parkingService.processExitingVehicle(new Date());
+					gateConsole.processExitingVehicle(new Date());
 					break;
 				}
 				case 3: {
 					System.out.println("Exiting from the system!");
+					parkingComponents.close();
 					continueApp = false;
 					break;
 				}
@@ -0,0 +1,265 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JournalStore;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.util.LatencyRecorder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/*
+ * Replays a day of gate traffic against a ParkingService from many threads. The schedule is generated up front from
+ * the LoadProfile with a fixed seed, and each vehicle is always handled by the same thread so its entry comes before
+ * its exit. Threads advance through simulated time together, one slice at a time, so occupancy builds up the way it
+ * would at a real site. Every spot handed out is checked against the vehicles still parked on it.
+ */
+public class LoadGenerator {
+	private static final Logger logger = LogManager.getLogger("LoadGenerator");
+
+	private final ParkingService parkingService;
+	private final LoadProfile profile;
+	private final long startMillis;
+	private final LatencyRecorder entryLatency = new LatencyRecorder();
+	private final LatencyRecorder exitLatency = new LatencyRecorder();
+	private final Map<EntryResult.Status, LongAdder> entries = new EnumMap<>(EntryResult.Status.class);
+	private final Map<ExitResult.Status, LongAdder> exits = new EnumMap<>(ExitResult.Status.class);
+	private final Map<Integer, String> spotHolders = new ConcurrentHashMap<>();
+	private final LongAdder doubleAllocations = new LongAdder();
+	private final AtomicInteger occupied = new AtomicInteger();
+	private final AtomicInteger peakOccupied = new AtomicInteger();
+
+	public LoadGenerator(ParkingService parkingService, LoadProfile profile, Date start) {
+		this.parkingService = parkingService;
+		this.profile = profile;
+		this.startMillis = start.getTime();
+		for (EntryResult.Status status : EntryResult.Status.values()) {
+			entries.put(status, new LongAdder());
+		}
+		for (ExitResult.Status status : ExitResult.Status.values()) {
+			exits.put(status, new LongAdder());
+		}
+	}
+
+	/*
+	 * Runs the load.* profile against an embedded journal store in a temporary directory, so it needs no database
+	 * server, or against the app's configured storage when load.backend = configured.
+	 */
+	public static void loadGenerator() {
+		DataBaseConfig dataBaseConfig = new DataBaseConfig();
+		LoadProfile profile = LoadProfile.fromConfig(dataBaseConfig);
+		Date start = Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant());
+		try {
+			LoadReport report;
+			if ("configured".equals(dataBaseConfig.getProperty("load.backend", "embedded"))) {
+				ParkingComponents parkingComponents = new ParkingComponents();
+				try {
+					report = new LoadGenerator(parkingComponents.newParkingService(), profile, start).run();
+				} finally {
+					parkingComponents.close();
+				}
+			} else {
+				report = runEmbedded(profile, start);
+			}
+			System.out.println(report);
+		} catch (IOException e) {
+			logger.error("Unable to set up the embedded store for the load run", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("Load run interrupted");
+		}
+	}
+
+	private static LoadReport runEmbedded(LoadProfile profile, Date start) throws IOException, InterruptedException {
+		Path directory = Files.createTempDirectory("parking-load");
+		JournalStore journalStore = new JournalStore(directory, 64L << 20, false);
+		try {
+			journalStore.open();
+			List<ParkingSpot> parkingSpots = new ArrayList<>();
+			for (int number = 1; number <= profile.getCarSpots() + profile.getBikeSpots(); number++) {
+				parkingSpots.add(new ParkingSpot(number,
+						number <= profile.getCarSpots() ? ParkingType.CAR : ParkingType.BIKE, true));
+			}
+			journalStore.seedParkingSpots(parkingSpots);
+			ParkingService parkingService = new ParkingService(journalStore.getParkingSpotDAO(),
+					journalStore.getTicketDAO(), null, null, new FareCalculatorService());
+			return new LoadGenerator(parkingService, profile, start).run();
+		} finally {
+			journalStore.close();
+			try (Stream<Path> files = Files.walk(directory)) {
+				files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+			}
+		}
+	}
+
+	public LoadReport run() throws InterruptedException {
+		List<List<Visit>> schedules = schedule();
+		int slices = (int) Math.ceil(profile.getSimulatedHours() * 60.0 / profile.getSliceMinutes());
+		Phaser phaser = new Phaser(schedules.size());
+		List<Thread> gates = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int gate = 0; gate < schedules.size(); gate++) {
+			List<Visit> schedule = schedules.get(gate);
+			Thread thread = new Thread(() -> drive(schedule, slices, phaser), "load-gate-" + gate);
+			gates.add(thread);
+			thread.start();
+		}
+		for (Thread gate : gates) {
+			gate.join();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		Map<EntryResult.Status, Long> entryCounts = new EnumMap<>(EntryResult.Status.class);
+		entries.forEach((status, count) -> entryCounts.put(status, count.sum()));
+		Map<ExitResult.Status, Long> exitCounts = new EnumMap<>(ExitResult.Status.class);
+		exits.forEach((status, count) -> exitCounts.put(status, count.sum()));
+		return new LoadReport(profile, elapsed, entryCounts, exitCounts, entryLatency, exitLatency,
+				doubleAllocations.sum(), peakOccupied.get());
+	}
+
+	/* non-homogeneous Poisson arrivals by thinning a process at the peak rate */
+	private List<List<Visit>> schedule() {
+		Random random = new Random(profile.getSeed());
+		List<List<Visit>> schedules = new ArrayList<>();
+		for (int gate = 0; gate < profile.getThreads(); gate++) {
+			schedules.add(new ArrayList<>());
+		}
+		List<String> visitors = new ArrayList<>();
+		Map<String, ParkingType> vehicleTypes = new HashMap<>();
+		Map<String, Double> leavesAt = new HashMap<>();
+		double peakRate = profile.peakArrivalRate();
+		double hour = 0;
+		while (true) {
+			hour += exponential(random, 1 / peakRate);
+			if (hour >= profile.getSimulatedHours()) {
+				break;
+			}
+			if (random.nextDouble() * peakRate > profile.arrivalRateAt(hour % 24)) {
+				continue;
+			}
+			String vehicleRegNumber = null;
+			if (!visitors.isEmpty() && random.nextDouble() < profile.getRepeatVisitorShare()) {
+				String candidate = visitors.get(random.nextInt(visitors.size()));
+				if (leavesAt.get(candidate) <= hour) {
+					vehicleRegNumber = candidate;
+				}
+			}
+			if (vehicleRegNumber == null) {
+				vehicleRegNumber = String.format("LG%06d", visitors.size());
+				visitors.add(vehicleRegNumber);
+				vehicleTypes.put(vehicleRegNumber,
+						random.nextDouble() < profile.getBikeShare() ? ParkingType.BIKE : ParkingType.CAR);
+			}
+			double leaves = hour + exponential(random, profile.getMeanStayMinutes() / 60);
+			leavesAt.put(vehicleRegNumber, leaves);
+			List<Visit> schedule = schedules.get(Math.floorMod(vehicleRegNumber.hashCode(), schedules.size()));
+			ParkingType parkingType = vehicleTypes.get(vehicleRegNumber);
+			schedule.add(new Visit(hour, vehicleRegNumber, parkingType, true));
+			if (leaves < profile.getSimulatedHours()) {
+				schedule.add(new Visit(leaves, vehicleRegNumber, parkingType, false));
+			}
+		}
+		for (List<Visit> schedule : schedules) {
+			schedule.sort(Comparator.comparingDouble((Visit visit) -> visit.hour).thenComparing(visit -> visit.arrival));
+		}
+		return schedules;
+	}
+
+	private void drive(List<Visit> schedule, int slices, Phaser phaser) {
+		Map<String, Integer> parked = new HashMap<>();
+		int next = 0;
+		try {
+			for (int slice = 0; slice < slices; slice++) {
+				double sliceEnd = (slice + 1) * profile.getSliceMinutes() / 60.0;
+				while (next < schedule.size() && schedule.get(next).hour < sliceEnd) {
+					Visit visit = schedule.get(next++);
+					Date time = new Date(startMillis + (long) (visit.hour * 3_600_000));
+					if (visit.arrival) {
+						enter(visit, time, parked);
+					} else {
+						leave(visit, time, parked);
+					}
+				}
+				phaser.arriveAndAwaitAdvance();
+			}
+		} finally {
+			phaser.arriveAndDeregister();
+		}
+	}
+
+	private void enter(Visit visit, Date time, Map<String, Integer> parked) {
+		long start = System.nanoTime();
+		EntryResult result = parkingService.processIncomingVehicle(
+				new EntryRequest(visit.parkingType, visit.vehicleRegNumber, time));
+		entryLatency.record(System.nanoTime() - start);
+		entries.get(result.getStatus()).increment();
+		if (!result.isParked()) {
+			return;
+		}
+		int parkingNumber = result.getParkingSpot().getId();
+		String holder = spotHolders.putIfAbsent(parkingNumber, visit.vehicleRegNumber);
+		if (holder != null) {
+			doubleAllocations.increment();
+			logger.error("Parking spot " + parkingNumber + " given to " + visit.vehicleRegNumber + " while "
+					+ holder + " is still parked on it");
+		}
+		parked.put(visit.vehicleRegNumber, parkingNumber);
+		peakOccupied.accumulateAndGet(occupied.incrementAndGet(), Math::max);
+	}
+
+	private void leave(Visit visit, Date time, Map<String, Integer> parked) {
+		Integer parkingNumber = parked.remove(visit.vehicleRegNumber);
+		if (parkingNumber == null) {
+			/* the vehicle was turned away on entry */
+			return;
+		}
+		/* released before the call, as another gate may be given the spot as soon as the exit commits */
+		spotHolders.remove(parkingNumber, visit.vehicleRegNumber);
+		occupied.decrementAndGet();
+		long start = System.nanoTime();
+		ExitResult result = parkingService.processExitingVehicle(new ExitRequest(visit.vehicleRegNumber, time));
+		exitLatency.record(System.nanoTime() - start);
+		exits.get(result.getStatus()).increment();
+	}
+
+	private static double exponential(Random random, double mean) {
+		return -Math.log(1 - random.nextDouble()) * mean;
+	}
+
+	private static final class Visit {
+		private final double hour;
+		private final String vehicleRegNumber;
+		private final ParkingType parkingType;
+		private final boolean arrival;
+
+		private Visit(double hour, String vehicleRegNumber, ParkingType parkingType, boolean arrival) {
+			this.hour = hour;
+			this.vehicleRegNumber = vehicleRegNumber;
+			this.parkingType = parkingType;
+			this.arrival = arrival;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+
+import java.util.Arrays;
+
+/*
+ * Traffic replayed by the LoadGenerator: Poisson arrivals at arrivalsPerHour, raised around each rush hour by up to
+ * rushMultiplier, with exponentially distributed stays. All times are simulated, the run itself goes as fast as the
+ * gates allow.
+ */
+public class LoadProfile {
+	private int threads = 8;
+	private int simulatedHours = 24;
+	private double arrivalsPerHour = 120;
+	private int[] rushHours = {8, 17};
+	private double rushMultiplier = 3;
+	private double rushWidthHours = 1;
+	private double meanStayMinutes = 90;
+	private double bikeShare = 0.2;
+	private double repeatVisitorShare = 0.3;
+	private int carSpots = 200;
+	private int bikeSpots = 50;
+	private int sliceMinutes = 1;
+	private long seed = 42;
+
+	public static LoadProfile fromConfig(DataBaseConfig dataBaseConfig) {
+		LoadProfile profile = new LoadProfile();
+		profile.threads = dataBaseConfig.getIntProperty("load.threads", profile.threads);
+		profile.simulatedHours = dataBaseConfig.getIntProperty("load.simulatedHours", profile.simulatedHours);
+		profile.arrivalsPerHour = parseDouble(dataBaseConfig, "load.arrivalsPerHour", profile.arrivalsPerHour);
+		String rushHours = dataBaseConfig.getProperty("load.rushHours", "8,17");
+		profile.rushHours = rushHours.isEmpty() ? new int[0]
+				: Arrays.stream(rushHours.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+		profile.rushMultiplier = parseDouble(dataBaseConfig, "load.rushMultiplier", profile.rushMultiplier);
+		profile.rushWidthHours = parseDouble(dataBaseConfig, "load.rushWidthHours", profile.rushWidthHours);
+		profile.meanStayMinutes = parseDouble(dataBaseConfig, "load.meanStayMinutes", profile.meanStayMinutes);
+		profile.bikeShare = parseDouble(dataBaseConfig, "load.bikeShare", profile.bikeShare);
+		profile.repeatVisitorShare = parseDouble(dataBaseConfig, "load.repeatVisitorShare", profile.repeatVisitorShare);
+		profile.carSpots = dataBaseConfig.getIntProperty("load.spots.CAR", profile.carSpots);
+		profile.bikeSpots = dataBaseConfig.getIntProperty("load.spots.BIKE", profile.bikeSpots);
+		profile.sliceMinutes = dataBaseConfig.getIntProperty("load.sliceMinutes", profile.sliceMinutes);
+		profile.seed = dataBaseConfig.getLongProperty("load.seed", profile.seed);
+		return profile;
+	}
+
+	private static double parseDouble(DataBaseConfig dataBaseConfig, String key, double defaultValue) {
+		return Double.parseDouble(dataBaseConfig.getProperty(key, String.valueOf(defaultValue)));
+	}
+
+	/* arrivals per hour at the given simulated hour of day, with a gaussian bump around each rush hour */
+	public double arrivalRateAt(double hourOfDay) {
+		double rate = arrivalsPerHour;
+		for (int rushHour : rushHours) {
+			double distance = Math.abs(hourOfDay - rushHour);
+			distance = Math.min(distance, 24 - distance);
+			rate += arrivalsPerHour * (rushMultiplier - 1)
+					* Math.exp(-distance * distance / (2 * rushWidthHours * rushWidthHours));
+		}
+		return rate;
+	}
+
+	public double peakArrivalRate() {
+		return arrivalsPerHour * (1 + Math.max(0, rushMultiplier - 1) * Math.max(1, rushHours.length));
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public int getSimulatedHours() {
+		return simulatedHours;
+	}
+
+	public void setSimulatedHours(int simulatedHours) {
+		this.simulatedHours = simulatedHours;
+	}
+
+	public double getArrivalsPerHour() {
+		return arrivalsPerHour;
+	}
+
+	public void setArrivalsPerHour(double arrivalsPerHour) {
+		this.arrivalsPerHour = arrivalsPerHour;
+	}
+
+	public int[] getRushHours() {
+		return rushHours.clone();
+	}
+
+	public void setRushHours(int... rushHours) {
+		this.rushHours = rushHours.clone();
+	}
+
+	public double getRushMultiplier() {
+		return rushMultiplier;
+	}
+
+	public void setRushMultiplier(double rushMultiplier) {
+		this.rushMultiplier = rushMultiplier;
+	}
+
+	public double getRushWidthHours() {
+		return rushWidthHours;
+	}
+
+	public void setRushWidthHours(double rushWidthHours) {
+		this.rushWidthHours = rushWidthHours;
+	}
+
+	public double getMeanStayMinutes() {
+		return meanStayMinutes;
+	}
+
+	public void setMeanStayMinutes(double meanStayMinutes) {
+		this.meanStayMinutes = meanStayMinutes;
+	}
+
+	public double getBikeShare() {
+		return bikeShare;
+	}
+
+	public void setBikeShare(double bikeShare) {
+		this.bikeShare = bikeShare;
+	}
+
+	public double getRepeatVisitorShare() {
+		return repeatVisitorShare;
+	}
+
+	public void setRepeatVisitorShare(double repeatVisitorShare) {
+		this.repeatVisitorShare = repeatVisitorShare;
+	}
+
+	public int getCarSpots() {
+		return carSpots;
+	}
+
+	public void setCarSpots(int carSpots) {
+		this.carSpots = carSpots;
+	}
+
+	public int getBikeSpots() {
+		return bikeSpots;
+	}
+
+	public void setBikeSpots(int bikeSpots) {
+		this.bikeSpots = bikeSpots;
+	}
+
+	public int getSliceMinutes() {
+		return sliceMinutes;
+	}
+
+	public void setSliceMinutes(int sliceMinutes) {
+		this.sliceMinutes = sliceMinutes;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+}
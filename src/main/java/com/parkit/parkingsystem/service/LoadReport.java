@@ -0,0 +1,79 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.util.LatencyRecorder;
+
+import java.util.Map;
+
+/* outcome of one LoadGenerator run */
+public class LoadReport {
+	private final LoadProfile profile;
+	private final long elapsedNanos;
+	private final Map<EntryResult.Status, Long> entries;
+	private final Map<ExitResult.Status, Long> exits;
+	private final LatencyRecorder entryLatency;
+	private final LatencyRecorder exitLatency;
+	private final long doubleAllocations;
+	private final int peakOccupied;
+
+	LoadReport(LoadProfile profile, long elapsedNanos, Map<EntryResult.Status, Long> entries,
+			Map<ExitResult.Status, Long> exits, LatencyRecorder entryLatency, LatencyRecorder exitLatency,
+			long doubleAllocations, int peakOccupied) {
+		this.profile = profile;
+		this.elapsedNanos = elapsedNanos;
+		this.entries = entries;
+		this.exits = exits;
+		this.entryLatency = entryLatency;
+		this.exitLatency = exitLatency;
+		this.doubleAllocations = doubleAllocations;
+		this.peakOccupied = peakOccupied;
+	}
+
+	public long getEntries(EntryResult.Status status) {
+		return entries.getOrDefault(status, 0L);
+	}
+
+	public long getExits(ExitResult.Status status) {
+		return exits.getOrDefault(status, 0L);
+	}
+
+	public long getOperations() {
+		return entryLatency.getCount() + exitLatency.getCount();
+	}
+
+	public double getThroughputPerSecond() {
+		return elapsedNanos == 0 ? 0 : getOperations() * 1e9 / elapsedNanos;
+	}
+
+	public LatencyRecorder getEntryLatency() {
+		return entryLatency;
+	}
+
+	public LatencyRecorder getExitLatency() {
+		return exitLatency;
+	}
+
+	/* a spot handed to a vehicle while the load generator still saw another vehicle parked on it */
+	public long getDoubleAllocations() {
+		return doubleAllocations;
+	}
+
+	public int getPeakOccupied() {
+		return peakOccupied;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Load run: %d simulated hours, %d gate threads, %d car and %d bike spots%n"
+						+ "  %d operations in %.2fs: %.0f ops/s%n"
+						+ "  entries %s%n"
+						+ "  exits   %s%n"
+						+ "  entry latency %s%n"
+						+ "  exit latency  %s%n"
+						+ "  peak occupancy %d, double allocations %d",
+				profile.getSimulatedHours(), profile.getThreads(), profile.getCarSpots(), profile.getBikeSpots(),
+				getOperations(), elapsedNanos / 1e9, getThroughputPerSecond(), entries, exits, entryLatency.summary(),
+				exitLatency.summary(), peakOccupied, doubleAllocations);
+	}
+}
@@ -0,0 +1,256 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.OccupancySnapshot;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/*
+ * Live free/occupied counts per parking type, moved by the gates on every allocation and release, and pushed to
+ * subscribers such as entrance display boards. Delivery is coalescing: a subscriber that is slow or has no demand
+ * outstanding only ever holds the latest snapshot, so a gate never waits on a board and a board never replays a
+ * backlog of intermediate counts.
+ */
+public class OccupancyService implements Flow.Publisher<OccupancySnapshot> {
+	private static final Logger logger = LogManager.getLogger("OccupancyService");
+
+	private final Executor executor;
+	private final AtomicReference<OccupancySnapshot> current;
+	private final Set<OccupancySubscription> subscriptions = ConcurrentHashMap.newKeySet();
+	private volatile boolean closed;
+	private ScheduledExecutorService resync;
+
+	public OccupancyService() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public OccupancyService(Executor executor) {
+		this.executor = executor;
+		int types = ParkingType.values().length;
+		this.current = new AtomicReference<>(
+				new OccupancySnapshot(0, System.currentTimeMillis(), new int[types], new int[types]));
+	}
+
+	/* replaces the counts with the given spots, e.g. at start-up or to pick up changes made by other processes */
+	public void load(Collection<ParkingSpot> parkingSpots) {
+		int types = ParkingType.values().length;
+		int[] total = new int[types];
+		int[] occupied = new int[types];
+		for (ParkingSpot parkingSpot : parkingSpots) {
+			int index = parkingSpot.getParkingType().ordinal();
+			total[index]++;
+			if (!parkingSpot.isAvailable()) {
+				occupied[index]++;
+			}
+		}
+		OccupancySnapshot previous;
+		OccupancySnapshot next;
+		do {
+			previous = current.get();
+			next = new OccupancySnapshot(previous.getVersion() + 1, System.currentTimeMillis(), total, occupied);
+		} while (!current.compareAndSet(previous, next));
+		publish(next);
+	}
+
+	/* reloads the counts periodically; only needed when other processes allocate spots in the same database */
+	public synchronized void watch(Supplier<? extends Collection<ParkingSpot>> parkingSpots, long intervalMillis) {
+		if (resync != null || intervalMillis <= 0) {
+			return;
+		}
+		resync = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "occupancy-resync");
+			thread.setDaemon(true);
+			return thread;
+		});
+		resync.scheduleWithFixedDelay(() -> {
+			try {
+				load(parkingSpots.get());
+			} catch (RuntimeException e) {
+				logger.error("Unable to reload parking occupancy", e);
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public void allocated(ParkingType parkingType) {
+		change(parkingType, 1);
+	}
+
+	public void released(ParkingType parkingType) {
+		change(parkingType, -1);
+	}
+
+	public OccupancySnapshot getSnapshot() {
+		return current.get();
+	}
+
+	public int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super OccupancySnapshot> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("subscriber");
+		}
+		OccupancySubscription subscription = new OccupancySubscription(subscriber);
+		subscriptions.add(subscription);
+		/* offered after registering, so an update published in between cannot be missed */
+		subscription.offer(current.get());
+		if (closed) {
+			subscription.complete();
+		}
+	}
+
+	public void close() {
+		synchronized (this) {
+			if (resync != null) {
+				resync.shutdownNow();
+				resync = null;
+			}
+		}
+		closed = true;
+		for (OccupancySubscription subscription : subscriptions) {
+			subscription.complete();
+		}
+	}
+
+	private void change(ParkingType parkingType, int delta) {
+		OccupancySnapshot previous;
+		OccupancySnapshot next;
+		do {
+			previous = current.get();
+			next = previous.withOccupied(parkingType, delta, System.currentTimeMillis());
+		} while (!current.compareAndSet(previous, next));
+		publish(next);
+	}
+
+	private void publish(OccupancySnapshot snapshot) {
+		for (OccupancySubscription subscription : subscriptions) {
+			subscription.offer(snapshot);
+		}
+	}
+
+	/*
+	 * All signals to the subscriber, onSubscribe included, are issued from drain(), which the wip counter keeps to
+	 * one executor task at a time per subscription.
+	 */
+	private final class OccupancySubscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super OccupancySnapshot> subscriber;
+		private final AtomicReference<OccupancySnapshot> pending = new AtomicReference<>();
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile boolean completed;
+		private volatile Throwable error;
+		private boolean subscribed;
+		private long deliveredVersion = -1;
+
+		private OccupancySubscription(Flow.Subscriber<? super OccupancySnapshot> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				error = new IllegalArgumentException("Demand must be positive, got " + n);
+			} else {
+				demand.accumulateAndGet(n, (outstanding, added) -> {
+					long sum = outstanding + added;
+					return sum < 0 ? Long.MAX_VALUE : sum;
+				});
+			}
+			signal();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			subscriptions.remove(this);
+		}
+
+		/* keeps whichever snapshot is newer, as concurrent gates may publish out of order */
+		private void offer(OccupancySnapshot snapshot) {
+			pending.accumulateAndGet(snapshot,
+					(held, offered) -> held == null || offered.getVersion() > held.getVersion() ? offered : held);
+			signal();
+		}
+
+		private void complete() {
+			completed = true;
+			signal();
+		}
+
+		private void signal() {
+			if (wip.getAndIncrement() == 0) {
+				try {
+					executor.execute(this::drain);
+				} catch (RejectedExecutionException e) {
+					logger.error("Unable to deliver occupancy updates, dropping subscriber", e);
+					cancel();
+				}
+			}
+		}
+
+		private void drain() {
+			int missed = 1;
+			do {
+				if (!cancelled) {
+					deliver();
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void deliver() {
+			try {
+				if (!subscribed) {
+					subscribed = true;
+					subscriber.onSubscribe(this);
+				}
+				while (!cancelled && error == null && demand.get() > 0) {
+					OccupancySnapshot snapshot = pending.getAndSet(null);
+					if (snapshot == null) {
+						break;
+					}
+					if (snapshot.getVersion() <= deliveredVersion) {
+						continue;
+					}
+					deliveredVersion = snapshot.getVersion();
+					if (demand.get() != Long.MAX_VALUE) {
+						demand.decrementAndGet();
+					}
+					subscriber.onNext(snapshot);
+				}
+				if (cancelled) {
+					return;
+				}
+				if (error != null) {
+					cancel();
+					subscriber.onError(error);
+				} else if (completed) {
+					cancel();
+					subscriber.onComplete();
+				}
+			} catch (RuntimeException e) {
+				logger.error("Occupancy subscriber failed, cancelling its subscription", e);
+				cancel();
+			}
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JournalStore;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.RevenueRollup;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.VisitCountCache;
+import com.parkit.parkingsystem.dao.WriteBehindStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.util.MetricsRegistry;
+import com.parkit.parkingsystem.util.MetricsServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class ParkingComponents {
+	private static final Logger logger = LogManager.getLogger("ParkingComponents");
+
+	final DataBaseConfig dataBaseConfig = new DataBaseConfig();
+	final ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+	final TicketDAO ticketDAO = new TicketDAO();
+	final JournalStore journalStore;
+	final WriteBehindStore writeBehindStore;
+	final SpotAvailabilityIndex spotAvailabilityIndex;
+	final TariffProvider tariffProvider;
+	final OccupancyService occupancyService = new OccupancyService();
+	final SiteAllocationPolicy allocationPolicy;
+	final RevenueRollup revenueRollup;
+	final TicketArchiver ticketArchiver;
+	final MetricsServer metricsServer;
+
+	ParkingComponents() {
+		parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+		ticketDAO.dataBaseConfig = dataBaseConfig;
+		allocationPolicy = loadAllocationPolicy();
+		int visitCountCacheSize = dataBaseConfig.getIntProperty("cache.visitCount.maxSize", 0);
+		if (visitCountCacheSize > 0) {
+			ticketDAO.visitCountCache = new VisitCountCache(visitCountCacheSize,
+					dataBaseConfig.getLongProperty("cache.visitCount.ttlMillis", 0));
+		}
+		String backend = dataBaseConfig.getProperty("storage.backend", "jdbc");
+		if ("journal".equals(backend)) {
+			journalStore = openJournalStore();
+		} else if ("jdbc".equals(backend)) {
+			journalStore = null;
+		} else {
+			throw new IllegalArgumentException("Unknown storage.backend " + backend);
+		}
+		/* fed by the database ticket DAO, so with write-behind closed tickets are counted once they are written */
+		if (journalStore == null && dataBaseConfig.getBooleanProperty("rollup.enabled", false)) {
+			revenueRollup = new RevenueRollup(dataBaseConfig);
+			revenueRollup.start(dataBaseConfig.getLongProperty("rollup.flushIntervalMillis", 10000));
+			ticketDAO.revenueRollup = revenueRollup;
+		} else {
+			revenueRollup = null;
+		}
+		if (journalStore == null && dataBaseConfig.getBooleanProperty("writeBehind.enabled", false)) {
+			writeBehindStore = startWriteBehindStore();
+		} else {
+			writeBehindStore = null;
+		}
+		if (journalStore == null && dataBaseConfig.getBooleanProperty("archive.enabled", false)) {
+			ticketArchiver = new TicketArchiver(ticketDAO, dataBaseConfig.getIntProperty("archive.retentionDays", 90),
+					dataBaseConfig.getIntProperty("archive.batchSize", 1000),
+					dataBaseConfig.getLongProperty("archive.batchPauseMillis", 100));
+			ticketArchiver.start(dataBaseConfig.getLongProperty("archive.intervalMillis", 3600000));
+		} else {
+			ticketArchiver = null;
+		}
+		/* write-behind spot updates reach the database late, so claims have to be served from the index */
+		if (writeBehindStore != null || dataBaseConfig.getBooleanProperty("parking.spotIndex.enabled", false)) {
+			spotAvailabilityIndex = new SpotAvailabilityIndex(getParkingSpotDAO(), allocationPolicy);
+			spotAvailabilityIndex.load();
+		} else {
+			spotAvailabilityIndex = null;
+		}
+		String tariffFile = dataBaseConfig.getProperty("tariff.file", "");
+		tariffProvider = tariffFile.isEmpty() ? new TariffProvider() : new TariffProvider(Paths.get(tariffFile));
+		tariffProvider.watch(dataBaseConfig.getLongProperty("tariff.reloadIntervalMillis", 0));
+		ParkingSpotDAO spots = getParkingSpotDAO();
+		occupancyService.load(spots.getParkingSpots());
+		occupancyService.watch(spots::getParkingSpots, dataBaseConfig.getLongProperty("occupancy.resyncIntervalMillis", 0));
+		metricsServer = startMetrics();
+	}
+
+	ParkingService newParkingService() {
+		/* only the plain JDBC backend runs each vehicle in a database transaction */
+		return new ParkingService(getParkingSpotDAO(), getTicketDAO(),
+				journalStore == null && writeBehindStore == null ? dataBaseConfig : null, spotAvailabilityIndex,
+				new FareCalculatorService(tariffProvider), occupancyService, allocationPolicy);
+	}
+
+	void close() {
+		if (metricsServer != null) {
+			metricsServer.close();
+		}
+		if (spotAvailabilityIndex != null) {
+			spotAvailabilityIndex.close();
+		}
+		if (writeBehindStore != null) {
+			writeBehindStore.close();
+		}
+		if (ticketArchiver != null) {
+			ticketArchiver.close();
+		}
+		if (revenueRollup != null) {
+			revenueRollup.close();
+		}
+		if (journalStore != null) {
+			journalStore.close();
+		}
+		tariffProvider.close();
+		occupancyService.close();
+	}
+
+	private ParkingSpotDAO getParkingSpotDAO() {
+		if (journalStore != null) {
+			return journalStore.getParkingSpotDAO();
+		}
+		return writeBehindStore == null ? parkingSpotDAO : writeBehindStore.getParkingSpotDAO();
+	}
+
+	TicketDAO getTicketDAO() {
+		if (journalStore != null) {
+			return journalStore.getTicketDAO();
+		}
+		return writeBehindStore == null ? ticketDAO : writeBehindStore.getTicketDAO();
+	}
+
+	private SiteAllocationPolicy loadAllocationPolicy() {
+		AllocationStrategy defaultStrategy = AllocationStrategy.valueOf(
+				dataBaseConfig.getProperty("parking.allocationStrategy", AllocationStrategy.FILL_BY_LEVEL.name()));
+		Map<String, AllocationStrategy> strategies = new HashMap<>();
+		for (String site : dataBaseConfig.getProperty("parking.sites", "").split(",")) {
+			site = site.trim();
+			if (!site.isEmpty()) {
+				strategies.put(site, AllocationStrategy.valueOf(dataBaseConfig.getProperty(
+						"parking.site." + site + ".allocationStrategy", defaultStrategy.name())));
+			}
+		}
+		return new SiteAllocationPolicy(dataBaseConfig.getProperty("parking.site", ParkingSpot.DEFAULT_SITE),
+				defaultStrategy, strategies);
+	}
+
+	private MetricsServer startMetrics() {
+		MetricsRegistry metrics = MetricsRegistry.getDefault();
+		registerOccupancyGauges(metrics);
+		if (dataBaseConfig.getBooleanProperty("metrics.jmx.enabled", true)) {
+			metrics.registerMBean("com.parkit.parkingsystem:type=Metrics");
+		}
+		int port = dataBaseConfig.getIntProperty("metrics.port", 0);
+		if (port <= 0) {
+			return null;
+		}
+		MetricsServer server = new MetricsServer(metrics);
+		try {
+			server.start(new InetSocketAddress(dataBaseConfig.getProperty("metrics.bindAddress", "127.0.0.1"), port));
+			return server;
+		} catch (IOException e) {
+			logger.error("Unable to start metrics endpoint on port " + port, e);
+			return null;
+		}
+	}
+
+	private void registerOccupancyGauges(MetricsRegistry metrics) {
+		for (ParkingType parkingType : ParkingType.values()) {
+			metrics.gauge("parking.spots.total." + parkingType, () -> occupancyService.getSnapshot().getTotal(parkingType));
+			metrics.gauge("parking.spots.occupied." + parkingType,
+					() -> occupancyService.getSnapshot().getOccupied(parkingType));
+		}
+	}
+
+	private JournalStore openJournalStore() {
+		JournalStore store = new JournalStore(Paths.get(dataBaseConfig.getProperty("storage.journal.dir", "parking-data")),
+				dataBaseConfig.getLongProperty("storage.journal.compactThresholdBytes", 16L << 20),
+				dataBaseConfig.getBooleanProperty("storage.journal.syncWrites", false));
+		try {
+			store.open();
+			List<ParkingSpot> parkingSpots = new ArrayList<>();
+			for (ParkingType parkingType : ParkingType.values()) {
+				addSpots(parkingSpots, parkingType, dataBaseConfig.getProperty("storage.journal.spots." + parkingType, ""));
+			}
+			store.seedParkingSpots(parkingSpots);
+		} catch (IOException e) {
+			store.close();
+			throw new UncheckedIOException("Unable to open journal store", e);
+		}
+		store.startSnapshots(dataBaseConfig.getLongProperty("storage.journal.snapshotIntervalMillis", 300000));
+		logger.info("Using the journal storage backend");
+		return store;
+	}
+
+	/* spot lists look like "1-3,7" */
+	private static void addSpots(List<ParkingSpot> parkingSpots, ParkingType parkingType, String ranges) {
+		for (String range : ranges.split(",")) {
+			range = range.trim();
+			if (range.isEmpty()) {
+				continue;
+			}
+			int dash = range.indexOf('-');
+			int first = Integer.parseInt(dash < 0 ? range : range.substring(0, dash).trim());
+			int last = dash < 0 ? first : Integer.parseInt(range.substring(dash + 1).trim());
+			for (int number = first; number <= last; number++) {
+				parkingSpots.add(new ParkingSpot(number, parkingType, true));
+			}
+		}
+	}
+
+	private WriteBehindStore startWriteBehindStore() {
+		try {
+			WriteBehindStore store = new WriteBehindStore(ticketDAO, parkingSpotDAO, dataBaseConfig,
+					Paths.get(dataBaseConfig.getProperty("writeBehind.journalFile", "parking-write-behind.journal")),
+					dataBaseConfig.getIntProperty("writeBehind.queueCapacity", 10000),
+					dataBaseConfig.getIntProperty("writeBehind.batchSize", 500),
+					dataBaseConfig.getBooleanProperty("writeBehind.syncJournal", true));
+			store.start();
+			logger.info("Write-behind persistence enabled");
+			return store;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to open write-behind journal", e);
+		}
+	}
+}
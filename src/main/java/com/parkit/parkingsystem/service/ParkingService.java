@@ -1,120 +1,281 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.constants.UserRecurrence;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.ExitResult;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.LatencyRecorder;
+import com.parkit.parkingsystem.util.MetricsRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.sql.SQLException;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ParkingService {
 	private static final Logger logger = LogManager.getLogger("ParkingService");
-	private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
+	private static final MetricsRegistry metrics = MetricsRegistry.getDefault();
+	private static final LatencyRecorder entryLatency = metrics.timer("parking.entry");
+	private static final LatencyRecorder exitLatency = metrics.timer("parking.exit");
+	private static final Map<EntryResult.Status, LongAdder> entryOutcomes = new EnumMap<>(EntryResult.Status.class);
+	private static final Map<ExitResult.Status, LongAdder> exitOutcomes = new EnumMap<>(ExitResult.Status.class);
+
+	static {
+		for (EntryResult.Status status : EntryResult.Status.values()) {
+			entryOutcomes.put(status, metrics.counter("parking.entry." + status.name().toLowerCase(Locale.ROOT)));
+		}
+		for (ExitResult.Status status : ExitResult.Status.values()) {
+			exitOutcomes.put(status, metrics.counter("parking.exit." + status.name().toLowerCase(Locale.ROOT)));
+		}
+	}
 
 	private InputReaderUtil inputReaderUtil;
 	private ParkingSpotDAO parkingSpotDAO;
 	private TicketDAO ticketDAO;
+	private DataBaseConfig dataBaseConfig;
+	private SpotAvailabilityIndex spotAvailabilityIndex;
+	private FareCalculatorService fareCalculatorService;
+	private OccupancyService occupancyService;
+	private SiteAllocationPolicy allocationPolicy;
 
 	public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+		this(inputReaderUtil, parkingSpotDAO, ticketDAO, null);
+	}
+
+	public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO,
+			DataBaseConfig dataBaseConfig) {
+		this(inputReaderUtil, parkingSpotDAO, ticketDAO, dataBaseConfig, null);
+	}
+
+	public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO,
+			DataBaseConfig dataBaseConfig, SpotAvailabilityIndex spotAvailabilityIndex) {
+		this(parkingSpotDAO, ticketDAO, dataBaseConfig, spotAvailabilityIndex, new FareCalculatorService());
 		this.inputReaderUtil = inputReaderUtil;
+	}
+
+	public ParkingService(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, DataBaseConfig dataBaseConfig,
+			SpotAvailabilityIndex spotAvailabilityIndex, FareCalculatorService fareCalculatorService) {
+		this(parkingSpotDAO, ticketDAO, dataBaseConfig, spotAvailabilityIndex, fareCalculatorService, null);
+	}
+
+	public ParkingService(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, DataBaseConfig dataBaseConfig,
+			SpotAvailabilityIndex spotAvailabilityIndex, FareCalculatorService fareCalculatorService,
+			OccupancyService occupancyService) {
+		this(parkingSpotDAO, ticketDAO, dataBaseConfig, spotAvailabilityIndex, fareCalculatorService, occupancyService,
+				new SiteAllocationPolicy());
+	}
+
+	public ParkingService(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, DataBaseConfig dataBaseConfig,
+			SpotAvailabilityIndex spotAvailabilityIndex, FareCalculatorService fareCalculatorService,
+			OccupancyService occupancyService, SiteAllocationPolicy allocationPolicy) {
 		this.parkingSpotDAO = parkingSpotDAO;
 		this.ticketDAO = ticketDAO;
+		this.dataBaseConfig = dataBaseConfig;
+		this.spotAvailabilityIndex = spotAvailabilityIndex;
+		this.fareCalculatorService = fareCalculatorService;
+		this.occupancyService = occupancyService;
+		this.allocationPolicy = allocationPolicy;
 	}
 
 	public void processIncomingVehicle(Date inTime) {
+		new GateConsole(this, inputReaderUtil, System.out).processIncomingVehicle(inTime);
+	}
+
+	public EntryResult processIncomingVehicle(EntryRequest request) {
+		long start = System.nanoTime();
+		EntryResult result = enter(request);
+		entryLatency.record(System.nanoTime() - start);
+		entryOutcomes.get(result.getStatus()).increment();
+		return result;
+	}
+
+	private EntryResult enter(EntryRequest request) {
+		if (request.getParkingType() == null) {
+			return EntryResult.invalidRequest("Vehicle type is required");
+		}
+		if (request.getVehicleRegNumber() == null || request.getVehicleRegNumber().trim().isEmpty()) {
+			return EntryResult.invalidRequest("Vehicle registration number is required");
+		}
+		if (request.getInTime() == null) {
+			return EntryResult.invalidRequest("In time is required");
+		}
+
+		String vehicleRegNumber = request.getVehicleRegNumber();
+		ParkingSpot claimedSpot = null;
 		try {
-			ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
-			if (parkingSpot != null && parkingSpot.getId() > 0) {
-				String vehicleRegNumber = getVehichleRegNumber();
-				parkingSpot.setAvailable(false);
-				parkingSpotDAO.updateParking(parkingSpot);
-
-				if (ticketDAO.getTicketsCount(vehicleRegNumber) >= UserRecurrence.MIN_TICKET_COUNT) {
-					System.out.println("Happy to see you again! As a recurring user, you will get a 5% discount.");
-				}
+			beginUnitOfWork();
+			ParkingSpot parkingSpot = claimNextParkingSpot(allocationPolicy.resolveSite(request.getSite()),
+					request.getParkingType());
+			claimedSpot = parkingSpot;
+			if (parkingSpot == null || parkingSpot.getId() <= 0) {
+				rollbackUnitOfWork();
+				return EntryResult.noSpotAvailable();
+			}
 
-				Ticket ticket = new Ticket();
-				ticket.setParkingSpot(parkingSpot);
-				ticket.setVehicleRegNumber(vehicleRegNumber);
-				ticket.setPrice(0);
-				ticket.setInTime(inTime);
-				ticket.setOutTime(null);
-				ticketDAO.saveTicket(ticket);
-				System.out.println("Generated Ticket and saved in DB");
-				System.out.println("Please park your vehicle in spot number:" + parkingSpot.getId());
-				System.out.println("Recorded in-time for vehicle number:" + vehicleRegNumber + " is:" + inTime);
+			boolean isRecurrent = ticketDAO.getTicketsCount(vehicleRegNumber) >= UserRecurrence.MIN_TICKET_COUNT;
+			Ticket ticket = new Ticket();
+			ticket.setParkingSpot(parkingSpot);
+			ticket.setVehicleRegNumber(vehicleRegNumber);
+			ticket.setPriceInCents(0);
+			ticket.setInTime(request.getInTime());
+			ticket.setOutTime(null);
+			if (!ticketDAO.saveTicket(ticket)) {
+				throw new IllegalStateException("Unable to save ticket for vehicle " + vehicleRegNumber);
+			}
+			commitUnitOfWork();
+			claimedSpot = null;
+			if (occupancyService != null) {
+				occupancyService.allocated(parkingSpot.getParkingType());
 			}
+			return EntryResult.parked(ticket, isRecurrent);
 		} catch (Exception e) {
+			rollbackUnitOfWork();
+			if (spotAvailabilityIndex != null && claimedSpot != null) {
+				spotAvailabilityIndex.release(claimedSpot);
+			}
 			logger.error("Unable to process incoming vehicle", e);
+			return EntryResult.failed(e.getMessage());
 		}
 	}
 
-	private String getVehichleRegNumber() throws Exception {
-		System.out.println("Please type the vehicle registration number and press enter key");
-		return inputReaderUtil.readVehicleRegistrationNumber();
+	public ParkingSpot getNextParkingNumberIfAvailable() {
+		try {
+			return getNextParkingNumberIfAvailable(new GateConsole(this, inputReaderUtil, System.out).readVehicleType());
+		} catch (IllegalArgumentException ie) {
+			logger.error("Error parsing user input for type of vehicle", ie);
+		}
+		return null;
 	}
 
-	public ParkingSpot getNextParkingNumberIfAvailable() {
+	public long getRecurrentDiscountPercent() {
+		return fareCalculatorService.getTariff().getRecurrentDiscountPercent();
+	}
+
+	private ParkingSpot claimNextParkingSpot(String site, ParkingType parkingType) {
+		if (spotAvailabilityIndex != null) {
+			ParkingSpot parkingSpot = spotAvailabilityIndex.claim(site, parkingType);
+			if (parkingSpot == null) {
+				logger.error("Unable to claim a parking spot. Parking slots might be full");
+			}
+			return parkingSpot;
+		}
+		int parkingNumber = parkingSpotDAO.claimNextAvailableSlot(site, parkingType,
+				allocationPolicy.getStrategy(site));
+		if (parkingNumber > 0) {
+			return new ParkingSpot(parkingNumber, parkingType, false, site, 0, null, 0);
+		}
+		logger.error("Unable to claim a parking spot. Parking slots might be full");
+		return null;
+	}
+
+	private ParkingSpot getNextParkingNumberIfAvailable(ParkingType parkingType) {
 		int parkingNumber = 0;
 		ParkingSpot parkingSpot = null;
 		try {
-			ParkingType parkingType = getVehichleType();
-			parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
+			String site = allocationPolicy.getDefaultSite();
+			parkingNumber = (spotAvailabilityIndex != null)
+					? spotAvailabilityIndex.lowestAvailable(site, parkingType)
+					: parkingSpotDAO.getNextAvailableSlot(site, parkingType, allocationPolicy.getStrategy(site));
 			if (parkingNumber > 0) {
 				parkingSpot = new ParkingSpot(parkingNumber, parkingType, true);
 			} else {
 				throw new Exception("Error fetching parking number from DB. Parking slots might be full");
 			}
-		} catch (IllegalArgumentException ie) {
-			logger.error("Error parsing user input for type of vehicle", ie);
 		} catch (Exception e) {
 			logger.error("Error fetching next available parking slot", e);
 		}
 		return parkingSpot;
 	}
 
-	private ParkingType getVehichleType() {
-		System.out.println("Please select vehicle type from menu");
-		System.out.println("1 CAR");
-		System.out.println("2 BIKE");
-		int input = inputReaderUtil.readSelection();
-		switch (input) {
-			case 1: {
-				return ParkingType.CAR;
-			}
-			case 2: {
-				return ParkingType.BIKE;
-			}
-			default: {
-				System.out.println("Incorrect input provided");
-				throw new IllegalArgumentException("Entered input is invalid");
-			}
-		}
+	public void processExitingVehicle(Date outTime) {
+		new GateConsole(this, inputReaderUtil, System.out).processExitingVehicle(outTime);
 	}
 
-	public void processExitingVehicle(Date outTime) {
+	public ExitResult processExitingVehicle(ExitRequest request) {
+		long start = System.nanoTime();
+		ExitResult result = exit(request);
+		exitLatency.record(System.nanoTime() - start);
+		exitOutcomes.get(result.getStatus()).increment();
+		return result;
+	}
+
+	private ExitResult exit(ExitRequest request) {
+		String vehicleRegNumber = request.getVehicleRegNumber();
+		if (vehicleRegNumber == null || vehicleRegNumber.trim().isEmpty()) {
+			return ExitResult.invalidRequest("Vehicle registration number is required");
+		}
+		if (request.getOutTime() == null) {
+			return ExitResult.invalidRequest("Out time is required");
+		}
+
 		try {
-			String vehicleRegNumber = getVehichleRegNumber();
-			Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-			ticket.setOutTime(outTime);
+			beginUnitOfWork();
+			Ticket ticket = ticketDAO.getOpenTicket(vehicleRegNumber);
+			if (ticket == null) {
+				rollbackUnitOfWork();
+				return ExitResult.ticketNotFound(vehicleRegNumber);
+			}
+			ticket.setOutTime(request.getOutTime());
 			boolean isRecurrent = ticketDAO.getTicketsCount(vehicleRegNumber) >= UserRecurrence.MIN_TICKET_COUNT;
 			fareCalculatorService.calculateFare(ticket, isRecurrent);
-			if (ticketDAO.updateTicket(ticket)) {
-				ParkingSpot parkingSpot = ticket.getParkingSpot();
-				parkingSpot.setAvailable(true);
-				parkingSpotDAO.updateParking(parkingSpot);
-				System.out.println("Please pay the parking fare:" + ticket.getPrice());
-				System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
+			if (!ticketDAO.updateTicket(ticket)) {
+				rollbackUnitOfWork();
+				/* an exit racing with this one closed the ticket first */
+				Ticket openTicket = ticketDAO.getOpenTicket(vehicleRegNumber);
+				if (openTicket == null || openTicket.getId() != ticket.getId()) {
+					return ExitResult.ticketNotFound(vehicleRegNumber);
+				}
+				return ExitResult.failed("Unable to update ticket information");
+			}
+			ParkingSpot parkingSpot = ticket.getParkingSpot();
+			parkingSpot.setAvailable(true);
+			if (spotAvailabilityIndex != null) {
+				commitUnitOfWork();
+				spotAvailabilityIndex.release(parkingSpot);
 			} else {
-				System.out.println("Unable to update ticket information. Error occurred");
+				if (!parkingSpotDAO.updateParking(parkingSpot)) {
+					throw new IllegalStateException("Unable to release parking spot " + parkingSpot.getId());
+				}
+				commitUnitOfWork();
 			}
+			if (occupancyService != null) {
+				occupancyService.released(parkingSpot.getParkingType());
+			}
+			return ExitResult.paid(ticket, isRecurrent);
 		} catch (Exception e) {
+			rollbackUnitOfWork();
 			logger.error("Unable to process exiting vehicle", e);
+			return ExitResult.failed(e.getMessage());
+		}
+	}
+
+	private void beginUnitOfWork() throws ClassNotFoundException, SQLException {
+		if (dataBaseConfig != null) {
+			dataBaseConfig.beginTransaction();
+		}
+	}
+
+	private void commitUnitOfWork() throws SQLException {
+		if (dataBaseConfig != null) {
+			dataBaseConfig.commitTransaction();
+		}
+	}
+
+	private void rollbackUnitOfWork() {
+		if (dataBaseConfig != null) {
+			dataBaseConfig.rollbackTransaction();
 		}
 	}
 }
@@ -0,0 +1,46 @@
+package com.parkit.parkingsystem.service;
+
+/* outcome of one TicketRepricer run */
+public class RepricingReport {
+	private final long tickets;
+	private final long changedTickets;
+	private final long oldRevenueInCents;
+	private final long newRevenueInCents;
+	private final long elapsedNanos;
+
+	RepricingReport(long tickets, long changedTickets, long oldRevenueInCents, long newRevenueInCents,
+			long elapsedNanos) {
+		this.tickets = tickets;
+		this.changedTickets = changedTickets;
+		this.oldRevenueInCents = oldRevenueInCents;
+		this.newRevenueInCents = newRevenueInCents;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public long getTickets() {
+		return tickets;
+	}
+
+	public long getChangedTickets() {
+		return changedTickets;
+	}
+
+	public long getOldRevenueInCents() {
+		return oldRevenueInCents;
+	}
+
+	public long getNewRevenueInCents() {
+		return newRevenueInCents;
+	}
+
+	public double getTicketsPerSecond() {
+		return elapsedNanos == 0 ? 0 : tickets * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Re-priced %d tickets in %.2fs (%.0f/s): %d changed, revenue %.2f -> %.2f (%+.2f)",
+				tickets, elapsedNanos / 1e9, getTicketsPerSecond(), changedTickets, oldRevenueInCents / 100.0,
+				newRevenueInCents / 100.0, (newRevenueInCents - oldRevenueInCents) / 100.0);
+	}
+}
@@ -0,0 +1,14 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
+
+import java.io.IOException;
+
+/* where a TicketRepricer run writes the tickets whose price changed; called from several threads at once */
+public interface RepricingSink extends AutoCloseable {
+
+	void write(ClosedTicketBatch batch, long[] newPricesInCents) throws IOException;
+
+	@Override
+	void close() throws IOException;
+}
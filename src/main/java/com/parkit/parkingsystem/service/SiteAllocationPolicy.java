@@ -0,0 +1,37 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/* which site a gate belongs to when a request does not name one, and the allocation strategy of each site */
+public class SiteAllocationPolicy {
+	private final String defaultSite;
+	private final AllocationStrategy defaultStrategy;
+	private final Map<String, AllocationStrategy> strategies;
+
+	public SiteAllocationPolicy() {
+		this(ParkingSpot.DEFAULT_SITE, AllocationStrategy.FILL_BY_LEVEL, new HashMap<>());
+	}
+
+	public SiteAllocationPolicy(String defaultSite, AllocationStrategy defaultStrategy,
+			Map<String, AllocationStrategy> strategies) {
+		this.defaultSite = defaultSite;
+		this.defaultStrategy = defaultStrategy;
+		this.strategies = new HashMap<>(strategies);
+	}
+
+	public String getDefaultSite() {
+		return defaultSite;
+	}
+
+	public String resolveSite(String site) {
+		return site == null || site.trim().isEmpty() ? defaultSite : site;
+	}
+
+	public AllocationStrategy getStrategy(String site) {
+		return strategies.getOrDefault(site, defaultStrategy);
+	}
+}
@@ -0,0 +1,306 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Free spots sharded by site and parking type. Within a shard the spots are ranked once, at load time, in the order
+ * the site's allocation strategy prefers them, and bit n of the shard's bitset is the n-th ranked spot, so a claim is
+ * a lock-free "take the lowest set bit" that never touches another site's memory.
+ */
+public class SpotAvailabilityIndex {
+	private static final Logger logger = LogManager.getLogger("SpotAvailabilityIndex");
+
+	private final ParkingSpotDAO parkingSpotDAO;
+	private final SiteAllocationPolicy allocationPolicy;
+	private final ExecutorService writeBehind;
+	private volatile Map<String, Map<ParkingType, Shard>> shards = new HashMap<>();
+	private volatile Map<Integer, Shard> shardsBySpot = new HashMap<>();
+
+	public SpotAvailabilityIndex(ParkingSpotDAO parkingSpotDAO) {
+		this(parkingSpotDAO, new SiteAllocationPolicy());
+	}
+
+	public SpotAvailabilityIndex(ParkingSpotDAO parkingSpotDAO, SiteAllocationPolicy allocationPolicy) {
+		this.parkingSpotDAO = parkingSpotDAO;
+		this.allocationPolicy = allocationPolicy;
+		this.writeBehind = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "spot-index-write-behind");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public void load() {
+		List<ParkingSpot> parkingSpots = parkingSpotDAO.getParkingSpots();
+		Map<String, Map<ParkingType, List<ParkingSpot>>> grouped = new HashMap<>();
+		for (ParkingSpot parkingSpot : parkingSpots) {
+			grouped.computeIfAbsent(parkingSpot.getSite(), site -> new EnumMap<>(ParkingType.class))
+					.computeIfAbsent(parkingSpot.getParkingType(), type -> new ArrayList<>()).add(parkingSpot);
+		}
+		Map<String, Map<ParkingType, Shard>> loaded = new HashMap<>();
+		Map<Integer, Shard> bySpot = new HashMap<>();
+		for (Map.Entry<String, Map<ParkingType, List<ParkingSpot>>> site : grouped.entrySet()) {
+			Map<ParkingType, Shard> siteShards = new EnumMap<>(ParkingType.class);
+			for (Map.Entry<ParkingType, List<ParkingSpot>> type : site.getValue().entrySet()) {
+				Shard shard = new Shard(type.getValue(), allocationPolicy.getStrategy(site.getKey()));
+				siteShards.put(type.getKey(), shard);
+				for (ParkingSpot parkingSpot : type.getValue()) {
+					bySpot.put(parkingSpot.getId(), shard);
+				}
+			}
+			loaded.put(site.getKey(), siteShards);
+		}
+		shardsBySpot = bySpot;
+		shards = loaded;
+		logger.info("Loaded " + parkingSpots.size() + " parking spots of " + loaded.size()
+				+ " sites into the availability index");
+	}
+
+	public ParkingSpot claim(ParkingType parkingType) {
+		return claim(allocationPolicy.getDefaultSite(), parkingType);
+	}
+
+	public ParkingSpot claim(String site, ParkingType parkingType) {
+		Shard shard = shard(site, parkingType);
+		ParkingSpot parkingSpot = shard == null ? null : shard.claim();
+		if (parkingSpot != null) {
+			writeBack(parkingSpot);
+		}
+		return parkingSpot;
+	}
+
+	public void release(ParkingSpot parkingSpot) {
+		Shard shard = shardsBySpot.get(parkingSpot.getId());
+		if (shard == null) {
+			logger.error("Parking spot " + parkingSpot.getId() + " is not part of the availability index");
+			return;
+		}
+		writeBack(shard.release(parkingSpot.getId()));
+	}
+
+	public int lowestAvailable(ParkingType parkingType) {
+		return lowestAvailable(allocationPolicy.getDefaultSite(), parkingType);
+	}
+
+	/* the spot the next claim at this site would get, or 0 when none is free */
+	public int lowestAvailable(String site, ParkingType parkingType) {
+		Shard shard = shard(site, parkingType);
+		return shard == null ? 0 : shard.peek();
+	}
+
+	public int availableCount(ParkingType parkingType) {
+		int count = 0;
+		for (Map<ParkingType, Shard> siteShards : shards.values()) {
+			Shard shard = siteShards.get(parkingType);
+			if (shard != null) {
+				count += shard.availableCount();
+			}
+		}
+		return count;
+	}
+
+	public int availableCount(String site, ParkingType parkingType) {
+		Shard shard = shard(site, parkingType);
+		return shard == null ? 0 : shard.availableCount();
+	}
+
+	public boolean flush(long timeout, TimeUnit unit) {
+		try {
+			writeBehind.submit(() -> { }).get(timeout, unit);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException e) {
+			logger.error("Error waiting for parking spot updates to be persisted", e);
+		}
+		return false;
+	}
+
+	public void close() {
+		writeBehind.shutdown();
+		try {
+			if (!writeBehind.awaitTermination(10, TimeUnit.SECONDS)) {
+				logger.error("Timed out flushing parking spot updates to DB");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Shard shard(String site, ParkingType parkingType) {
+		Map<ParkingType, Shard> siteShards = shards.get(site);
+		return siteShards == null ? null : siteShards.get(parkingType);
+	}
+
+	private void writeBack(ParkingSpot parkingSpot) {
+		writeBehind.execute(() -> {
+			if (!parkingSpotDAO.updateParking(parkingSpot)) {
+				logger.error("Unable to persist availability of parking spot " + parkingSpot.getId());
+			}
+		});
+	}
+
+	/*
+	 * The spots of one site and type in preference order. Levels occupy contiguous rank ranges, which lets SPREAD pick
+	 * the emptiest level from per-level counters and then claim inside that range only.
+	 */
+	private static final class Shard {
+		private final AllocationStrategy strategy;
+		private final ParkingSpot[] spots;
+		private final Map<Integer, Integer> ranks = new HashMap<>();
+		private final AtomicLongArray free;
+		private final int[] levelStart;
+		private final int[] levelOfRank;
+		private final AtomicIntegerArray freeByLevel;
+
+		private Shard(List<ParkingSpot> parkingSpots, AllocationStrategy strategy) {
+			this.strategy = strategy;
+			Comparator<ParkingSpot> order = strategy == AllocationStrategy.NEAREST_ENTRANCE
+					? Comparator.comparingInt(ParkingSpot::getEntranceDistance).thenComparingInt(ParkingSpot::getLevel)
+					: Comparator.comparingInt(ParkingSpot::getLevel);
+			spots = parkingSpots.stream().sorted(order.thenComparingInt(ParkingSpot::getId)).toArray(ParkingSpot[]::new);
+			free = new AtomicLongArray((spots.length >>> 6) + 1);
+			levelOfRank = new int[spots.length];
+			List<Integer> starts = new ArrayList<>();
+			for (int rank = 0; rank < spots.length; rank++) {
+				ranks.put(spots[rank].getId(), rank);
+				if (strategy == AllocationStrategy.SPREAD
+						&& (rank == 0 || spots[rank].getLevel() != spots[rank - 1].getLevel())) {
+					starts.add(rank);
+				}
+				levelOfRank[rank] = Math.max(0, starts.size() - 1);
+			}
+			if (starts.isEmpty()) {
+				starts.add(0);
+			}
+			starts.add(spots.length);
+			levelStart = starts.stream().mapToInt(Integer::intValue).toArray();
+			freeByLevel = new AtomicIntegerArray(levelStart.length - 1);
+			for (int rank = 0; rank < spots.length; rank++) {
+				if (spots[rank].isAvailable()) {
+					setFree(rank);
+				}
+			}
+		}
+
+		private ParkingSpot claim() {
+			int rank = -1;
+			if (strategy == AllocationStrategy.SPREAD) {
+				int level = emptiestLevel();
+				if (level >= 0) {
+					rank = claimInRange(levelStart[level], levelStart[level + 1]);
+				}
+			}
+			if (rank < 0) {
+				rank = claimInRange(0, spots.length);
+			}
+			if (rank < 0) {
+				return null;
+			}
+			freeByLevel.decrementAndGet(levelOfRank[rank]);
+			return withAvailability(spots[rank], false);
+		}
+
+		private ParkingSpot release(int parkingNumber) {
+			int rank = ranks.get(parkingNumber);
+			setFree(rank);
+			return withAvailability(spots[rank], true);
+		}
+
+		private int peek() {
+			int from = 0;
+			int to = spots.length;
+			if (strategy == AllocationStrategy.SPREAD) {
+				int level = emptiestLevel();
+				if (level >= 0) {
+					from = levelStart[level];
+					to = levelStart[level + 1];
+				}
+			}
+			for (int rank = from; rank < to; rank++) {
+				if ((free.get(rank >>> 6) & (1L << (rank & 63))) != 0) {
+					return spots[rank].getId();
+				}
+			}
+			return 0;
+		}
+
+		private int availableCount() {
+			int count = 0;
+			for (int index = 0; index < free.length(); index++) {
+				count += Long.bitCount(free.get(index));
+			}
+			return count;
+		}
+
+		private int emptiestLevel() {
+			int best = -1;
+			int bestFree = 0;
+			for (int level = 0; level < freeByLevel.length(); level++) {
+				int levelFree = freeByLevel.get(level);
+				if (levelFree > bestFree) {
+					best = level;
+					bestFree = levelFree;
+				}
+			}
+			return best;
+		}
+
+		/* clears and returns the lowest set rank in [from, to), or -1 when that range has nothing free */
+		private int claimInRange(int from, int to) {
+			for (int index = from >>> 6; index <= (to - 1) >>> 6 && from < to; index++) {
+				long mask = rangeMask(index, from, to);
+				long word;
+				while (((word = free.get(index)) & mask) != 0) {
+					long lowestBit = Long.lowestOneBit(word & mask);
+					if (free.compareAndSet(index, word, word & ~lowestBit)) {
+						return (index << 6) + Long.numberOfTrailingZeros(lowestBit);
+					}
+				}
+			}
+			return -1;
+		}
+
+		private void setFree(int rank) {
+			long previous = free.getAndAccumulate(rank >>> 6, 1L << (rank & 63), (word, bit) -> word | bit);
+			if ((previous & (1L << (rank & 63))) == 0) {
+				freeByLevel.incrementAndGet(levelOfRank[rank]);
+			}
+		}
+
+		private static long rangeMask(int index, int from, int to) {
+			long mask = -1L;
+			if (index == from >>> 6) {
+				mask &= -1L << (from & 63);
+			}
+			if (index == (to - 1) >>> 6) {
+				mask &= -1L >>> (63 - ((to - 1) & 63));
+			}
+			return mask;
+		}
+
+		private static ParkingSpot withAvailability(ParkingSpot parkingSpot, boolean available) {
+			return new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), available, parkingSpot.getSite(),
+					parkingSpot.getLevel(), parkingSpot.getZone(), parkingSpot.getEntranceDistance());
+		}
+	}
+}
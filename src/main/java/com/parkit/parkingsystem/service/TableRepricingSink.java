@@ -0,0 +1,32 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
+
+import java.io.IOException;
+
+/* re-priced tickets go to the ticket_repricing table, tagged with the id of the run */
+public class TableRepricingSink implements RepricingSink {
+	private final TicketDAO ticketDAO;
+	private final String runId;
+
+	public TableRepricingSink(TicketDAO ticketDAO, String runId) {
+		this.ticketDAO = ticketDAO;
+		this.runId = runId;
+	}
+
+	public String getRunId() {
+		return runId;
+	}
+
+	@Override
+	public void write(ClosedTicketBatch batch, long[] newPricesInCents) throws IOException {
+		if (!ticketDAO.saveTicketRepricing(runId, batch, newPricesInCents)) {
+			throw new IOException("Unable to save the repricing of " + batch.size() + " tickets for run " + runId);
+		}
+	}
+
+	@Override
+	public void close() {
+	}
+}
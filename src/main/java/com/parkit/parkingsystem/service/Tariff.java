@@ -0,0 +1,274 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.UserRecurrence;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/*
+ * Tariff rules compiled into one cumulative rate table per parking type, indexed by minute of the week (Monday 00:00
+ * is minute 0). Pricing a stay is a couple of array reads per day parked, whatever the number of bands.
+ */
+public class Tariff {
+	private static final long MILLIS_PER_MINUTE = 60_000L;
+	private static final int MINUTES_PER_HOUR = 60;
+	private static final int MINUTES_PER_DAY = 24 * MINUTES_PER_HOUR;
+	private static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+	private static final int EPOCH_DAY_OF_WEEK = DayOfWeek.THURSDAY.ordinal();
+
+	private final ZoneRules zoneRules;
+	private final long fixedOffsetMillis;
+	private final long freeMinutes;
+	private final long recurrentDiscountPercent;
+	private final long[][] cumulativeRates;
+	private final long[] dailyCapsInCents;
+
+	private Tariff(ZoneId zone, long freeMinutes, long recurrentDiscountPercent, int[][] ratesByMinuteOfWeek,
+			long[] dailyCapsInCents) {
+		this.zoneRules = zone.getRules();
+		this.fixedOffsetMillis = zoneRules.isFixedOffset()
+				? zoneRules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L
+				: Long.MIN_VALUE;
+		this.freeMinutes = freeMinutes;
+		this.recurrentDiscountPercent = recurrentDiscountPercent;
+		this.dailyCapsInCents = dailyCapsInCents;
+		this.cumulativeRates = new long[ratesByMinuteOfWeek.length][];
+		for (int type = 0; type < ratesByMinuteOfWeek.length; type++) {
+			long[] cumulative = new long[MINUTES_PER_WEEK + 1];
+			for (int minute = 0; minute < MINUTES_PER_WEEK; minute++) {
+				cumulative[minute + 1] = cumulative[minute] + ratesByMinuteOfWeek[type][minute];
+			}
+			cumulativeRates[type] = cumulative;
+		}
+	}
+
+	public static Tariff defaultTariff() {
+		Properties rules = new Properties();
+		rules.setProperty("tariff.rate." + ParkingType.CAR, String.valueOf(Fare.CAR_RATE_PER_HOUR_IN_CENTS));
+		rules.setProperty("tariff.rate." + ParkingType.BIKE, String.valueOf(Fare.BIKE_RATE_PER_HOUR_IN_CENTS));
+		rules.setProperty("tariff.recurrentDiscountPercent", String.valueOf(UserRecurrence.DISCOUNT_PERCENT));
+		return compile(rules);
+	}
+
+	/*
+	 * Keys:
+	 *   tariff.zone                      time zone the bands are expressed in (system default when absent)
+	 *   tariff.freeMinutes               stays shorter than this are free (30)
+	 *   tariff.recurrentDiscountPercent  whole percent taken off for recurring users (0)
+	 *   tariff.rate.<TYPE>               base rate in cents per hour, required for every parking type
+	 *   tariff.dailyCap.<TYPE>           most charged per 24 hours parked, in cents (no cap when absent)
+	 *   tariff.band.<TYPE>.<name>        "<days> <HH:mm>-<HH:mm> <cents per hour>", e.g. "MON-FRI 08:00-19:00 200"
+	 * Days are "*", a day, a range or a comma separated list of those; a band ending before it starts runs past
+	 * midnight. Bands are applied in name order, so a later band overrides an earlier one where they overlap.
+	 */
+	public static Tariff compile(Properties rules) {
+		String zone = rules.getProperty("tariff.zone", "").trim();
+		long freeMinutes = parseAmount(rules, "tariff.freeMinutes", 30);
+		long discount = parseAmount(rules, "tariff.recurrentDiscountPercent", 0);
+		if (discount > 100) {
+			throw new IllegalArgumentException("tariff.recurrentDiscountPercent must not exceed 100: " + discount);
+		}
+
+		ParkingType[] parkingTypes = ParkingType.values();
+		int[][] rates = new int[parkingTypes.length][MINUTES_PER_WEEK];
+		long[] dailyCaps = new long[parkingTypes.length];
+		for (ParkingType parkingType : parkingTypes) {
+			String rateKey = "tariff.rate." + parkingType;
+			if (rules.getProperty(rateKey) == null) {
+				throw new IllegalArgumentException("No rate defined for parking type " + parkingType + " (" + rateKey + ")");
+			}
+			Arrays.fill(rates[parkingType.ordinal()], toRate(rateKey, parseAmount(rules, rateKey, 0)));
+			dailyCaps[parkingType.ordinal()] = parseAmount(rules, "tariff.dailyCap." + parkingType, 0);
+
+			String bandPrefix = "tariff.band." + parkingType + ".";
+			List<String> bandKeys = new ArrayList<>();
+			for (String key : rules.stringPropertyNames()) {
+				if (key.startsWith(bandPrefix)) {
+					bandKeys.add(key);
+				}
+			}
+			bandKeys.sort(null);
+			for (String bandKey : bandKeys) {
+				applyBand(rates[parkingType.ordinal()], bandKey, rules.getProperty(bandKey).trim());
+			}
+		}
+		return new Tariff(zone.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(zone), freeMinutes, discount, rates,
+				dailyCaps);
+	}
+
+	public long getRecurrentDiscountPercent() {
+		return recurrentDiscountPercent;
+	}
+
+	public long getFreeMinutes() {
+		return freeMinutes;
+	}
+
+	public long getRatePerHourInCents(ParkingType parkingType, DayOfWeek dayOfWeek, int minuteOfDay) {
+		long[] cumulative = cumulativeRates[parkingType.ordinal()];
+		int minuteOfWeek = dayOfWeek.ordinal() * MINUTES_PER_DAY + minuteOfDay;
+		return cumulative[minuteOfWeek + 1] - cumulative[minuteOfWeek];
+	}
+
+	/*
+	 * Every full minute parked is charged at the hourly rate of its band divided by 60, each 24 hours parked is
+	 * capped at the daily cap, the recurrence discount comes last and the exact total is rounded once, half up,
+	 * to the nearest cent.
+	 */
+	public long price(long inEpochMillis, long outEpochMillis, ParkingType parkingType, boolean isRecurrent) {
+		if (outEpochMillis < inEpochMillis) {
+			throw new IllegalArgumentException("Out time provided is incorrect:" + outEpochMillis);
+		}
+
+		long minutes = (outEpochMillis - inEpochMillis) / MILLIS_PER_MINUTE;
+		if (minutes < freeMinutes) {
+			return 0;
+		}
+
+		long[] cumulative = cumulativeRates[parkingType.ordinal()];
+		long dailyCap = dailyCapsInCents[parkingType.ordinal()] * MINUTES_PER_HOUR;
+		int firstMinute = minuteOfWeek(inEpochMillis);
+		long total;
+		if (dailyCap == 0) {
+			total = cost(cumulative, firstMinute, minutes);
+		} else {
+			total = 0;
+			for (long day = 0; day < minutes; day += MINUTES_PER_DAY) {
+				int dayStart = (int) ((firstMinute + day) % MINUTES_PER_WEEK);
+				total += Math.min(dailyCap, cost(cumulative, dayStart, Math.min(MINUTES_PER_DAY, minutes - day)));
+			}
+		}
+
+		long percentDue = isRecurrent ? 100 - recurrentDiscountPercent : 100;
+		return divideHalfUp(total * percentDue, MINUTES_PER_HOUR * 100);
+	}
+
+	private int minuteOfWeek(long epochMillis) {
+		long offsetMillis = fixedOffsetMillis != Long.MIN_VALUE
+				? fixedOffsetMillis
+				: zoneRules.getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds() * 1000L;
+		long localMinute = Math.floorDiv(epochMillis + offsetMillis, MILLIS_PER_MINUTE);
+		return Math.floorMod(localMinute + (long) EPOCH_DAY_OF_WEEK * MINUTES_PER_DAY, MINUTES_PER_WEEK);
+	}
+
+	private static long cost(long[] cumulative, int firstMinute, long minutes) {
+		long weekTotal = cumulative[MINUTES_PER_WEEK];
+		long total = (minutes / MINUTES_PER_WEEK) * weekTotal;
+		int end = firstMinute + (int) (minutes % MINUTES_PER_WEEK);
+		if (end <= MINUTES_PER_WEEK) {
+			return total + cumulative[end] - cumulative[firstMinute];
+		}
+		return total + weekTotal - cumulative[firstMinute] + cumulative[end - MINUTES_PER_WEEK];
+	}
+
+	private static long divideHalfUp(long dividend, long divisor) {
+		return (dividend + divisor / 2) / divisor;
+	}
+
+	private static void applyBand(int[] rates, String key, String band) {
+		String[] parts = band.split("\\s+");
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("Invalid tariff band " + key + "=" + band);
+		}
+		boolean[] days = parseDays(key, parts[0]);
+		String[] times = parts[1].split("-");
+		if (times.length != 2) {
+			throw new IllegalArgumentException("Invalid time range in tariff band " + key + "=" + band);
+		}
+		int start = parseMinuteOfDay(key, times[0]);
+		int end = parseMinuteOfDay(key, times[1]);
+		int length = end > start ? end - start : MINUTES_PER_DAY - start + end;
+		int rate = toRate(key, parseAmount(key, parts[2]));
+		for (DayOfWeek day : DayOfWeek.values()) {
+			if (days[day.ordinal()]) {
+				int first = day.ordinal() * MINUTES_PER_DAY + start;
+				for (int minute = first; minute < first + length; minute++) {
+					rates[minute % MINUTES_PER_WEEK] = rate;
+				}
+			}
+		}
+	}
+
+	private static boolean[] parseDays(String key, String value) {
+		boolean[] days = new boolean[7];
+		if (value.equals("*")) {
+			Arrays.fill(days, true);
+			return days;
+		}
+		for (String item : value.split(",")) {
+			String[] range = item.split("-");
+			if (range.length > 2) {
+				throw new IllegalArgumentException("Invalid day range in tariff band " + key + ": " + item);
+			}
+			int first = parseDay(key, range[0]).ordinal();
+			int last = parseDay(key, range[range.length - 1]).ordinal();
+			for (int day = first; ; day = (day + 1) % 7) {
+				days[day] = true;
+				if (day == last) {
+					break;
+				}
+			}
+		}
+		return days;
+	}
+
+	private static DayOfWeek parseDay(String key, String value) {
+		String day = value.trim().toUpperCase(Locale.ROOT);
+		if (day.length() >= 3) {
+			for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+				if (dayOfWeek.name().startsWith(day)) {
+					return dayOfWeek;
+				}
+			}
+		}
+		throw new IllegalArgumentException("Invalid day in tariff band " + key + ": " + value);
+	}
+
+	private static int parseMinuteOfDay(String key, String value) {
+		String[] parts = value.split(":");
+		try {
+			int hours = Integer.parseInt(parts[0]);
+			int minutes = parts.length == 2 ? Integer.parseInt(parts[1]) : -1;
+			int minuteOfDay = hours * MINUTES_PER_HOUR + minutes;
+			if (minutes >= 0 && minutes < MINUTES_PER_HOUR && minuteOfDay >= 0 && minuteOfDay <= MINUTES_PER_DAY) {
+				return minuteOfDay;
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		throw new IllegalArgumentException("Invalid time in tariff band " + key + ": " + value);
+	}
+
+	private static long parseAmount(Properties rules, String key, long defaultValue) {
+		String value = rules.getProperty(key);
+		return value == null ? defaultValue : parseAmount(key, value);
+	}
+
+	private static long parseAmount(String key, String value) {
+		try {
+			long amount = Long.parseLong(value.trim());
+			if (amount >= 0) {
+				return amount;
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+	}
+
+	private static int toRate(String key, long ratePerHourInCents) {
+		if (ratePerHourInCents > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Rate too large for " + key + ": " + ratePerHourInCents);
+		}
+		return (int) ratePerHourInCents;
+	}
+}
@@ -0,0 +1,105 @@
+package com.parkit.parkingsystem.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TariffProvider {
+	private static final Logger logger = LogManager.getLogger("TariffProvider");
+	private static final String DEFAULT_RESOURCE = "tariff.properties";
+
+	private final Path file;
+	private volatile Tariff tariff;
+	private volatile FileTime lastModified;
+	private ScheduledExecutorService watcher;
+
+	public TariffProvider() {
+		this.file = null;
+		this.tariff = loadDefault();
+	}
+
+	public TariffProvider(Path file) {
+		this.file = file;
+		try {
+			this.lastModified = Files.getLastModifiedTime(file);
+			this.tariff = load(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read tariff file " + file, e);
+		}
+		logger.info("Loaded tariff from " + file);
+	}
+
+	public Tariff getTariff() {
+		return tariff;
+	}
+
+	public synchronized boolean reload() {
+		if (file == null) {
+			return false;
+		}
+		try {
+			FileTime modified = Files.getLastModifiedTime(file);
+			if (modified.equals(lastModified)) {
+				return false;
+			}
+			Tariff reloaded = load(file);
+			lastModified = modified;
+			tariff = reloaded;
+			logger.info("Reloaded tariff from " + file);
+			return true;
+		} catch (IOException | IllegalArgumentException e) {
+			logger.error("Unable to reload tariff from " + file + ", keeping the current tariff", e);
+			return false;
+		}
+	}
+
+	public synchronized void watch(long intervalMillis) {
+		if (file == null || watcher != null || intervalMillis <= 0) {
+			return;
+		}
+		watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "tariff-watcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		watcher.scheduleWithFixedDelay(this::reload, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void close() {
+		if (watcher != null) {
+			watcher.shutdownNow();
+			watcher = null;
+		}
+	}
+
+	private static Tariff load(Path file) throws IOException {
+		Properties rules = new Properties();
+		try (InputStream input = Files.newInputStream(file)) {
+			rules.load(input);
+		}
+		return Tariff.compile(rules);
+	}
+
+	private static Tariff loadDefault() {
+		try (InputStream input = TariffProvider.class.getClassLoader().getResourceAsStream(DEFAULT_RESOURCE)) {
+			if (input != null) {
+				Properties rules = new Properties();
+				rules.load(input);
+				return Tariff.compile(rules);
+			}
+		} catch (IOException e) {
+			logger.error("Error reading " + DEFAULT_RESOURCE + ", using the built-in tariff", e);
+		}
+		return Tariff.defaultTariff();
+	}
+}
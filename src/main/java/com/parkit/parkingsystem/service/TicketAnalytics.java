@@ -0,0 +1,260 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.RevenueRollup;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.RevenueBucket;
+import com.parkit.parkingsystem.model.TicketHistory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Revenue, dwell time and occupancy over the ticket history of a period, computed in one pass. Tickets are streamed
+ * into a TicketHistory, grouped by the day they started in, and days are aggregated in parallel by a fork-join task
+ * that splits the period until each piece holds few enough tickets, then merges the partial sums.
+ *
+ * Revenue is counted in the hour a ticket was paid, dwell time for tickets closed within the period, and occupancy
+ * at occupancyResolutionMinutes: a vehicle counts as present in every slot from the one it entered in up to, but not
+ * including, the one it left in.
+ */
+public class TicketAnalytics {
+	private static final Logger logger = LogManager.getLogger("TicketAnalytics");
+	private static final long MINUTE = 60_000L;
+	private static final long HOUR = 60 * MINUTE;
+	private static final long DAY = 24 * HOUR;
+	private static final int TYPES = ParkingType.values().length;
+	private static final int LEAF_ROWS = 16_384;
+
+	private final TicketDAO ticketDAO;
+	private final ForkJoinPool pool;
+	private final int fetchSize;
+	private final int dwellBucketMinutes;
+	private final int dwellBuckets;
+	private final int occupancyResolutionMinutes;
+
+	public TicketAnalytics(TicketDAO ticketDAO) {
+		this(ticketDAO, ForkJoinPool.commonPool(), 10_000, 15, 96, 5);
+	}
+
+	/* dwell times past dwellBuckets * dwellBucketMinutes all land in one extra overflow bucket */
+	public TicketAnalytics(TicketDAO ticketDAO, ForkJoinPool pool, int fetchSize, int dwellBucketMinutes,
+			int dwellBuckets, int occupancyResolutionMinutes) {
+		this.ticketDAO = ticketDAO;
+		this.pool = pool;
+		this.fetchSize = fetchSize;
+		this.dwellBucketMinutes = dwellBucketMinutes;
+		this.dwellBuckets = dwellBuckets;
+		this.occupancyResolutionMinutes = occupancyResolutionMinutes;
+	}
+
+	/* reports on the tickets of the configured storage between two dates given as yyyy-MM-dd, the last 7 days by default */
+	public static void loadAnalytics(String[] args) {
+		LocalDate to = args.length > 2 ? LocalDate.parse(args[2]) : LocalDate.now().plusDays(1);
+		LocalDate from = args.length > 1 ? LocalDate.parse(args[1]) : to.minusDays(7);
+		ParkingComponents parkingComponents = new ParkingComponents();
+		DataBaseConfig dataBaseConfig = parkingComponents.dataBaseConfig;
+		int parallelism = dataBaseConfig.getIntProperty("analytics.parallelism", 0);
+		ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+		try {
+			TicketAnalytics ticketAnalytics = new TicketAnalytics(parkingComponents.getTicketDAO(), pool,
+					dataBaseConfig.getIntProperty("analytics.fetchSize", 10_000),
+					dataBaseConfig.getIntProperty("analytics.dwellBucketMinutes", 15),
+					dataBaseConfig.getIntProperty("analytics.dwellBuckets", 96),
+					dataBaseConfig.getIntProperty("analytics.occupancyResolutionMinutes", 5));
+			AnalyticsReport report = ticketAnalytics.analyze(
+					Date.from(from.atStartOfDay(ZoneId.systemDefault()).toInstant()),
+					Date.from(to.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+			if (report == null) {
+				logger.error("Unable to read the ticket history");
+			} else {
+				System.out.println(report);
+			}
+		} finally {
+			if (pool != ForkJoinPool.commonPool()) {
+				pool.shutdown();
+			}
+			parkingComponents.close();
+		}
+	}
+
+	/* daily revenue per parking type read from the revenue rollup, without scanning tickets */
+	public static void loadRevenue(String[] args) {
+		LocalDate to = args.length > 2 ? LocalDate.parse(args[2]) : LocalDate.now().plusDays(1);
+		LocalDate from = args.length > 1 ? LocalDate.parse(args[1]) : to.minusDays(7);
+		List<RevenueBucket> days = new RevenueRollup(new DataBaseConfig()).getDailyRevenue(
+				Date.from(from.atStartOfDay(ZoneId.systemDefault()).toInstant()),
+				Date.from(to.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+		if (days == null) {
+			logger.error("Unable to read the revenue rollup");
+			return;
+		}
+		for (RevenueBucket day : days) {
+			System.out.println(day);
+		}
+	}
+
+	/* null when the ticket history could not be read */
+	public AnalyticsReport analyze(Date from, Date to) {
+		long start = System.nanoTime();
+		TicketHistory history = new TicketHistory(fetchSize);
+		if (!ticketDAO.streamTicketHistory(from, to, fetchSize, history)) {
+			return null;
+		}
+		AnalyticsReport report = aggregate(history, from, to);
+		logger.info("Analysed " + history.size() + " tickets in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+		return report;
+	}
+
+	public AnalyticsReport aggregate(TicketHistory history, Date from, Date to) {
+		Period period = new Period(from.getTime(), to.getTime());
+		int days = (int) ((period.end - period.start + DAY - 1) / DAY);
+		int[] dayStart = new int[days + 1];
+		for (int row = 0; row < history.size(); row++) {
+			dayStart[dayOf(history.getInTime(row), period.start, days) + 1]++;
+		}
+		for (int day = 0; day < days; day++) {
+			dayStart[day + 1] += dayStart[day];
+		}
+		int[] rows = new int[history.size()];
+		int[] next = dayStart.clone();
+		for (int row = 0; row < history.size(); row++) {
+			rows[next[dayOf(history.getInTime(row), period.start, days)]++] = row;
+		}
+
+		Partial total = days == 0 ? period.newPartial()
+				: pool.invoke(new DayRangeTask(period, history, rows, dayStart, 0, days));
+		int slots = period.occupancySlots;
+		int[] occupancy = new int[TYPES * slots];
+		for (int type = 0; type < TYPES; type++) {
+			int present = 0;
+			for (int slot = 0; slot < slots; slot++) {
+				present += total.occupancyChanges[type * (slots + 1) + slot];
+				occupancy[type * slots + slot] = present;
+			}
+		}
+		return new AnalyticsReport(from, period.hours, total.revenueInCents, dwellBucketMinutes, dwellBuckets + 1,
+				total.dwellCounts, occupancyResolutionMinutes, slots, occupancy, total.tickets);
+	}
+
+	/* tickets started before the period belong to its first day */
+	private static int dayOf(long inTime, long start, int days) {
+		return (int) Math.min(days - 1, Math.max(0, (inTime - start) / DAY));
+	}
+
+	private final class Period {
+		private final long start;
+		private final long end;
+		private final int hours;
+		private final int occupancySlots;
+
+		private Period(long start, long end) {
+			this.start = start;
+			this.end = Math.max(start, end);
+			this.hours = (int) ((this.end - start + HOUR - 1) / HOUR);
+			long slotMillis = occupancyResolutionMinutes * MINUTE;
+			this.occupancySlots = (int) ((this.end - start + slotMillis - 1) / slotMillis);
+		}
+
+		private Partial newPartial() {
+			return new Partial(this);
+		}
+	}
+
+	private final class Partial {
+		private final Period period;
+		private final long[] revenueInCents;
+		private final long[] dwellCounts;
+		private final int[] occupancyChanges;
+		private long tickets;
+
+		private Partial(Period period) {
+			this.period = period;
+			revenueInCents = new long[TYPES * period.hours];
+			dwellCounts = new long[TYPES * (dwellBuckets + 1)];
+			occupancyChanges = new int[TYPES * (period.occupancySlots + 1)];
+		}
+
+		private void add(TicketHistory history, int row) {
+			int type = history.getTypeOrdinal(row);
+			long inTime = history.getInTime(row);
+			long outTime = history.getOutTime(row);
+			boolean closedInPeriod = outTime >= period.start && outTime < period.end;
+			if (closedInPeriod) {
+				revenueInCents[type * period.hours + (int) ((outTime - period.start) / HOUR)]
+						+= history.getPriceInCents(row);
+				int bucket = (int) Math.min(dwellBuckets, Math.max(0, outTime - inTime) / (dwellBucketMinutes * MINUTE));
+				dwellCounts[type * (dwellBuckets + 1) + bucket]++;
+			}
+			int slots = period.occupancySlots;
+			long slotMillis = occupancyResolutionMinutes * MINUTE;
+			int firstSlot = (int) (Math.max(0, inTime - period.start) / slotMillis);
+			int endSlot = closedInPeriod ? (int) ((outTime - period.start) / slotMillis) : slots;
+			if (endSlot > firstSlot && firstSlot < slots) {
+				occupancyChanges[type * (slots + 1) + firstSlot]++;
+				occupancyChanges[type * (slots + 1) + endSlot]--;
+			}
+			tickets++;
+		}
+
+		private Partial merge(Partial other) {
+			addInto(revenueInCents, other.revenueInCents);
+			addInto(dwellCounts, other.dwellCounts);
+			for (int index = 0; index < occupancyChanges.length; index++) {
+				occupancyChanges[index] += other.occupancyChanges[index];
+			}
+			tickets += other.tickets;
+			return this;
+		}
+
+		private void addInto(long[] target, long[] source) {
+			for (int index = 0; index < target.length; index++) {
+				target[index] += source[index];
+			}
+		}
+	}
+
+	private final class DayRangeTask extends RecursiveTask<Partial> {
+		private static final long serialVersionUID = 1L;
+
+		private final Period period;
+		private final TicketHistory history;
+		private final int[] rows;
+		private final int[] dayStart;
+		private final int firstDay;
+		private final int endDay;
+
+		private DayRangeTask(Period period, TicketHistory history, int[] rows, int[] dayStart, int firstDay,
+				int endDay) {
+			this.period = period;
+			this.history = history;
+			this.rows = rows;
+			this.dayStart = dayStart;
+			this.firstDay = firstDay;
+			this.endDay = endDay;
+		}
+
+		@Override
+		protected Partial compute() {
+			if (endDay - firstDay == 1 || dayStart[endDay] - dayStart[firstDay] <= LEAF_ROWS) {
+				Partial partial = period.newPartial();
+				for (int index = dayStart[firstDay]; index < dayStart[endDay]; index++) {
+					partial.add(history, rows[index]);
+				}
+				return partial;
+			}
+			int middleDay = (firstDay + endDay) >>> 1;
+			DayRangeTask later = new DayRangeTask(period, history, rows, dayStart, middleDay, endDay);
+			later.fork();
+			Partial earlier = new DayRangeTask(period, history, rows, dayStart, firstDay, middleDay).compute();
+			return earlier.merge(later.join());
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.util.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Background job keeping the ticket table small: tickets closed more than retentionDays ago are moved to ticket_archive
+ * in transactions of at most batchSize tickets, pausing between them so gates never wait long on the locks it takes.
+ * Each run also makes sure ticket_archive has a partition for next year, so tickets never pile up in pmax.
+ */
+public class TicketArchiver {
+	private static final Logger logger = LogManager.getLogger("TicketArchiver");
+	private static final long DAY = 24 * 3_600_000L;
+
+	private final TicketDAO ticketDAO;
+	private final int retentionDays;
+	private final int batchSize;
+	private final long batchPauseMillis;
+	private final LongAdder archived = MetricsRegistry.getDefault().counter("archive.tickets");
+	private volatile boolean closed;
+	private int partitionedThroughYear;
+	private ScheduledExecutorService scheduler;
+
+	public TicketArchiver(TicketDAO ticketDAO, int retentionDays, int batchSize, long batchPauseMillis) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+		}
+		this.ticketDAO = ticketDAO;
+		this.retentionDays = retentionDays;
+		this.batchSize = batchSize;
+		this.batchPauseMillis = batchPauseMillis;
+	}
+
+	public synchronized void start(long intervalMillis) {
+		if (scheduler != null || intervalMillis <= 0) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ticket-archiver");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(() -> archive(new Date()), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/* archives batch after batch until none is full, returning the number of tickets moved */
+	public long archive(Date now) {
+		addNextYearPartition(now);
+		Date closedBefore = new Date(now.getTime() - retentionDays * DAY);
+		long total = 0;
+		while (!closed) {
+			int moved = ticketDAO.archiveClosedTickets(closedBefore, batchSize);
+			if (moved <= 0) {
+				break;
+			}
+			total += moved;
+			archived.add(moved);
+			if (moved < batchSize) {
+				break;
+			}
+			try {
+				Thread.sleep(batchPauseMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		if (total > 0) {
+			logger.info("Archived " + total + " tickets closed before " + closedBefore);
+		}
+		return total;
+	}
+
+	private void addNextYearPartition(Date now) {
+		int nextYear = now.toInstant().atZone(ZoneId.systemDefault()).getYear() + 1;
+		if (nextYear <= partitionedThroughYear) {
+			return;
+		}
+		int added = ticketDAO.addArchivePartitions(nextYear);
+		if (added < 0) {
+			logger.error("Unable to add archive partitions through " + nextYear + ", new tickets go to pmax meanwhile");
+			return;
+		}
+		if (added > 0) {
+			logger.info("Added " + added + " archive partitions through " + nextYear);
+		}
+		partitionedThroughYear = nextYear;
+	}
+
+	public void close() {
+		closed = true;
+		synchronized (this) {
+			if (scheduler != null) {
+				scheduler.shutdownNow();
+				scheduler = null;
+			}
+		}
+	}
+}
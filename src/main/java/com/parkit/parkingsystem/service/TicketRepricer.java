@@ -0,0 +1,155 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.UserRecurrence;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Prices the tickets closed in a period again with another tariff, to compare before switching to it. Tickets are
+ * streamed from the database in batches that are priced on a pool of threads while the next ones are read. At most
+ * two batches per thread are in memory at once: reading waits for a batch to finish when that many are queued, so the
+ * size of the period does not matter. Tickets whose price changes are written to a RepricingSink.
+ */
+public class TicketRepricer {
+	private static final Logger logger = LogManager.getLogger("TicketRepricer");
+
+	private final TicketDAO ticketDAO;
+	private final FareCalculatorService fareCalculatorService;
+	private final RepricingSink sink;
+	private final int parallelism;
+	private final int fetchSize;
+	private final int batchSize;
+
+	public TicketRepricer(TicketDAO ticketDAO, FareCalculatorService fareCalculatorService, RepricingSink sink,
+			int parallelism, int fetchSize, int batchSize) {
+		this.ticketDAO = ticketDAO;
+		this.fareCalculatorService = fareCalculatorService;
+		this.sink = sink;
+		this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+		this.fetchSize = fetchSize;
+		this.batchSize = batchSize;
+	}
+
+	/*
+	 * Re-prices the tickets of the configured storage closed between two dates given as yyyy-MM-dd, the last 30 days
+	 * by default, with the tariff file given first.
+	 */
+	public static void loadRepricing(String[] args) {
+		if (args.length < 2) {
+			System.out.println("Usage: --reprice <tariff file> [from] [to]");
+			return;
+		}
+		LocalDate to = args.length > 3 ? LocalDate.parse(args[3]) : LocalDate.now().plusDays(1);
+		LocalDate from = args.length > 2 ? LocalDate.parse(args[2]) : to.minusDays(30);
+		ParkingComponents parkingComponents = new ParkingComponents();
+		DataBaseConfig dataBaseConfig = parkingComponents.dataBaseConfig;
+		TariffProvider tariffProvider = new TariffProvider(Paths.get(args[1]));
+		String output = dataBaseConfig.getProperty("reprice.output", "repricing.csv");
+		try (RepricingSink sink = "table".equals(output)
+				? new TableRepricingSink(parkingComponents.getTicketDAO(), UUID.randomUUID().toString())
+				: new CsvRepricingSink(Paths.get(output))) {
+			RepricingReport report = new TicketRepricer(parkingComponents.getTicketDAO(),
+					new FareCalculatorService(tariffProvider), sink,
+					dataBaseConfig.getIntProperty("reprice.parallelism", 0),
+					dataBaseConfig.getIntProperty("reprice.fetchSize", 10_000),
+					dataBaseConfig.getIntProperty("reprice.batchSize", 5_000))
+					.reprice(Date.from(from.atStartOfDay(ZoneId.systemDefault()).toInstant()),
+							Date.from(to.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+			if (report == null) {
+				logger.error("Re-pricing failed, its output is incomplete");
+			} else {
+				System.out.println(report);
+				System.out.println(sink instanceof TableRepricingSink
+						? "Changes saved in ticket_repricing under run " + ((TableRepricingSink) sink).getRunId()
+						: "Changes written to " + output);
+			}
+		} catch (IOException e) {
+			logger.error("Unable to write the re-pricing output", e);
+		} finally {
+			tariffProvider.close();
+			parkingComponents.close();
+		}
+	}
+
+	/* null when the tickets could not be read or the changes could not be written */
+	public RepricingReport reprice(Date from, Date to) {
+		long start = System.nanoTime();
+		int maxInFlight = parallelism * 2;
+		Semaphore inFlight = new Semaphore(maxInFlight);
+		AtomicReference<Exception> failure = new AtomicReference<>();
+		LongAdder tickets = new LongAdder();
+		LongAdder changedTickets = new LongAdder();
+		LongAdder oldRevenue = new LongAdder();
+		LongAdder newRevenue = new LongAdder();
+		ExecutorService pricers = Executors.newFixedThreadPool(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, "ticket-repricer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		boolean read;
+		try {
+			read = ticketDAO.streamClosedTickets(from, to, fetchSize, batchSize, batch -> {
+				if (failure.get() != null) {
+					throw new IllegalStateException("Re-pricing stopped after a failed batch", failure.get());
+				}
+				inFlight.acquireUninterruptibly();
+				pricers.execute(() -> {
+					try {
+						long[] newPrices = price(batch, changedTickets, oldRevenue, newRevenue);
+						sink.write(batch, newPrices);
+						tickets.add(batch.size());
+					} catch (Exception e) {
+						failure.compareAndSet(null, e);
+					} finally {
+						inFlight.release();
+					}
+				});
+			});
+			inFlight.acquireUninterruptibly(maxInFlight);
+		} finally {
+			pricers.shutdownNow();
+		}
+		if (failure.get() != null) {
+			logger.error("Error re-pricing tickets", failure.get());
+			return null;
+		}
+		return read ? new RepricingReport(tickets.sum(), changedTickets.sum(), oldRevenue.sum(), newRevenue.sum(),
+				System.nanoTime() - start) : null;
+	}
+
+	private long[] price(ClosedTicketBatch batch, LongAdder changedTickets, LongAdder oldRevenue,
+			LongAdder newRevenue) {
+		long[] newPrices = new long[batch.size()];
+		long changed = 0;
+		long oldSum = 0;
+		long newSum = 0;
+		for (int row = 0; row < batch.size(); row++) {
+			newPrices[row] = fareCalculatorService.calculateFare(batch.getInTime(row), batch.getOutTime(row),
+					batch.getParkingType(row), batch.getVisit(row) >= UserRecurrence.MIN_TICKET_COUNT);
+			oldSum += batch.getPriceInCents(row);
+			newSum += newPrices[row];
+			if (newPrices[row] != batch.getPriceInCents(row)) {
+				changed++;
+			}
+		}
+		changedTickets.add(changed);
+		oldRevenue.add(oldSum);
+		newRevenue.add(newSum);
+		return newPrices;
+	}
+}
@@ -3,20 +3,39 @@ package com.parkit.parkingsystem.util;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.util.Scanner;
 
 public class InputReaderUtil {
 
-	private static Scanner scan = new Scanner(System.in);
+	private static final Scanner systemIn = new Scanner(System.in);
 	private static final Logger logger = LogManager.getLogger("InputReaderUtil");
 
+	private final Scanner scan;
+	private final PrintStream out;
+
+	public InputReaderUtil() {
+		this.scan = systemIn;
+		this.out = null;
+	}
+
+	public InputReaderUtil(InputStream in, PrintStream out) {
+		this.scan = new Scanner(in);
+		this.out = out;
+	}
+
+	public boolean hasInput() {
+		return scan.hasNextLine();
+	}
+
 	public int readSelection() {
 		try {
 			int input = Integer.parseInt(scan.nextLine());
 			return input;
 		} catch (Exception e) {
 			logger.error("Error while reading user input from Shell", e);
-			System.out.println("Error reading input. Please enter valid number for proceeding further");
+			output().println("Error reading input. Please enter valid number for proceeding further");
 			return -1;
 		}
 	}
@@ -30,8 +49,12 @@ public class InputReaderUtil {
 			return vehicleRegNumber;
 		} catch (Exception e) {
 			logger.error("Error while reading user input from Shell", e);
-			System.out.println("Error reading input. Please enter a valid string for vehicle registration number");
+			output().println("Error reading input. Please enter a valid string for vehicle registration number");
 			throw e;
 		}
 	}
+
+	private PrintStream output() {
+		return out != null ? out : System.out;
+	}
 }
@@ -0,0 +1,114 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Lock-free latency histogram. Values are bucketed by power of two with 16 linear sub-buckets each, so percentiles
+ * are reported within about 6% of the recorded value whatever the range. Buckets are striped by thread so that
+ * concurrent recorders of similar latencies do not all contend on the same counter.
+ */
+public class LatencyRecorder {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = 64 * SUB_BUCKETS;
+	private static final int STRIPES = Integer.highestOneBit(Math.min(8, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+
+	private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public LatencyRecorder() {
+		for (int stripe = 0; stripe < STRIPES; stripe++) {
+			stripes[stripe] = new AtomicLongArray(BUCKETS);
+		}
+	}
+
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		stripes[(int) Thread.currentThread().getId() & (STRIPES - 1)].getAndIncrement(bucketIndex(value));
+		totalNanos.add(value);
+		if (value > maxNanos.get()) {
+			maxNanos.accumulateAndGet(value, Math::max);
+		}
+	}
+
+	public long getCount() {
+		long samples = 0;
+		for (int index = 0; index < BUCKETS; index++) {
+			samples += bucket(index);
+		}
+		return samples;
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	public long getMeanNanos() {
+		long samples = getCount();
+		return samples == 0 ? 0 : totalNanos.sum() / samples;
+	}
+
+	public long getPercentileNanos(double percentile) {
+		long[] counts = new long[BUCKETS];
+		long samples = 0;
+		for (int index = 0; index < BUCKETS; index++) {
+			counts[index] = bucket(index);
+			samples += counts[index];
+		}
+		if (samples == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(samples * percentile / 100));
+		long seen = 0;
+		for (int index = 0; index < BUCKETS; index++) {
+			seen += counts[index];
+			if (seen >= rank) {
+				return Math.min(upperBound(index), maxNanos.get());
+			}
+		}
+		return maxNanos.get();
+	}
+
+	public String summary() {
+		return String.format("count=%d mean=%.3fms p50=%.3fms p99=%.3fms p999=%.3fms max=%.3fms", getCount(),
+				millis(getMeanNanos()), millis(getPercentileNanos(50)), millis(getPercentileNanos(99)),
+				millis(getPercentileNanos(99.9)), millis(getMaxNanos()));
+	}
+
+	private long bucket(int index) {
+		long samples = 0;
+		for (AtomicLongArray stripe : stripes) {
+			samples += stripe.get(index);
+		}
+		return samples;
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	private static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	private static long upperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lowerBound + (1L << shift) - 1;
+	}
+}
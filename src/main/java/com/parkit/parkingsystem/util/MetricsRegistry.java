@@ -0,0 +1,195 @@
+package com.parkit.parkingsystem.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+ * Named counters, latency histograms and gauges. Recording is lock-free and allocation-free once a metric has been
+ * looked up, so hot paths keep the returned LongAdder or LatencyRecorder in a field. Everything registered here is
+ * readable through JMX and as Prometheus style text.
+ */
+public class MetricsRegistry {
+	private static final Logger logger = LogManager.getLogger("MetricsRegistry");
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+	private static final double[] PERCENTILES = {50, 99, 99.9};
+	private static final String[] QUANTILES = {"0.5", "0.99", "0.999"};
+
+	private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+	private final Map<String, LatencyRecorder> timers = new ConcurrentSkipListMap<>();
+	private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+	public static MetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	public LongAdder counter(String name) {
+		return counters.computeIfAbsent(name, key -> new LongAdder());
+	}
+
+	public LatencyRecorder timer(String name) {
+		return timers.computeIfAbsent(name, key -> new LatencyRecorder());
+	}
+
+	/* replaces any gauge registered under the same name */
+	public void gauge(String name, LongSupplier value) {
+		gauges.put(name, value);
+	}
+
+	public void removeGauge(String name) {
+		gauges.remove(name);
+	}
+
+	public void registerMBean(String objectName) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(objectName);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(new MetricsMBean(), name);
+			}
+		} catch (JMException e) {
+			logger.error("Unable to register metrics MBean " + objectName, e);
+		}
+	}
+
+	public String scrape() {
+		StringBuilder out = new StringBuilder(4096);
+		for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+			String name = exposedName(counter.getKey()) + "_total";
+			out.append("# TYPE ").append(name).append(" counter\n");
+			out.append(name).append(' ').append(counter.getValue().sum()).append('\n');
+		}
+		for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+			String name = exposedName(gauge.getKey());
+			out.append("# TYPE ").append(name).append(" gauge\n");
+			out.append(name).append(' ').append(readGauge(gauge.getKey(), gauge.getValue())).append('\n');
+		}
+		for (Map.Entry<String, LatencyRecorder> timer : timers.entrySet()) {
+			String name = exposedName(timer.getKey()) + "_nanos";
+			LatencyRecorder recorder = timer.getValue();
+			out.append("# TYPE ").append(name).append(" summary\n");
+			for (int index = 0; index < PERCENTILES.length; index++) {
+				out.append(name).append("{quantile=\"").append(QUANTILES[index]).append("\"} ")
+						.append(recorder.getPercentileNanos(PERCENTILES[index])).append('\n');
+			}
+			out.append(name).append("_count ").append(recorder.getCount()).append('\n');
+			out.append(name).append("_sum ").append(recorder.getTotalNanos()).append('\n');
+			out.append(name).append("_max ").append(recorder.getMaxNanos()).append('\n');
+		}
+		return out.toString();
+	}
+
+	private static String exposedName(String name) {
+		return name.replaceAll("[^A-Za-z0-9_]", "_");
+	}
+
+	private static long readGauge(String name, LongSupplier gauge) {
+		try {
+			return gauge.getAsLong();
+		} catch (RuntimeException e) {
+			logger.error("Unable to read gauge " + name, e);
+			return -1;
+		}
+	}
+
+	/* flat view for JMX: counters and gauges by name, timers as <name>.count, .mean, .p50, .p99, .p999 and .max */
+	private class MetricsMBean implements DynamicMBean {
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			LongAdder counter = counters.get(attribute);
+			if (counter != null) {
+				return counter.sum();
+			}
+			LongSupplier gauge = gauges.get(attribute);
+			if (gauge != null) {
+				return readGauge(attribute, gauge);
+			}
+			int dot = attribute.lastIndexOf('.');
+			LatencyRecorder timer = dot < 0 ? null : timers.get(attribute.substring(0, dot));
+			if (timer != null) {
+				switch (attribute.substring(dot + 1)) {
+					case "count":
+						return timer.getCount();
+					case "mean":
+						return timer.getMeanNanos();
+					case "p50":
+						return timer.getPercentileNanos(50);
+					case "p99":
+						return timer.getPercentileNanos(99);
+					case "p999":
+						return timer.getPercentileNanos(99.9);
+					case "max":
+						return timer.getMaxNanos();
+					default:
+				}
+			}
+			throw new AttributeNotFoundException(attribute);
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			AttributeList list = new AttributeList();
+			for (String attribute : attributes) {
+				try {
+					list.add(new Attribute(attribute, getAttribute(attribute)));
+				} catch (AttributeNotFoundException e) {
+					/* JMX leaves unknown attributes out of the result */
+				}
+			}
+			return list;
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("Metrics are read-only");
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) {
+			throw new UnsupportedOperationException(actionName);
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			List<MBeanAttributeInfo> attributes = new ArrayList<>();
+			for (String name : counters.keySet()) {
+				attributes.add(attribute(name, "Counter"));
+			}
+			for (String name : gauges.keySet()) {
+				attributes.add(attribute(name, "Gauge"));
+			}
+			for (String name : timers.keySet()) {
+				for (String suffix : new String[]{"count", "mean", "p50", "p99", "p999", "max"}) {
+					attributes.add(attribute(name + "." + suffix, "Latency in nanoseconds"));
+				}
+			}
+			return new MBeanInfo(MetricsRegistry.class.getName(), "Parking system metrics",
+					attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+		}
+
+		private MBeanAttributeInfo attribute(String name, String description) {
+			return new MBeanAttributeInfo(name, "long", description, true, false, false);
+		}
+	}
+}
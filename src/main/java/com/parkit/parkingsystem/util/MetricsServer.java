@@ -0,0 +1,60 @@
+package com.parkit.parkingsystem.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Serves MetricsRegistry.scrape() as plain text on GET /metrics, for Prometheus or a quick curl.
+ */
+public class MetricsServer {
+	private static final Logger logger = LogManager.getLogger("MetricsServer");
+
+	private final MetricsRegistry metricsRegistry;
+	private HttpServer httpServer;
+
+	public MetricsServer(MetricsRegistry metricsRegistry) {
+		this.metricsRegistry = metricsRegistry;
+	}
+
+	public synchronized void start(InetSocketAddress address) throws IOException {
+		httpServer = HttpServer.create(address, 16);
+		httpServer.createContext("/metrics", this::serve);
+		httpServer.start();
+		logger.info("Metrics available on http://" + address.getHostString() + ":" + getPort() + "/metrics");
+	}
+
+	public synchronized int getPort() {
+		return httpServer.getAddress().getPort();
+	}
+
+	public synchronized void close() {
+		if (httpServer != null) {
+			httpServer.stop(0);
+			httpServer = null;
+		}
+	}
+
+	private void serve(HttpExchange exchange) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] body = metricsRegistry.scrape().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+}
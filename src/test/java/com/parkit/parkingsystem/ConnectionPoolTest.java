@@ -0,0 +1,141 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolTest {
+
+	private ConnectionPool connectionPool;
+
+	@AfterEach
+	public void tearDown() {
+		if (connectionPool != null) {
+			connectionPool.close();
+		}
+	}
+
+	private static Connection validConnection() throws SQLException {
+		Connection con = mock(Connection.class);
+		lenient().when(con.isValid(anyInt())).thenReturn(true);
+		lenient().when(con.getAutoCommit()).thenReturn(true);
+		return con;
+	}
+
+	@Test
+	public void shouldReuseReleasedConnection() throws SQLException {
+		ConnectionPool.ConnectionFactory factory = mock(ConnectionPool.ConnectionFactory.class);
+		Connection con = validConnection();
+		when(factory.create()).thenReturn(con);
+		connectionPool = new ConnectionPool(factory, 0, 2, 60000, 100, 1, 0);
+
+		Connection first = connectionPool.borrow();
+		connectionPool.release(first);
+		Connection second = connectionPool.borrow();
+
+		assertThat(second).isSameAs(first);
+		verify(factory, times(1)).create();
+		assertThat(connectionPool.getActiveConnections()).isEqualTo(1);
+		assertThat(connectionPool.getIdleConnections()).isEqualTo(0);
+		assertThat(connectionPool.getBorrowCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldDiscardInvalidConnectionOnBorrow() throws SQLException {
+		ConnectionPool.ConnectionFactory factory = mock(ConnectionPool.ConnectionFactory.class);
+		Connection stale = validConnection();
+		Connection fresh = validConnection();
+		when(factory.create()).thenReturn(stale, fresh);
+		connectionPool = new ConnectionPool(factory, 0, 2, 60000, 100, 1, 0);
+
+		connectionPool.release(connectionPool.borrow());
+		when(stale.isValid(anyInt())).thenReturn(false);
+
+		assertThat(connectionPool.borrow()).isSameAs(fresh);
+		verify(stale).close();
+	}
+
+	@Test
+	public void shouldTimeOutWhenPoolIsExhausted() throws SQLException {
+		ConnectionPool.ConnectionFactory factory = mock(ConnectionPool.ConnectionFactory.class);
+		when(factory.create()).thenAnswer(invocation -> validConnection());
+		connectionPool = new ConnectionPool(factory, 0, 1, 60000, 50, 1, 0);
+
+		connectionPool.borrow();
+
+		assertThrows(SQLTimeoutException.class, () -> connectionPool.borrow());
+		assertThat(connectionPool.getTotalConnections()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldEvictIdleConnectionsAboveMinSize() throws Exception {
+		ConnectionPool.ConnectionFactory factory = mock(ConnectionPool.ConnectionFactory.class);
+		when(factory.create()).thenAnswer(invocation -> validConnection());
+		connectionPool = new ConnectionPool(factory, 1, 3, 0, 100, 1, 0);
+
+		Connection first = connectionPool.borrow();
+		Connection second = connectionPool.borrow();
+		connectionPool.release(first);
+		connectionPool.release(second);
+		Thread.sleep(5);
+
+		connectionPool.maintain();
+
+		assertThat(connectionPool.getIdleConnections()).isEqualTo(1);
+		assertThat(connectionPool.getEvictedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldReusePreparedStatementsPerConnection() throws SQLException {
+		ConnectionPool.ConnectionFactory factory = mock(ConnectionPool.ConnectionFactory.class);
+		Connection con = validConnection();
+		PreparedStatement ps = mock(PreparedStatement.class);
+		when(factory.create()).thenReturn(con);
+		when(con.prepareStatement(anyString())).thenReturn(ps);
+		connectionPool = new ConnectionPool(factory, 0, 1, 60000, 100, 1, 0, 8);
+
+		Connection borrowed = connectionPool.borrow();
+		PreparedStatement first = connectionPool.prepareStatement(borrowed, "select 1");
+		connectionPool.release(borrowed);
+		borrowed = connectionPool.borrow();
+		PreparedStatement second = connectionPool.prepareStatement(borrowed, "select 1");
+
+		assertThat(second).isSameAs(first);
+		assertThat(connectionPool.isCached(second)).isTrue();
+		verify(con, times(1)).prepareStatement("select 1");
+		assertThat(connectionPool.getStatementCacheHits()).isEqualTo(1);
+		assertThat(connectionPool.getStatementCacheMisses()).isEqualTo(1);
+		assertThat(connectionPool.getStatementCacheHitRatio()).isEqualTo(0.5);
+	}
+
+	@Test
+	public void shouldCloseLeastRecentlyUsedStatementWhenCacheIsFull() throws SQLException {
+		ConnectionPool.ConnectionFactory factory = mock(ConnectionPool.ConnectionFactory.class);
+		Connection con = validConnection();
+		PreparedStatement oldest = mock(PreparedStatement.class);
+		PreparedStatement newest = mock(PreparedStatement.class);
+		when(factory.create()).thenReturn(con);
+		when(con.prepareStatement("select 1")).thenReturn(oldest);
+		when(con.prepareStatement("select 2")).thenReturn(newest);
+		connectionPool = new ConnectionPool(factory, 0, 1, 60000, 100, 1, 0, 1);
+
+		Connection borrowed = connectionPool.borrow();
+		connectionPool.prepareStatement(borrowed, "select 1");
+		connectionPool.prepareStatement(borrowed, "select 2");
+
+		verify(oldest).close();
+		assertThat(connectionPool.isCached(oldest)).isFalse();
+		assertThat(connectionPool.isCached(newest)).isTrue();
+	}
+}
@@ -2,7 +2,6 @@ package com.parkit.parkingsystem;
 
 import com.parkit.parkingsystem.constants.Fare;
 import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.constants.UserRecurrence;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.service.FareCalculatorService;
@@ -40,7 +39,7 @@ public class FareCalculatorServiceTest {
 		ticket.setOutTime(outTime);
 		ticket.setParkingSpot(parkingSpot);
 		fareCalculatorService.calculateFare(ticket);
-		assertEquals(ticket.getPrice(), Fare.CAR_RATE_PER_HOUR);
+		assertEquals(Fare.CAR_RATE_PER_HOUR_IN_CENTS, ticket.getPriceInCents());
 	}
 
 	@Test
@@ -54,7 +53,7 @@ public class FareCalculatorServiceTest {
 		ticket.setOutTime(outTime);
 		ticket.setParkingSpot(parkingSpot);
 		fareCalculatorService.calculateFare(ticket);
-		assertEquals(ticket.getPrice(), Fare.BIKE_RATE_PER_HOUR);
+		assertEquals(Fare.BIKE_RATE_PER_HOUR_IN_CENTS, ticket.getPriceInCents());
 	}
 
 	@Test
@@ -96,11 +95,11 @@ public class FareCalculatorServiceTest {
 
 		ticket.setParkingSpot(parkingSpotBike);
 		fareCalculatorService.calculateFare(ticket);
-		assertEquals((0.5 * Fare.BIKE_RATE_PER_HOUR), ticket.getPrice());
+		assertEquals(50, ticket.getPriceInCents());
 
 		ticket.setParkingSpot(parkingSpotCar);
 		fareCalculatorService.calculateFare(ticket);
-		assertEquals((0.5 * Fare.CAR_RATE_PER_HOUR), ticket.getPrice());
+		assertEquals(75, ticket.getPriceInCents());
 	}
 
 	@Test
@@ -116,11 +115,11 @@ public class FareCalculatorServiceTest {
 
 		ticket.setParkingSpot(parkingSpotBike);
 		fareCalculatorService.calculateFare(ticket);
-		assertEquals(0, ticket.getPrice());
+		assertEquals(0, ticket.getPriceInCents());
 
 		ticket.setParkingSpot(parkingSpotCar);
 		fareCalculatorService.calculateFare(ticket);
-		assertEquals(0, ticket.getPrice());
+		assertEquals(0, ticket.getPriceInCents());
 	}
 
 	@Test
@@ -134,7 +133,7 @@ public class FareCalculatorServiceTest {
 		ticket.setOutTime(outTime);
 		ticket.setParkingSpot(parkingSpot);
 		fareCalculatorService.calculateFare(ticket);
-		assertEquals((0.75 * Fare.BIKE_RATE_PER_HOUR), ticket.getPrice());
+		assertEquals(75, ticket.getPriceInCents());
 	}
 
 	@Test
@@ -148,7 +147,7 @@ public class FareCalculatorServiceTest {
 		ticket.setOutTime(outTime);
 		ticket.setParkingSpot(parkingSpot);
 		fareCalculatorService.calculateFare(ticket);
-		assertEquals((0.75 * Fare.CAR_RATE_PER_HOUR), ticket.getPrice());
+		assertEquals(113, ticket.getPriceInCents());
 	}
 
 	@Test
@@ -162,7 +161,7 @@ public class FareCalculatorServiceTest {
 		ticket.setOutTime(outTime);
 		ticket.setParkingSpot(parkingSpot);
 		fareCalculatorService.calculateFare(ticket);
-		assertEquals((24 * Fare.CAR_RATE_PER_HOUR), ticket.getPrice());
+		assertEquals(24 * Fare.CAR_RATE_PER_HOUR_IN_CENTS, ticket.getPriceInCents());
 	}
 
 	@Test
@@ -177,12 +176,44 @@ public class FareCalculatorServiceTest {
 		ticket.setOutTime(outTime);
 		ticket.setParkingSpot(parkingSpotBike);
 		fareCalculatorService.calculateFare(ticket, true);
-		assertEquals((1.5 * Fare.BIKE_RATE_PER_HOUR) * UserRecurrence.DISCOUNT_RATE, ticket.getPrice());
+		assertEquals(143, ticket.getPriceInCents());
 
 		ticket.setInTime(inTime);
 		ticket.setOutTime(outTime);
 		ticket.setParkingSpot(parkingSpotCar);
 		fareCalculatorService.calculateFare(ticket, true);
-		assertEquals((1.5 * Fare.CAR_RATE_PER_HOUR) * UserRecurrence.DISCOUNT_RATE, ticket.getPrice());
+		assertEquals(214, ticket.getPriceInCents());
+	}
+
+	@Test
+	public void calculateFareWithoutOutTime() {
+		ticket.setInTime(new Date());
+		ticket.setOutTime(null);
+		ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+
+		assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFare(ticket));
+	}
+
+	@Test
+	public void calculateFareInCentsFromEpochMillis() {
+		long outTime = 1704888000000L;
+
+		assertEquals(150, fareCalculatorService.calculateFare(outTime - (60 * 60 * 1000), outTime, ParkingType.CAR, false));
+		assertEquals(100, fareCalculatorService.calculateFare(outTime - (60 * 60 * 1000), outTime, ParkingType.BIKE, false));
+		assertEquals(0, fareCalculatorService.calculateFare(outTime - (29 * 60 * 1000), outTime, ParkingType.CAR, false));
+		assertEquals(214, fareCalculatorService.calculateFare(outTime - (90 * 60 * 1000), outTime, ParkingType.CAR, true));
+		assertThrows(IllegalArgumentException.class,
+				() -> fareCalculatorService.calculateFare(outTime + 1, outTime, ParkingType.CAR, false));
+	}
+
+	@Test
+	public void calculateFareRoundsHalfUpToTheCent() {
+		long outTime = 1704888000000L;
+
+		assertEquals(113, fareCalculatorService.calculateFare(outTime - (45 * 60 * 1000), outTime, ParkingType.CAR, false));
+		assertEquals(143, fareCalculatorService.calculateFare(outTime - (90 * 60 * 1000), outTime, ParkingType.BIKE, true));
+		assertEquals(49, fareCalculatorService.calculateFare(outTime - (31 * 60 * 1000), outTime, ParkingType.BIKE, true));
+		assertEquals(Fare.CAR_RATE_PER_HOUR_IN_CENTS * 1000,
+				fareCalculatorService.calculateFare(outTime - (1000L * 60 * 60 * 1000), outTime, ParkingType.CAR, false));
 	}
 }
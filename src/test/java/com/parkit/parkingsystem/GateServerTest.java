@@ -0,0 +1,119 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateServer;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class GateServerTest {
+	private static final String SPOT_PREFIX = "Please park your vehicle in spot number:";
+
+	@Mock
+	private ParkingSpotDAO parkingSpotDAO;
+	@Mock
+	private TicketDAO ticketDAO;
+
+	private GateServer gateServer;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		AtomicInteger nextSpot = new AtomicInteger();
+		when(parkingSpotDAO.claimNextAvailableSlot(anyString(), any(ParkingType.class), any(AllocationStrategy.class))).thenAnswer(invocation -> nextSpot.incrementAndGet());
+		when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+		when(ticketDAO.getTicketsCount(anyString())).thenReturn(0);
+
+		gateServer = new GateServer(new ParkingService(null, parkingSpotDAO, ticketDAO), InetAddress.getLoopbackAddress(), 0);
+		gateServer.start(0);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		gateServer.close();
+	}
+
+	@Test
+	public void gatesAreServedConcurrentlyWithTheirOwnInputAndOutput() throws Exception {
+		int gateCount = 32;
+		int entriesPerGate = 5;
+		ExecutorService gates = Executors.newFixedThreadPool(gateCount);
+		List<Future<List<Integer>>> results = new ArrayList<>();
+		try {
+			for (int gate = 0; gate < gateCount; gate++) {
+				String regNumber = "GATE" + gate;
+				Callable<List<Integer>> session = () -> runGate(regNumber, entriesPerGate);
+				results.add(gates.submit(session));
+			}
+
+			Set<Integer> spots = ConcurrentHashMap.newKeySet();
+			for (Future<List<Integer>> result : results) {
+				List<Integer> gateSpots = result.get();
+				assertThat(gateSpots).hasSize(entriesPerGate);
+				spots.addAll(gateSpots);
+			}
+			assertThat(spots).hasSize(gateCount * entriesPerGate);
+		} finally {
+			gates.shutdownNow();
+		}
+
+		verify(ticketDAO, times(gateCount * entriesPerGate)).saveTicket(any(Ticket.class));
+		assertThat(gateServer.getEntryLatency().getCount()).isEqualTo(gateCount * entriesPerGate);
+		assertThat(gateServer.getEntryLatency().getPercentileNanos(99)).isPositive();
+	}
+
+	private List<Integer> runGate(String regNumber, int entries) throws Exception {
+		List<Integer> spots = new ArrayList<>();
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), gateServer.getPort());
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+			for (int entry = 0; entry < entries; entry++) {
+				out.println(1);
+				out.println(1);
+				out.println(regNumber);
+			}
+			out.println(3);
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.startsWith(SPOT_PREFIX)) {
+					spots.add(Integer.parseInt(line.substring(SPOT_PREFIX.length())));
+				}
+				if (line.startsWith("Recorded in-time for vehicle number:")) {
+					assertThat(line).startsWith("Recorded in-time for vehicle number:" + regNumber + " ");
+				}
+			}
+		}
+		return spots;
+	}
+}
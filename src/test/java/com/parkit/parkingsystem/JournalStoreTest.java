@@ -0,0 +1,184 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JournalStore;
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JournalStoreTest {
+
+	@TempDir
+	Path directory;
+
+	private JournalStore journalStore;
+
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		journalStore = open();
+		journalStore.seedParkingSpots(Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true),
+				new ParkingSpot(2, ParkingType.CAR, true), new ParkingSpot(3, ParkingType.BIKE, true)));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		journalStore.close();
+	}
+
+	private JournalStore open() throws Exception {
+		JournalStore store = new JournalStore(directory, 0, false);
+		store.open();
+		return store;
+	}
+
+	private void park(String vehicleRegNumber, Date inTime) {
+		int parkingNumber = journalStore.getParkingSpotDAO().claimNextAvailableSlot(ParkingType.CAR);
+		Ticket ticket = new Ticket();
+		ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+		ticket.setVehicleRegNumber(vehicleRegNumber);
+		ticket.setInTime(inTime);
+		assertThat(journalStore.getTicketDAO().saveTicket(ticket)).isTrue();
+	}
+
+	private void leave(String vehicleRegNumber, long priceInCents) {
+		Ticket ticket = journalStore.getTicketDAO().getOpenTicket(vehicleRegNumber);
+		ticket.setOutTime(new Date());
+		ticket.setPriceInCents(priceInCents);
+		assertThat(journalStore.getTicketDAO().updateTicket(ticket)).isTrue();
+		ParkingSpot parkingSpot = ticket.getParkingSpot();
+		parkingSpot.setAvailable(true);
+		assertThat(journalStore.getParkingSpotDAO().updateParking(parkingSpot)).isTrue();
+	}
+
+	@Test
+	public void claimsSavesAndUpdatesAreServedFromMemory() {
+		park("ABCDEF", new Date(System.currentTimeMillis() - 7200 * 1000));
+		park("GHIJKL", new Date(System.currentTimeMillis() - 3600 * 1000));
+
+		assertThat(journalStore.getParkingSpotDAO().claimNextAvailableSlot(ParkingType.CAR)).isEqualTo(-1);
+		assertThat(journalStore.getTicketDAO().getTicket("GHIJKL").getParkingSpot().getId()).isEqualTo(2);
+
+		assertThat(journalStore.getTicketDAO().getOpenTicket("ABCDEF")).isNotNull();
+		leave("ABCDEF", 300);
+
+		assertThat(journalStore.getTicketDAO().getOpenTicket("ABCDEF")).isNull();
+		Ticket closed = journalStore.getTicketDAO().getTicket("ABCDEF");
+		closed.setPriceInCents(450);
+		assertThat(journalStore.getTicketDAO().updateTicket(closed)).isFalse();
+		assertThat(journalStore.getParkingSpotDAO().getNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+		assertThat(journalStore.getTicketDAO().getTicket("ABCDEF").getPriceInCents()).isEqualTo(300);
+		assertThat(journalStore.getTicketDAO().getTicketsCount("ABCDEF")).isEqualTo(1);
+		assertThat(journalStore.getTicketDAO().getTicket("UNKNOWN")).isNull();
+	}
+
+	@Test
+	public void stateIsRebuiltFromTheLogAndFromSnapshots() throws Exception {
+		park("ABCDEF", new Date(System.currentTimeMillis() - 7200 * 1000));
+		leave("ABCDEF", 300);
+		journalStore.compact();
+		assertThat(journalStore.getLogSize()).isZero();
+		assertThat(Files.exists(directory.resolve("parking.log"))).isFalse();
+		assertThat(Files.exists(directory.resolve("parking.log.1"))).isTrue();
+		park("ABCDEF", new Date(System.currentTimeMillis() - 3600 * 1000));
+		journalStore.close();
+		Files.write(directory.resolve("parking.log"), new byte[0]);
+
+		journalStore = open();
+
+		Ticket ticket = journalStore.getTicketDAO().getTicket("ABCDEF");
+		assertThat(ticket.getId()).isEqualTo(2);
+		assertThat(ticket.getOutTime()).isNull();
+		assertThat(journalStore.getTicketDAO().getTicketsCount("ABCDEF")).isEqualTo(2);
+		assertThat(journalStore.getParkingSpotDAO().getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+		assertThat(journalStore.getParkingSpotDAO().getParkingSpots()).hasSize(3);
+		assertThat(Files.exists(directory.resolve("parking.log"))).isFalse();
+	}
+
+	@Test
+	public void failedCompactionIsRetriedOnlyOnceTheLogHasDoubled() throws Exception {
+		Path storeDirectory = directory.resolve("backoff");
+		Path blockedSnapshot = storeDirectory.resolve("parking.snapshot.tmp");
+		Files.createDirectories(blockedSnapshot);
+		JournalStore store = new JournalStore(storeDirectory, 100, false);
+		store.open();
+		try {
+			store.seedParkingSpots(Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true)));
+			boolean available = true;
+			while (store.getLogSize() < 100) {
+				available = !available;
+				assertThat(store.getParkingSpotDAO().updateParking(new ParkingSpot(1, ParkingType.CAR, available)))
+						.isTrue();
+			}
+			int failedAt = store.getLogSize();
+			Files.delete(blockedSnapshot);
+
+			int largest = failedAt;
+			while (store.getLogSize() > 0) {
+				largest = Math.max(largest, store.getLogSize());
+				available = !available;
+				assertThat(store.getParkingSpotDAO().updateParking(new ParkingSpot(1, ParkingType.CAR, available)))
+						.isTrue();
+			}
+
+			assertThat(largest).isGreaterThan(failedAt);
+			assertThat(store.getParkingSpotDAO().getNextAvailableSlot(ParkingType.CAR))
+					.isEqualTo(available ? 1 : 0);
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	public void tornTailOfTheLogIsIgnored() throws Exception {
+		park("ABCDEF", new Date());
+		int validSize = journalStore.getLogSize();
+		journalStore.close();
+		try (FileChannel channel = FileChannel.open(directory.resolve("parking.log"), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 'T', 9, 9}), validSize);
+		}
+
+		journalStore = open();
+
+		assertThat(journalStore.getLogSize()).isEqualTo(validSize);
+		assertThat(journalStore.getTicketDAO().getTicketsCount("ABCDEF")).isEqualTo(1);
+		park("GHIJKL", new Date());
+		journalStore.close();
+		journalStore = open();
+		assertThat(journalStore.getTicketDAO().getTicket("GHIJKL").getId()).isEqualTo(2);
+		assertThat(Files.exists(directory.resolve("parking.snapshot"))).isFalse();
+	}
+
+	@Test
+	public void closedTicketsAreStreamedWithTheirVisitNumber() {
+		park("ABCDEF", new Date(System.currentTimeMillis() - 7200 * 1000));
+		leave("ABCDEF", 300);
+		park("ABCDEF", new Date(System.currentTimeMillis() - 3600 * 1000));
+		leave("ABCDEF", 150);
+		park("GHIJKL", new Date());
+		List<ClosedTicketBatch> batches = new ArrayList<>();
+
+		assertThat(journalStore.getTicketDAO().streamClosedTickets(new Date(System.currentTimeMillis() - 60_000),
+				new Date(System.currentTimeMillis() + 60_000), 100, 1, batches::add)).isTrue();
+
+		assertThat(batches).hasSize(2);
+		assertThat(batches.get(0).getVisit(0)).isEqualTo(1);
+		assertThat(batches.get(0).getPriceInCents(0)).isEqualTo(300);
+		assertThat(batches.get(1).getVisit(0)).isEqualTo(2);
+	}
+}
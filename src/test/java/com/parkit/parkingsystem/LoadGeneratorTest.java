@@ -0,0 +1,65 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JournalStore;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.LoadGenerator;
+import com.parkit.parkingsystem.service.LoadProfile;
+import com.parkit.parkingsystem.service.LoadReport;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoadGeneratorTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void replaysADayOfTrafficWithoutDoubleAllocations() throws Exception {
+		LoadProfile profile = new LoadProfile();
+		profile.setThreads(4);
+		profile.setSimulatedHours(12);
+		profile.setArrivalsPerHour(20);
+		profile.setSliceMinutes(15);
+		profile.setCarSpots(8);
+		profile.setBikeSpots(2);
+
+		JournalStore journalStore = new JournalStore(tempDir, 1 << 20, false);
+		journalStore.open();
+		try {
+			List<ParkingSpot> parkingSpots = new ArrayList<>();
+			for (int number = 1; number <= 10; number++) {
+				parkingSpots.add(new ParkingSpot(number, number <= 8 ? ParkingType.CAR : ParkingType.BIKE, true));
+			}
+			journalStore.seedParkingSpots(parkingSpots);
+			ParkingService parkingService = new ParkingService(journalStore.getParkingSpotDAO(),
+					journalStore.getTicketDAO(), null, null, new FareCalculatorService());
+
+			LoadReport report = new LoadGenerator(parkingService, profile, new Date(0)).run();
+
+			assertThat(report.getDoubleAllocations()).isZero();
+			assertThat(report.getEntries(EntryResult.Status.PARKED)).isPositive();
+			assertThat(report.getEntries(EntryResult.Status.NO_SPOT_AVAILABLE)).isPositive();
+			assertThat(report.getEntries(EntryResult.Status.FAILED)).isZero();
+			assertThat(report.getExits(ExitResult.Status.PAID)).isPositive();
+			assertThat(report.getExits(ExitResult.Status.TICKET_NOT_FOUND)).isZero();
+			assertThat(report.getPeakOccupied()).isLessThanOrEqualTo(10);
+			assertThat(report.getEntryLatency().getCount()).isEqualTo(report.getEntries(EntryResult.Status.PARKED)
+					+ report.getEntries(EntryResult.Status.NO_SPOT_AVAILABLE));
+			assertThat(report.toString()).contains("double allocations 0");
+		} finally {
+			journalStore.close();
+		}
+	}
+}
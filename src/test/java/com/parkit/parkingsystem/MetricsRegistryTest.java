@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.MetricsRegistry;
+import com.parkit.parkingsystem.util.MetricsServer;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricsRegistryTest {
+
+	@Test
+	public void scrapeListsCountersGaugesAndTimers() {
+		MetricsRegistry metrics = new MetricsRegistry();
+		metrics.counter("parking.entry.parked").add(3);
+		AtomicLong occupied = new AtomicLong(2);
+		metrics.gauge("parking.spots.occupied.CAR", occupied::get);
+		for (int sample = 1; sample <= 100; sample++) {
+			metrics.timer("dao.ticket.saveTicket").record(sample * 1000L);
+		}
+		occupied.set(5);
+
+		String text = metrics.scrape();
+
+		assertThat(text).contains("# TYPE parking_entry_parked_total counter\nparking_entry_parked_total 3\n");
+		assertThat(text).contains("parking_spots_occupied_CAR 5\n");
+		assertThat(text).contains("dao_ticket_saveTicket_nanos_count 100\n");
+		assertThat(text).contains("dao_ticket_saveTicket_nanos_sum 5050000\n");
+		assertThat(text).contains("dao_ticket_saveTicket_nanos_max 100000\n");
+		assertThat(text).containsPattern("dao_ticket_saveTicket_nanos\\{quantile=\"0.5\"} 5\\d{4}\n");
+		assertThat(text).contains("dao_ticket_saveTicket_nanos{quantile=\"0.999\"} 100000\n");
+	}
+
+	@Test
+	public void metricsAreReadableThroughJmx() throws Exception {
+		MetricsRegistry metrics = new MetricsRegistry();
+		metrics.counter("parking.exit.paid").increment();
+		metrics.timer("parking.exit").record(42);
+		metrics.registerMBean("com.parkit.parkingsystem:type=Metrics,name=MetricsRegistryTest");
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("com.parkit.parkingsystem:type=Metrics,name=MetricsRegistryTest");
+		try {
+			assertThat(server.getAttribute(name, "parking.exit.paid")).isEqualTo(1L);
+			assertThat(server.getAttribute(name, "parking.exit.count")).isEqualTo(1L);
+			assertThat(server.getAttribute(name, "parking.exit.max")).isEqualTo(42L);
+			assertThat(server.getMBeanInfo(name).getAttributes()).hasSize(7);
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+
+	@Test
+	public void metricsServerServesTheScrapeAsText() throws Exception {
+		MetricsRegistry metrics = new MetricsRegistry();
+		metrics.counter("parking.entry.failed").increment();
+		MetricsServer server = new MetricsServer(metrics);
+		server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + "/metrics")
+					.openConnection();
+			assertThat(connection.getResponseCode()).isEqualTo(200);
+			assertThat(connection.getContentType()).startsWith("text/plain");
+			try (InputStream in = connection.getInputStream()) {
+				assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).contains("parking_entry_failed_total 1");
+			}
+		} finally {
+			server.close();
+		}
+	}
+}
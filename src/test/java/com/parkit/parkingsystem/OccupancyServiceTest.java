@@ -0,0 +1,117 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.OccupancySnapshot;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.OccupancyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OccupancyServiceTest {
+
+	private OccupancyService occupancyService;
+
+	@BeforeEach
+	public void setUpPerTest() {
+		/* deliver on the publishing thread so every assertion sees a settled state */
+		occupancyService = new OccupancyService(Runnable::run);
+		occupancyService.load(Arrays.asList(new ParkingSpot(1, ParkingType.CAR, false),
+				new ParkingSpot(2, ParkingType.CAR, true), new ParkingSpot(3, ParkingType.CAR, true),
+				new ParkingSpot(4, ParkingType.BIKE, true)));
+	}
+
+	@Test
+	public void countersFollowAllocationsAndReleases() {
+		occupancyService.allocated(ParkingType.CAR);
+		occupancyService.allocated(ParkingType.BIKE);
+		occupancyService.released(ParkingType.CAR);
+		occupancyService.released(ParkingType.CAR);
+		occupancyService.released(ParkingType.CAR);
+
+		OccupancySnapshot snapshot = occupancyService.getSnapshot();
+		assertThat(snapshot.getTotal(ParkingType.CAR)).isEqualTo(3);
+		assertThat(snapshot.getOccupied(ParkingType.CAR)).isZero();
+		assertThat(snapshot.getFree(ParkingType.CAR)).isEqualTo(3);
+		assertThat(snapshot.getFree(ParkingType.BIKE)).isZero();
+	}
+
+	@Test
+	public void slowSubscribersOnlyReceiveTheLatestSnapshot() {
+		RecordingSubscriber board = new RecordingSubscriber(1);
+		occupancyService.subscribe(board);
+		assertThat(board.received).hasSize(1);
+		assertThat(board.received.get(0).getOccupied(ParkingType.CAR)).isEqualTo(1);
+
+		occupancyService.allocated(ParkingType.CAR);
+		occupancyService.allocated(ParkingType.CAR);
+		occupancyService.released(ParkingType.CAR);
+		assertThat(board.received).hasSize(1);
+
+		board.subscription.request(5);
+		assertThat(board.received).hasSize(2);
+		assertThat(board.received.get(1)).isEqualTo(occupancyService.getSnapshot());
+		assertThat(board.received.get(1).getOccupied(ParkingType.CAR)).isEqualTo(2);
+
+		occupancyService.allocated(ParkingType.BIKE);
+		assertThat(board.received).hasSize(3);
+		assertThat(board.received.get(2).getFree(ParkingType.BIKE)).isZero();
+	}
+
+	@Test
+	public void closingCompletesSubscribersAndCancelledOnesStopReceiving() {
+		RecordingSubscriber board = new RecordingSubscriber(Long.MAX_VALUE);
+		RecordingSubscriber removed = new RecordingSubscriber(Long.MAX_VALUE);
+		occupancyService.subscribe(board);
+		occupancyService.subscribe(removed);
+		assertThat(occupancyService.getSubscriberCount()).isEqualTo(2);
+
+		removed.subscription.cancel();
+		occupancyService.allocated(ParkingType.CAR);
+		occupancyService.close();
+
+		assertThat(board.received).hasSize(2);
+		assertThat(board.completed).isTrue();
+		assertThat(removed.received).hasSize(1);
+		assertThat(removed.completed).isFalse();
+		assertThat(occupancyService.getSubscriberCount()).isZero();
+	}
+
+	private static class RecordingSubscriber implements Flow.Subscriber<OccupancySnapshot> {
+		private final long initialDemand;
+		private final List<OccupancySnapshot> received = new ArrayList<>();
+		private Flow.Subscription subscription;
+		private boolean completed;
+
+		private RecordingSubscriber(long initialDemand) {
+			this.initialDemand = initialDemand;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(initialDemand);
+		}
+
+		@Override
+		public void onNext(OccupancySnapshot item) {
+			received.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			throw new AssertionError(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	}
+}
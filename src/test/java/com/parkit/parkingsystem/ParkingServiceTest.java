@@ -1,10 +1,16 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.AllocationStrategy;
 import com.parkit.parkingsystem.constants.Fare;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.constants.UserRecurrence;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.ExitResult;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.service.ParkingService;
@@ -40,6 +46,8 @@ public class ParkingServiceTest {
 	private static ParkingSpotDAO parkingSpotDAO;
 	@Mock
 	private static TicketDAO ticketDAO;
+	@Mock
+	private static DataBaseConfig dataBaseConfig;
 
 	@Captor
 	private ArgumentCaptor<Ticket> ticketCaptor;
@@ -66,6 +74,7 @@ public class ParkingServiceTest {
 		public void setUp() {
 			try {
 				lenient().when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+				lenient().when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
 			} catch (Exception e) {
 				e.printStackTrace();
 				throw new RuntimeException("Failed to set up INCOMING vehicle test mock objects");
@@ -75,7 +84,7 @@ public class ParkingServiceTest {
 		@Test
 		public void processIncomingCarTest() {
 			when(inputReaderUtil.readSelection()).thenReturn(1);
-			when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(2);
+			when(parkingSpotDAO.claimNextAvailableSlot(anyString(), any(ParkingType.class), any(AllocationStrategy.class))).thenReturn(2);
 
 			parkingService.processIncomingVehicle(new Date());
 
@@ -85,7 +94,7 @@ public class ParkingServiceTest {
 		@Test
 		public void processIncomingBikeTest() {
 			when(inputReaderUtil.readSelection()).thenReturn(2);
-			when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(4);
+			when(parkingSpotDAO.claimNextAvailableSlot(anyString(), any(ParkingType.class), any(AllocationStrategy.class))).thenReturn(4);
 
 			parkingService.processIncomingVehicle(new Date());
 
@@ -96,7 +105,7 @@ public class ParkingServiceTest {
 		public void processNormalUserIncomingVehicleTest() {
 			when(inputReaderUtil.readSelection()).thenReturn(1);
 			when(ticketDAO.getTicketsCount(anyString())).thenReturn(UserRecurrence.MIN_TICKET_COUNT - 1);
-			when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(2);
+			when(parkingSpotDAO.claimNextAvailableSlot(anyString(), any(ParkingType.class), any(AllocationStrategy.class))).thenReturn(2);
 
 			parkingService.processIncomingVehicle(new Date());
 
@@ -108,7 +117,7 @@ public class ParkingServiceTest {
 		public void processRecurrentUserIncomingVehicleTest() {
 			when(inputReaderUtil.readSelection()).thenReturn(1);
 			when(ticketDAO.getTicketsCount(anyString())).thenReturn(UserRecurrence.MIN_TICKET_COUNT);
-			when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(2);
+			when(parkingSpotDAO.claimNextAvailableSlot(anyString(), any(ParkingType.class), any(AllocationStrategy.class))).thenReturn(2);
 
 			parkingService.processIncomingVehicle(new Date());
 
@@ -116,26 +125,37 @@ public class ParkingServiceTest {
 			assertTrue(outputStreamCaptor.toString().trim().contains("Happy to see you again! As a recurring user, you will get a 5% discount."));
 		}
 
+		@Test
+		public void processIncomingVehicleWithoutClaimedSpotTest() {
+			when(inputReaderUtil.readSelection()).thenReturn(1);
+			when(parkingSpotDAO.claimNextAvailableSlot(anyString(), any(ParkingType.class), any(AllocationStrategy.class))).thenReturn(-1);
+
+			parkingService.processIncomingVehicle(new Date());
+
+			verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+			verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+		}
+
 		@Test
 		public void shouldGetNextParkingNumberIfAvailable() {
 			when(inputReaderUtil.readSelection()).thenReturn(1);
-			when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
+			when(parkingSpotDAO.getNextAvailableSlot(anyString(), any(ParkingType.class), any(AllocationStrategy.class))).thenReturn(1);
 
 			ParkingSpot parkingSpot = parkingService.getNextParkingNumberIfAvailable();
 
 			assertNotNull(parkingSpot);
 			assertEquals(1, parkingSpot.getId());
 			assertTrue(parkingSpot.isAvailable());
-			verify(parkingSpotDAO, times(1)).getNextAvailableSlot(any(ParkingType.class));
+			verify(parkingSpotDAO, times(1)).getNextAvailableSlot(anyString(), any(ParkingType.class), any(AllocationStrategy.class));
 		}
 
 		@Test
 		public void shouldDoNothingIfParkingNumberNotFound() {
 			when(inputReaderUtil.readSelection()).thenReturn(1);
-			when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(0);
+			when(parkingSpotDAO.getNextAvailableSlot(anyString(), any(ParkingType.class), any(AllocationStrategy.class))).thenReturn(0);
 
 			assertNull(parkingService.getNextParkingNumberIfAvailable());
-			verify(parkingSpotDAO, times(1)).getNextAvailableSlot(any(ParkingType.class));
+			verify(parkingSpotDAO, times(1)).getNextAvailableSlot(anyString(), any(ParkingType.class), any(AllocationStrategy.class));
 		}
 
 		@Test
@@ -158,7 +178,7 @@ public class ParkingServiceTest {
 				ticket.setParkingSpot(parkingSpot);
 				ticket.setVehicleRegNumber("ABCDEF");
 
-				when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
+				when(ticketDAO.getOpenTicket(anyString())).thenReturn(ticket);
 				when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
 			} catch (Exception e) {
 				e.printStackTrace();
@@ -186,7 +206,7 @@ public class ParkingServiceTest {
 
 				verify(ticketDAO).updateTicket(ticketCaptor.capture());
 				Ticket ticket = ticketCaptor.getValue();
-				assertThat(ticket.getPrice()).isEqualTo(Fare.CAR_RATE_PER_HOUR);
+				assertThat(ticket.getPriceInCents()).isEqualTo(Fare.CAR_RATE_PER_HOUR_IN_CENTS);
 				verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
 			} catch (Exception e) {
 				e.printStackTrace();
@@ -204,7 +224,7 @@ public class ParkingServiceTest {
 
 				verify(ticketDAO).updateTicket(ticketCaptor.capture());
 				Ticket ticket = ticketCaptor.getValue();
-				assertThat(ticket.getPrice()).isEqualTo(Fare.CAR_RATE_PER_HOUR * UserRecurrence.DISCOUNT_RATE);
+				assertThat(ticket.getPriceInCents()).isEqualTo(143);
 				verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
 			} catch (Exception e) {
 				e.printStackTrace();
@@ -212,4 +232,144 @@ public class ParkingServiceTest {
 			}
 		}
 	}
+
+	@Nested
+	class UnitOfWork {
+		@BeforeEach
+		public void setUp() {
+			parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, dataBaseConfig);
+		}
+
+		@Test
+		public void processIncomingVehicleCommitsSingleTransaction() throws Exception {
+			when(inputReaderUtil.readSelection()).thenReturn(1);
+			when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+			when(parkingSpotDAO.claimNextAvailableSlot(anyString(), any(ParkingType.class), any(AllocationStrategy.class))).thenReturn(2);
+			when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+
+			parkingService.processIncomingVehicle(new Date());
+
+			verify(dataBaseConfig, times(1)).beginTransaction();
+			verify(dataBaseConfig, times(1)).commitTransaction();
+			verify(dataBaseConfig, never()).rollbackTransaction();
+		}
+
+		@Test
+		public void processIncomingVehicleRollsBackWhenTicketIsNotSaved() throws Exception {
+			when(inputReaderUtil.readSelection()).thenReturn(1);
+			when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+			when(parkingSpotDAO.claimNextAvailableSlot(anyString(), any(ParkingType.class), any(AllocationStrategy.class))).thenReturn(2);
+			when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(false);
+
+			parkingService.processIncomingVehicle(new Date());
+
+			verify(dataBaseConfig, never()).commitTransaction();
+			verify(dataBaseConfig, times(1)).rollbackTransaction();
+			assertFalse(outputStreamCaptor.toString().contains("Please park your vehicle"));
+		}
+
+		@Test
+		public void processExitingVehicleRollsBackWhenSpotIsNotReleased() throws Exception {
+			Ticket ticket = new Ticket();
+			ticket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+			ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+			ticket.setVehicleRegNumber("ABCDEF");
+			when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+			when(ticketDAO.getOpenTicket(anyString())).thenReturn(ticket);
+			when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
+			when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(false);
+
+			parkingService.processExitingVehicle(new Date());
+
+			verify(dataBaseConfig, times(1)).beginTransaction();
+			verify(dataBaseConfig, never()).commitTransaction();
+			verify(dataBaseConfig, times(1)).rollbackTransaction();
+		}
+	}
+
+	@Nested
+	class RequestApi {
+		@Test
+		public void processIncomingVehicleReturnsParkedTicket() {
+			Date inTime = new Date();
+			when(parkingSpotDAO.claimNextAvailableSlot(eq(ParkingSpot.DEFAULT_SITE), eq(ParkingType.BIKE), any(AllocationStrategy.class))).thenReturn(4);
+			when(ticketDAO.getTicketsCount("ABCDEF")).thenReturn(UserRecurrence.MIN_TICKET_COUNT);
+			when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+
+			EntryResult result = parkingService.processIncomingVehicle(new EntryRequest(ParkingType.BIKE, "ABCDEF", inTime));
+
+			assertThat(result.getStatus()).isEqualTo(EntryResult.Status.PARKED);
+			assertThat(result.getParkingSpot().getId()).isEqualTo(4);
+			assertThat(result.getTicket().getInTime()).isEqualTo(inTime);
+			assertThat(result.isRecurrent()).isTrue();
+			assertThat(outputStreamCaptor.toString()).isEmpty();
+			verifyNoInteractions(inputReaderUtil);
+		}
+
+		@Test
+		public void processIncomingVehicleReportsFullParking() {
+			when(parkingSpotDAO.claimNextAvailableSlot(eq(ParkingSpot.DEFAULT_SITE), eq(ParkingType.CAR), any(AllocationStrategy.class))).thenReturn(-1);
+
+			EntryResult result = parkingService.processIncomingVehicle(new EntryRequest(ParkingType.CAR, "ABCDEF", new Date()));
+
+			assertThat(result.getStatus()).isEqualTo(EntryResult.Status.NO_SPOT_AVAILABLE);
+			assertThat(result.getTicket()).isNull();
+			verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+		}
+
+		@Test
+		public void processIncomingVehicleRejectsIncompleteRequest() {
+			assertThat(parkingService.processIncomingVehicle(new EntryRequest(null, "ABCDEF", new Date())).getStatus())
+					.isEqualTo(EntryResult.Status.INVALID_REQUEST);
+			assertThat(parkingService.processIncomingVehicle(new EntryRequest(ParkingType.CAR, " ", new Date())).getStatus())
+					.isEqualTo(EntryResult.Status.INVALID_REQUEST);
+			verifyNoInteractions(parkingSpotDAO, ticketDAO);
+		}
+
+		@Test
+		public void processExitingVehicleReturnsFare() {
+			Ticket ticket = new Ticket();
+			Date outTime = new Date();
+			ticket.setInTime(new Date(outTime.getTime() - (60 * 60 * 1000)));
+			ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+			ticket.setVehicleRegNumber("ABCDEF");
+			when(ticketDAO.getOpenTicket("ABCDEF")).thenReturn(ticket);
+			when(ticketDAO.updateTicket(ticket)).thenReturn(true);
+			when(parkingSpotDAO.updateParking(ticket.getParkingSpot())).thenReturn(true);
+
+			ExitResult result = parkingService.processExitingVehicle(new ExitRequest("ABCDEF", outTime));
+
+			assertThat(result.getStatus()).isEqualTo(ExitResult.Status.PAID);
+			assertThat(result.getPriceInCents()).isEqualTo(Fare.CAR_RATE_PER_HOUR_IN_CENTS);
+			assertThat(result.getTicket().getOutTime()).isEqualTo(outTime);
+			assertThat(result.getTicket().getParkingSpot().isAvailable()).isTrue();
+		}
+
+		@Test
+		public void processExitingVehicleLosingARaceReportsTicketNotFound() {
+			Ticket ticket = new Ticket();
+			ticket.setId(7);
+			ticket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+			ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+			ticket.setVehicleRegNumber("ABCDEF");
+			when(ticketDAO.getOpenTicket("ABCDEF")).thenReturn(ticket, (Ticket) null);
+			when(ticketDAO.updateTicket(ticket)).thenReturn(false);
+
+			ExitResult result = parkingService.processExitingVehicle(new ExitRequest("ABCDEF", new Date()));
+
+			assertThat(result.getStatus()).isEqualTo(ExitResult.Status.TICKET_NOT_FOUND);
+			verifyNoInteractions(parkingSpotDAO);
+		}
+
+		@Test
+		public void processExitingVehicleReportsUnknownVehicle() {
+			when(ticketDAO.getOpenTicket("UNKNOWN")).thenReturn(null);
+
+			ExitResult result = parkingService.processExitingVehicle(new ExitRequest("UNKNOWN", new Date()));
+
+			assertThat(result.getStatus()).isEqualTo(ExitResult.Status.TICKET_NOT_FOUND);
+			verify(ticketDAO, never()).updateTicket(any(Ticket.class));
+			verifyNoInteractions(parkingSpotDAO);
+		}
+	}
 }
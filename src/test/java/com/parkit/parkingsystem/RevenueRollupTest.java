@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.RevenueRollup;
+import com.parkit.parkingsystem.model.RevenueBucket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RevenueRollupTest {
+	private static final long HOUR = 3_600_000L;
+	private static final long START = 1_700_000_000_000L / HOUR * HOUR;
+
+	@Mock
+	private DataBaseConfig dataBaseConfig;
+	@Mock
+	private Connection connection;
+	@Mock
+	private PreparedStatement preparedStatement;
+	@Mock
+	private ResultSet resultSet;
+
+	private RevenueRollup revenueRollup;
+
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		revenueRollup = new RevenueRollup(dataBaseConfig);
+		when(dataBaseConfig.getConnection()).thenReturn(connection);
+	}
+
+	@Test
+	public void flushAddsOneRowPerHourAndType() throws SQLException {
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.ADD_REVENUE_ROLLUP)).thenReturn(preparedStatement);
+		revenueRollup.record(new Date(START + 10 * 60_000), ParkingType.CAR, 150);
+		revenueRollup.record(new Date(START + 50 * 60_000), ParkingType.CAR, 300);
+		revenueRollup.record(new Date(START + 20 * 60_000), ParkingType.BIKE, 100);
+		revenueRollup.record(new Date(START + HOUR), ParkingType.CAR, 75);
+
+		assertThat(revenueRollup.flush()).isTrue();
+		assertThat(revenueRollup.flush()).isTrue();
+
+		verify(preparedStatement, times(3)).addBatch();
+		verify(preparedStatement, times(2)).setTimestamp(1, new Timestamp(START));
+		verify(preparedStatement).setLong(3, 450L);
+		verify(preparedStatement).setLong(4, 2L);
+		verify(preparedStatement, times(1)).executeBatch();
+		verify(connection).commit();
+	}
+
+	@Test
+	public void failedFlushKeepsTheSumsForTheNextOne() throws SQLException {
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.ADD_REVENUE_ROLLUP)).thenReturn(preparedStatement);
+		when(preparedStatement.executeBatch()).thenThrow(new SQLException("Lock wait timeout")).thenReturn(new int[]{1});
+		revenueRollup.record(new Date(START), ParkingType.CAR, 150);
+
+		assertThat(revenueRollup.flush()).isFalse();
+		revenueRollup.record(new Date(START), ParkingType.CAR, 50);
+		assertThat(revenueRollup.flush()).isTrue();
+
+		verify(connection).rollback();
+		verify(preparedStatement, times(1)).setLong(3, 200L);
+	}
+
+	@Test
+	public void readsCombineTheTableWithSumsNotYetFlushed() throws SQLException {
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.GET_REVENUE_ROLLUP)).thenReturn(preparedStatement);
+		when(preparedStatement.executeQuery()).thenReturn(resultSet);
+		when(resultSet.next()).thenReturn(true, true, false);
+		when(resultSet.getTimestamp(1)).thenReturn(new Timestamp(START), new Timestamp(START + HOUR));
+		when(resultSet.getString(2)).thenReturn("CAR", "BIKE");
+		when(resultSet.getLong(3)).thenReturn(1000L, 200L);
+		when(resultSet.getLong(4)).thenReturn(5L, 2L);
+		revenueRollup.record(new Date(START + 30 * 60_000), ParkingType.CAR, 150);
+		revenueRollup.record(new Date(START + 5 * HOUR), ParkingType.CAR, 999);
+
+		List<RevenueBucket> hourly = revenueRollup.getHourlyRevenue(new Date(START), new Date(START + 2 * HOUR));
+
+		assertThat(hourly).hasSize(2);
+		assertThat(hourly.get(0).getStart()).isEqualTo(new Date(START));
+		assertThat(hourly.get(0).getRevenueInCents()).isEqualTo(1150);
+		assertThat(hourly.get(0).getTickets()).isEqualTo(6);
+		assertThat(hourly.get(1).getParkingType()).isEqualTo(ParkingType.BIKE);
+		verify(preparedStatement).setTimestamp(2, new Timestamp(START + 2 * HOUR));
+		verify(dataBaseConfig, never()).prepareStatement(any(Connection.class), eq(DBConstants.ADD_REVENUE_ROLLUP));
+	}
+}
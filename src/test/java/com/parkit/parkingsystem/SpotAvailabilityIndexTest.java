@@ -0,0 +1,161 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.SiteAllocationPolicy;
+import com.parkit.parkingsystem.service.SpotAvailabilityIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SpotAvailabilityIndexTest {
+
+	@Mock
+	private ParkingSpotDAO parkingSpotDAO;
+
+	private SpotAvailabilityIndex spotAvailabilityIndex;
+
+	@BeforeEach
+	public void setUpPerTest() {
+		List<ParkingSpot> parkingSpots = new ArrayList<>();
+		for (int number = 1; number <= 200; number++) {
+			parkingSpots.add(new ParkingSpot(number, number % 2 == 0 ? ParkingType.BIKE : ParkingType.CAR, number != 1));
+		}
+		when(parkingSpotDAO.getParkingSpots()).thenReturn(parkingSpots);
+		lenient().when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+		spotAvailabilityIndex = new SpotAvailabilityIndex(parkingSpotDAO);
+		spotAvailabilityIndex.load();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		spotAvailabilityIndex.close();
+	}
+
+	@Test
+	public void shouldClaimLowestFreeSpotOfType() {
+		assertThat(spotAvailabilityIndex.lowestAvailable(ParkingType.CAR)).isEqualTo(3);
+		assertThat(spotAvailabilityIndex.claim(ParkingType.CAR).getId()).isEqualTo(3);
+		assertThat(spotAvailabilityIndex.claim(ParkingType.CAR).getId()).isEqualTo(5);
+		assertThat(spotAvailabilityIndex.claim(ParkingType.BIKE).getId()).isEqualTo(2);
+		assertThat(spotAvailabilityIndex.availableCount(ParkingType.CAR)).isEqualTo(97);
+	}
+
+	@Test
+	public void shouldMakeReleasedSpotClaimableAgain() {
+		ParkingSpot parkingSpot = spotAvailabilityIndex.claim(ParkingType.CAR);
+		spotAvailabilityIndex.claim(ParkingType.CAR);
+
+		spotAvailabilityIndex.release(parkingSpot);
+
+		assertThat(spotAvailabilityIndex.claim(ParkingType.CAR).getId()).isEqualTo(parkingSpot.getId());
+	}
+
+	@Test
+	public void shouldWriteChangesBackToDataBase() {
+		ParkingSpot parkingSpot = spotAvailabilityIndex.claim(ParkingType.BIKE);
+		spotAvailabilityIndex.release(parkingSpot);
+
+		assertThat(spotAvailabilityIndex.flush(5, TimeUnit.SECONDS)).isTrue();
+		verify(parkingSpotDAO, times(2)).updateParking(any(ParkingSpot.class));
+	}
+
+	@Test
+	public void shouldNeverHandOutTheSameSpotTwiceUnderContention() throws Exception {
+		int threads = 16;
+		ExecutorService gates = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+		List<Integer> duplicates = new ArrayList<>();
+		try {
+			for (int i = 0; i < threads; i++) {
+				gates.execute(() -> {
+					try {
+						start.await();
+						ParkingSpot parkingSpot;
+						while ((parkingSpot = spotAvailabilityIndex.claim(ParkingType.BIKE)) != null) {
+							if (!claimed.add(parkingSpot.getId())) {
+								synchronized (duplicates) {
+									duplicates.add(parkingSpot.getId());
+								}
+							}
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+			start.countDown();
+			gates.shutdown();
+			assertThat(gates.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			gates.shutdownNow();
+		}
+
+		assertThat(duplicates).isEmpty();
+		assertThat(claimed).hasSize(100);
+		assertThat(spotAvailabilityIndex.availableCount(ParkingType.BIKE)).isZero();
+	}
+
+	@Test
+	public void shouldAllocatePerSiteWithEachSitesStrategy() {
+		Map<String, AllocationStrategy> strategies = new HashMap<>();
+		strategies.put("NORTH", AllocationStrategy.NEAREST_ENTRANCE);
+		strategies.put("SOUTH", AllocationStrategy.SPREAD);
+		when(parkingSpotDAO.getParkingSpots()).thenReturn(Arrays.asList(
+				new ParkingSpot(301, ParkingType.CAR, true, "NORTH", 0, "A", 80),
+				new ParkingSpot(302, ParkingType.CAR, true, "NORTH", 1, "B", 10),
+				new ParkingSpot(303, ParkingType.CAR, true, "NORTH", 0, "A", 40),
+				new ParkingSpot(401, ParkingType.CAR, true, "SOUTH", 0, null, 0),
+				new ParkingSpot(402, ParkingType.CAR, false, "SOUTH", 0, null, 0),
+				new ParkingSpot(411, ParkingType.CAR, true, "SOUTH", 1, null, 0),
+				new ParkingSpot(412, ParkingType.CAR, true, "SOUTH", 1, null, 0),
+				new ParkingSpot(501, ParkingType.CAR, true, "WEST", 1, null, 0),
+				new ParkingSpot(502, ParkingType.CAR, true, "WEST", 0, null, 0)));
+		SpotAvailabilityIndex sites = new SpotAvailabilityIndex(parkingSpotDAO,
+				new SiteAllocationPolicy("NORTH", AllocationStrategy.FILL_BY_LEVEL, strategies));
+		sites.load();
+		try {
+			assertThat(sites.claim(ParkingType.CAR).getId()).isEqualTo(302);
+			assertThat(sites.claim("NORTH", ParkingType.CAR).getId()).isEqualTo(303);
+
+			ParkingSpot spread = sites.claim("SOUTH", ParkingType.CAR);
+			assertThat(spread.getId()).isEqualTo(411);
+			assertThat(spread.getSite()).isEqualTo("SOUTH");
+			assertThat(spread.getLevel()).isEqualTo(1);
+			assertThat(sites.lowestAvailable("SOUTH", ParkingType.CAR)).isEqualTo(401);
+			assertThat(sites.claim("SOUTH", ParkingType.CAR).getId()).isEqualTo(401);
+			sites.release(spread);
+			assertThat(sites.claim("SOUTH", ParkingType.CAR).getId()).isEqualTo(411);
+
+			assertThat(sites.claim("WEST", ParkingType.CAR).getId()).isEqualTo(502);
+			assertThat(sites.claim("EAST", ParkingType.CAR)).isNull();
+			assertThat(sites.availableCount("NORTH", ParkingType.CAR)).isEqualTo(1);
+			assertThat(sites.availableCount(ParkingType.CAR)).isEqualTo(3);
+		} finally {
+			sites.close();
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.Tariff;
+import com.parkit.parkingsystem.service.TariffProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.DayOfWeek;
+import java.time.ZonedDateTime;
+import java.time.ZoneOffset;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TariffTest {
+
+	private static final long MONDAY_MIDNIGHT_UTC = ZonedDateTime.of(2024, 1, 8, 0, 0, 0, 0, ZoneOffset.UTC)
+			.toInstant().toEpochMilli();
+	private static final long MINUTE = 60 * 1000;
+	private static final long HOUR = 60 * MINUTE;
+
+	private static Properties rules(String... keyValues) {
+		Properties rules = new Properties();
+		rules.setProperty("tariff.zone", "UTC");
+		rules.setProperty("tariff.rate.CAR", "150");
+		rules.setProperty("tariff.rate.BIKE", "100");
+		for (int i = 0; i < keyValues.length; i += 2) {
+			rules.setProperty(keyValues[i], keyValues[i + 1]);
+		}
+		return rules;
+	}
+
+	@Test
+	public void bundledTariffMatchesDefaultRates() {
+		Tariff tariff = new TariffProvider().getTariff();
+
+		assertThat(tariff.price(MONDAY_MIDNIGHT_UTC, MONDAY_MIDNIGHT_UTC + HOUR, ParkingType.CAR, false))
+				.isEqualTo(Fare.CAR_RATE_PER_HOUR_IN_CENTS);
+		assertThat(tariff.price(MONDAY_MIDNIGHT_UTC, MONDAY_MIDNIGHT_UTC + 29 * MINUTE, ParkingType.BIKE, false))
+				.isZero();
+		assertThat(tariff.price(MONDAY_MIDNIGHT_UTC, MONDAY_MIDNIGHT_UTC + 90 * MINUTE, ParkingType.CAR, true))
+				.isEqualTo(214);
+	}
+
+	@Test
+	public void bandsOverrideBaseRateByTimeOfDay() {
+		Tariff tariff = Tariff.compile(rules("tariff.band.CAR.peak", "MON-FRI 08:00-19:00 200"));
+		long in = MONDAY_MIDNIGHT_UTC + 7 * HOUR + 30 * MINUTE;
+
+		assertThat(tariff.getRatePerHourInCents(ParkingType.CAR, DayOfWeek.FRIDAY, 8 * 60)).isEqualTo(200);
+		assertThat(tariff.getRatePerHourInCents(ParkingType.CAR, DayOfWeek.SATURDAY, 8 * 60)).isEqualTo(150);
+		assertThat(tariff.getRatePerHourInCents(ParkingType.BIKE, DayOfWeek.FRIDAY, 8 * 60)).isEqualTo(100);
+		assertThat(tariff.price(in, in + HOUR, ParkingType.CAR, false)).isEqualTo(175);
+	}
+
+	@Test
+	public void bandsRunPastMidnightAndWrapAroundTheWeek() {
+		Tariff tariff = Tariff.compile(rules("tariff.band.CAR.night", "SUN 22:00-06:00 60"));
+		long sundayEvening = MONDAY_MIDNIGHT_UTC + 6 * 24 * HOUR + 23 * HOUR;
+
+		assertThat(tariff.getRatePerHourInCents(ParkingType.CAR, DayOfWeek.MONDAY, 5 * 60)).isEqualTo(60);
+		assertThat(tariff.price(sundayEvening, sundayEvening + 2 * HOUR, ParkingType.CAR, false)).isEqualTo(120);
+	}
+
+	@Test
+	public void dailyCapLimitsEachDayParked() {
+		Tariff tariff = Tariff.compile(rules("tariff.dailyCap.CAR", "1000"));
+
+		assertThat(tariff.price(MONDAY_MIDNIGHT_UTC, MONDAY_MIDNIGHT_UTC + 2 * HOUR, ParkingType.CAR, false))
+				.isEqualTo(300);
+		assertThat(tariff.price(MONDAY_MIDNIGHT_UTC, MONDAY_MIDNIGHT_UTC + 50 * HOUR, ParkingType.CAR, false))
+				.isEqualTo(2300);
+		assertThat(tariff.price(MONDAY_MIDNIGHT_UTC, MONDAY_MIDNIGHT_UTC + 50 * HOUR, ParkingType.BIKE, false))
+				.isEqualTo(5000);
+	}
+
+	@Test
+	public void invalidRulesAreRejected() {
+		Properties missingRate = rules();
+		missingRate.remove("tariff.rate.BIKE");
+
+		assertThrows(IllegalArgumentException.class, () -> Tariff.compile(missingRate));
+		assertThrows(IllegalArgumentException.class,
+				() -> Tariff.compile(rules("tariff.band.CAR.peak", "MON-FRI 08:00 200")));
+		assertThrows(IllegalArgumentException.class,
+				() -> Tariff.compile(rules("tariff.band.CAR.peak", "XYZ 08:00-19:00 200")));
+		assertThrows(IllegalArgumentException.class, () -> Tariff.compile(rules("tariff.rate.CAR", "-1")));
+	}
+
+	@Test
+	public void providerReloadsChangedFileAndKeepsTariffOnError(@TempDir Path directory) throws Exception {
+		Path file = directory.resolve("tariff.properties");
+		Files.write(file, "tariff.rate.CAR = 150\ntariff.rate.BIKE = 100\n".getBytes());
+		TariffProvider tariffProvider = new TariffProvider(file);
+
+		assertThat(tariffProvider.reload()).isFalse();
+		Files.write(file, "tariff.rate.CAR = 300\ntariff.rate.BIKE = 100\n".getBytes());
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+		assertThat(tariffProvider.reload()).isTrue();
+		assertThat(tariffProvider.getTariff().price(0, HOUR, ParkingType.CAR, false)).isEqualTo(300);
+
+		Files.write(file, "tariff.rate.CAR = oops\n".getBytes());
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+		assertThat(tariffProvider.reload()).isFalse();
+		assertThat(tariffProvider.getTariff().price(0, HOUR, ParkingType.CAR, false)).isEqualTo(300);
+	}
+}
@@ -0,0 +1,96 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.TicketHistory;
+import com.parkit.parkingsystem.service.AnalyticsReport;
+import com.parkit.parkingsystem.service.TicketAnalytics;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class TicketAnalyticsTest {
+	private static final long MINUTE = 60_000L;
+	private static final long HOUR = 60 * MINUTE;
+	private static final long DAY = 24 * HOUR;
+	private static final long FROM = 1_700_000_000_000L / DAY * DAY;
+
+	private final TicketAnalytics ticketAnalytics = new TicketAnalytics(mock(TicketDAO.class));
+
+	@Test
+	public void revenueDwellAndOccupancyOfAFewTickets() {
+		TicketHistory history = new TicketHistory();
+		/* started the day before, paid in the first hour */
+		history.add(FROM - 2 * HOUR, FROM + 30 * MINUTE, 450, ParkingType.CAR);
+		history.add(FROM + 10 * HOUR, FROM + 10 * HOUR + 20 * MINUTE, 0, ParkingType.CAR);
+		history.add(FROM + DAY + 9 * HOUR, FROM + DAY + 11 * HOUR, 300, ParkingType.CAR);
+		history.add(FROM + DAY + 10 * HOUR, FROM + DAY + 10 * HOUR + 40 * MINUTE, 100, ParkingType.BIKE);
+		/* still parked at the end of the period */
+		history.add(FROM + DAY + 10 * HOUR + 30 * MINUTE, -1, 0, ParkingType.CAR);
+
+		AnalyticsReport report = ticketAnalytics.aggregate(history, new Date(FROM), new Date(FROM + 2 * DAY));
+
+		assertThat(report.getTicketCount()).isEqualTo(5);
+		assertThat(report.getRevenueInCents(ParkingType.CAR, 0)).isEqualTo(450);
+		assertThat(report.getRevenueInCents(ParkingType.CAR, 35)).isEqualTo(300);
+		assertThat(report.getDailyRevenueInCents(ParkingType.CAR, 0)).isEqualTo(450);
+		assertThat(report.getDailyRevenueInCents(ParkingType.CAR, 1)).isEqualTo(300);
+		assertThat(report.getTotalRevenueInCents(ParkingType.BIKE)).isEqualTo(100);
+		assertThat(report.getDwellCount(ParkingType.CAR, 1)).isEqualTo(1);
+		assertThat(report.getDwellCount(ParkingType.CAR, 8)).isEqualTo(1);
+		assertThat(report.getDwellCount(ParkingType.CAR, 10)).isEqualTo(1);
+		assertThat(report.getDwellPercentileMinutes(ParkingType.CAR, 50)).isEqualTo(135);
+		assertThat(report.getDwellPercentileMinutes(ParkingType.BIKE, 50)).isEqualTo(45);
+		assertThat(report.getOccupancy(ParkingType.CAR, 0)).isEqualTo(1);
+		assertThat(report.getOccupancy(ParkingType.CAR, 6)).isZero();
+		assertThat(report.getPeakOccupancy(ParkingType.CAR)).isEqualTo(2);
+		assertThat(report.getPeakOccupancy()).isEqualTo(3);
+		assertThat(report.getOccupancy(ParkingType.CAR, report.getOccupancySlots() - 1)).isEqualTo(1);
+	}
+
+	@Test
+	public void parallelAggregationMatchesASingleThread() {
+		TicketHistory history = new TicketHistory();
+		Random random = new Random(7);
+		for (int row = 0; row < 100_000; row++) {
+			long inTime = FROM - DAY + (long) (random.nextDouble() * 31 * DAY);
+			long outTime = random.nextInt(20) == 0 ? -1 : inTime + (long) (random.nextDouble() * 6 * HOUR);
+			history.add(inTime, outTime, random.nextInt(2000),
+					random.nextBoolean() ? ParkingType.CAR : ParkingType.BIKE);
+		}
+		Date from = new Date(FROM);
+		Date to = new Date(FROM + 30 * DAY);
+
+		ForkJoinPool singleThread = new ForkJoinPool(1);
+		ForkJoinPool fourThreads = new ForkJoinPool(4);
+		try {
+			AnalyticsReport expected = new TicketAnalytics(mock(TicketDAO.class), singleThread, 1000, 15, 96, 5)
+					.aggregate(history, from, to);
+			AnalyticsReport actual = new TicketAnalytics(mock(TicketDAO.class), fourThreads, 1000, 15, 96, 5)
+					.aggregate(history, from, to);
+
+			assertThat(actual.getTicketCount()).isEqualTo(expected.getTicketCount());
+			for (ParkingType parkingType : ParkingType.values()) {
+				assertThat(actual.getTotalRevenueInCents(parkingType))
+						.isEqualTo(expected.getTotalRevenueInCents(parkingType)).isPositive();
+				assertThat(actual.getPeakOccupancy(parkingType)).isEqualTo(expected.getPeakOccupancy(parkingType));
+				for (int day = 0; day < 30; day++) {
+					assertThat(actual.getDailyRevenueInCents(parkingType, day))
+							.isEqualTo(expected.getDailyRevenueInCents(parkingType, day));
+				}
+				for (int bucket = 0; bucket < actual.getDwellBuckets(); bucket++) {
+					assertThat(actual.getDwellCount(parkingType, bucket))
+							.isEqualTo(expected.getDwellCount(parkingType, bucket));
+				}
+			}
+		} finally {
+			singleThread.shutdown();
+			fourThreads.shutdown();
+		}
+	}
+}
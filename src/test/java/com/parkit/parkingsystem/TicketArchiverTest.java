@@ -0,0 +1,56 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.TicketArchiver;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TicketArchiverTest {
+	private static final long DAY = 24 * 3_600_000L;
+
+	private final TicketDAO ticketDAO = mock(TicketDAO.class);
+
+	@Test
+	public void archivesBatchesUntilOneIsNotFull() {
+		Date now = new Date();
+		Date closedBefore = new Date(now.getTime() - 30 * DAY);
+		when(ticketDAO.archiveClosedTickets(closedBefore, 100)).thenReturn(100, 100, 40);
+
+		long archived = new TicketArchiver(ticketDAO, 30, 100, 0).archive(now);
+
+		assertThat(archived).isEqualTo(240);
+		verify(ticketDAO, times(3)).archiveClosedTickets(closedBefore, 100);
+	}
+
+	@Test
+	public void stopsAtTheFirstFailedBatch() {
+		when(ticketDAO.archiveClosedTickets(any(Date.class), eq(100))).thenReturn(100, -1);
+
+		long archived = new TicketArchiver(ticketDAO, 30, 100, 0).archive(new Date());
+
+		assertThat(archived).isEqualTo(100);
+		verify(ticketDAO, times(2)).archiveClosedTickets(any(Date.class), anyInt());
+	}
+
+	@Test
+	public void addsNextYearsArchivePartitionOncePerYear() {
+		Date now = new Date();
+		int nextYear = now.toInstant().atZone(ZoneId.systemDefault()).getYear() + 1;
+		when(ticketDAO.addArchivePartitions(nextYear)).thenReturn(-1, 1);
+		TicketArchiver ticketArchiver = new TicketArchiver(ticketDAO, 30, 100, 0);
+
+		ticketArchiver.archive(now);
+		ticketArchiver.archive(now);
+		ticketArchiver.archive(now);
+
+		verify(ticketDAO, times(2)).addArchivePartitions(nextYear);
+		verify(ticketDAO, times(3)).archiveClosedTickets(any(Date.class), eq(100));
+	}
+}
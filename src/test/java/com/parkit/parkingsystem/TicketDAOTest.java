@@ -0,0 +1,323 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.BatchResult;
+import com.parkit.parkingsystem.dao.RevenueRollup;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.VisitCountCache;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketHistory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TicketDAOTest {
+
+	@Mock
+	private DataBaseConfig dataBaseConfig;
+	@Mock
+	private Connection connection;
+	@Mock
+	private PreparedStatement preparedStatement;
+	@Mock
+	private ResultSet generatedKeys;
+
+	private TicketDAO ticketDAO;
+
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		ticketDAO = new TicketDAO();
+		ticketDAO.dataBaseConfig = dataBaseConfig;
+		when(dataBaseConfig.getConnection()).thenReturn(connection);
+		lenient().when(connection.getAutoCommit()).thenReturn(true);
+	}
+
+	private static Ticket ticket(String vehicleRegNumber) {
+		Ticket ticket = new Ticket();
+		ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+		ticket.setVehicleRegNumber(vehicleRegNumber);
+		ticket.setInTime(new Date());
+		return ticket;
+	}
+
+	@Test
+	public void saveTicketsReturnsGeneratedIdsPerRow() throws SQLException {
+		List<Ticket> tickets = Arrays.asList(ticket("AAA"), ticket("BBB"));
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS))
+				.thenReturn(preparedStatement);
+		when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1});
+		when(preparedStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+		when(generatedKeys.next()).thenReturn(true, true, false);
+		when(generatedKeys.getInt(1)).thenReturn(10, 11);
+
+		BatchResult result = ticketDAO.saveTickets(tickets, 500);
+
+		assertThat(result.getSuccessCount()).isEqualTo(2);
+		assertThat(result.getGeneratedId(0)).isEqualTo(10);
+		assertThat(result.getGeneratedId(1)).isEqualTo(11);
+		assertThat(tickets.get(1).getId()).isEqualTo(11);
+		verify(preparedStatement, times(2)).addBatch();
+		verify(preparedStatement, times(1)).executeBatch();
+		verify(connection, times(1)).commit();
+	}
+
+	@Test
+	public void saveTicketsReportsFailingRowsAfterBatchFailure() throws SQLException {
+		List<Ticket> tickets = Arrays.asList(ticket("AAA"), ticket("BBB"), ticket("CCC"));
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS))
+				.thenReturn(preparedStatement);
+		when(preparedStatement.executeBatch()).thenThrow(new BatchUpdateException("Duplicate entry", new int[0]));
+		when(preparedStatement.executeUpdate())
+				.thenReturn(1)
+				.thenThrow(new SQLException("Cannot add or update a child row"))
+				.thenReturn(1);
+		when(preparedStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+		when(generatedKeys.next()).thenReturn(true);
+		when(generatedKeys.getInt(1)).thenReturn(20, 22);
+
+		BatchResult result = ticketDAO.saveTickets(tickets, 3);
+
+		assertThat(result.getSuccessCount()).isEqualTo(2);
+		assertThat(result.getFailureCount()).isEqualTo(1);
+		assertThat(result.isSuccessful(1)).isFalse();
+		assertThat(result.getFailures()).containsEntry(1, "Cannot add or update a child row");
+		assertThat(result.getGeneratedId(0)).isEqualTo(20);
+		assertThat(result.getGeneratedId(2)).isEqualTo(22);
+	}
+
+	@Test
+	public void updateTicketsSplitsIntoBatches() throws SQLException {
+		List<Ticket> tickets = Arrays.asList(ticket("AAA"), ticket("BBB"), ticket("CCC"));
+		for (Ticket ticket : tickets) {
+			ticket.setOutTime(new Date());
+		}
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.UPDATE_TICKET, Statement.NO_GENERATED_KEYS))
+				.thenReturn(preparedStatement);
+		when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1}, new int[]{0});
+
+		BatchResult result = ticketDAO.updateTickets(tickets, 2);
+
+		verify(preparedStatement, times(2)).executeBatch();
+		assertThat(result.getSuccessCount()).isEqualTo(2);
+		assertThat(result.getFailures()).containsOnlyKeys(2);
+	}
+
+	@Test
+	public void updateTicketsRecordsRevenueOnlyForTicketsItClosed() throws SQLException {
+		RevenueRollup revenueRollup = mock(RevenueRollup.class);
+		ticketDAO.revenueRollup = revenueRollup;
+		List<Ticket> tickets = Arrays.asList(ticket("AAA"), ticket("BBB"), ticket("CCC"));
+		for (Ticket ticket : tickets) {
+			ticket.setOutTime(new Date());
+			ticket.setPriceInCents(150);
+		}
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.UPDATE_TICKET, Statement.NO_GENERATED_KEYS))
+				.thenReturn(preparedStatement);
+		when(preparedStatement.executeBatch()).thenReturn(new int[]{1, Statement.SUCCESS_NO_INFO, 1});
+		when(preparedStatement.executeUpdate()).thenReturn(1, 0, 1);
+		doAnswer(invocation -> {
+			((Runnable) invocation.getArgument(0)).run();
+			return null;
+		}).when(dataBaseConfig).afterCommit(any(Runnable.class));
+
+		BatchResult result = ticketDAO.updateTickets(tickets, 3);
+
+		assertThat(result.getFailures()).containsOnlyKeys(1);
+		verify(preparedStatement, times(3)).executeUpdate();
+		verify(revenueRollup, times(2)).record(any(Date.class), eq(ParkingType.CAR), eq(150L));
+	}
+
+	@Test
+	public void getTicketsCountIsServedFromCacheAndUpdatedOnSave() throws SQLException {
+		ResultSet countResult = mock(ResultSet.class);
+		ticketDAO.visitCountCache = new VisitCountCache(100, 0);
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.GET_TICKETS_COUNT)).thenReturn(preparedStatement);
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.SAVE_TICKET)).thenReturn(preparedStatement);
+		when(preparedStatement.executeQuery()).thenReturn(countResult);
+		when(countResult.next()).thenReturn(true);
+		when(countResult.getInt("linesCount")).thenReturn(1);
+		when(preparedStatement.executeUpdate()).thenReturn(1);
+		doAnswer(invocation -> {
+			((Runnable) invocation.getArgument(0)).run();
+			return null;
+		}).when(dataBaseConfig).afterCommit(any(Runnable.class));
+
+		assertThat(ticketDAO.getTicketsCount("AAA")).isEqualTo(1);
+		assertThat(ticketDAO.getTicketsCount("AAA")).isEqualTo(1);
+		ticketDAO.saveTicket(ticket("AAA"));
+
+		assertThat(ticketDAO.getTicketsCount("AAA")).isEqualTo(2);
+		verify(preparedStatement, times(1)).executeQuery();
+		assertThat(ticketDAO.visitCountCache.getHits()).isEqualTo(2);
+	}
+
+	@Test
+	public void aCountReadWhileASaveCommitsIsNotCached() throws SQLException {
+		ResultSet countResult = mock(ResultSet.class);
+		ticketDAO.visitCountCache = new VisitCountCache(100, 0);
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.GET_TICKETS_COUNT)).thenReturn(preparedStatement);
+		when(preparedStatement.executeQuery()).thenReturn(countResult);
+		when(countResult.next()).thenReturn(true);
+		when(countResult.getInt("linesCount")).thenAnswer(invocation -> {
+			/* another gate's save commits after the count was read, while no entry exists to increment */
+			ticketDAO.visitCountCache.increment("AAA");
+			return 1;
+		}).thenReturn(2);
+
+		assertThat(ticketDAO.getTicketsCount("AAA")).isEqualTo(1);
+		assertThat(ticketDAO.getTicketsCount("AAA")).isEqualTo(2);
+		assertThat(ticketDAO.getTicketsCount("AAA")).isEqualTo(2);
+		verify(preparedStatement, times(2)).executeQuery();
+	}
+
+	@Test
+	public void getOpenTicketLooksUpTheOpenTicketByRegNumber() throws SQLException {
+		ResultSet openTicket = mock(ResultSet.class);
+		Timestamp inTime = new Timestamp(System.currentTimeMillis());
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.GET_OPEN_TICKET)).thenReturn(preparedStatement);
+		when(preparedStatement.executeQuery()).thenReturn(openTicket);
+		when(openTicket.next()).thenReturn(true);
+		when(openTicket.getInt(1)).thenReturn(2);
+		when(openTicket.getInt(2)).thenReturn(42);
+		when(openTicket.getString(6)).thenReturn("CAR");
+		when(openTicket.getTimestamp(4)).thenReturn(inTime);
+
+		Ticket ticket = ticketDAO.getOpenTicket("AAA");
+
+		assertThat(ticket.getId()).isEqualTo(42);
+		assertThat(ticket.getParkingSpot().getId()).isEqualTo(2);
+		assertThat(ticket.getInTime()).isEqualTo(inTime);
+		assertThat(ticket.getOutTime()).isNull();
+		verify(preparedStatement).setString(1, "AAA");
+		verify(dataBaseConfig, never()).prepareStatement(connection, DBConstants.GET_TICKET);
+	}
+
+	@Test
+	public void streamTicketHistoryReadsRowsThroughAStreamingStatement() throws SQLException {
+		ResultSet history = mock(ResultSet.class);
+		Date from = new Date(1_000_000);
+		Date to = new Date(9_000_000);
+		when(dataBaseConfig.prepareStreamingStatement(connection, DBConstants.GET_TICKET_HISTORY, 500))
+				.thenReturn(preparedStatement);
+		when(preparedStatement.executeQuery()).thenReturn(history);
+		when(history.next()).thenReturn(true, true, false);
+		when(history.getTimestamp(1)).thenReturn(new Timestamp(2_000_000), new Timestamp(3_000_000));
+		when(history.getTimestamp(2)).thenReturn(new Timestamp(2_500_000), (Timestamp) null);
+		when(history.getLong(3)).thenReturn(150L, 0L);
+		when(history.getString(4)).thenReturn("CAR", "BIKE");
+		TicketHistory ticketHistory = new TicketHistory();
+
+		assertThat(ticketDAO.streamTicketHistory(from, to, 500, ticketHistory)).isTrue();
+
+		assertThat(ticketHistory.size()).isEqualTo(2);
+		assertThat(ticketHistory.getOutTime(0)).isEqualTo(2_500_000);
+		assertThat(ticketHistory.getPriceInCents(0)).isEqualTo(150);
+		assertThat(ticketHistory.getOutTime(1)).isEqualTo(-1);
+		assertThat(ticketHistory.getParkingType(1)).isEqualTo(ParkingType.BIKE);
+		verify(preparedStatement).setTimestamp(1, new Timestamp(to.getTime()));
+		verify(preparedStatement).setTimestamp(2, new Timestamp(from.getTime()));
+		verify(dataBaseConfig).closeResultSet(history);
+	}
+
+	@Test
+	public void closedTicketsReachTheRevenueRollupAfterCommit() throws SQLException {
+		RevenueRollup revenueRollup = mock(RevenueRollup.class);
+		ticketDAO.revenueRollup = revenueRollup;
+		Ticket ticket = ticket("AAA");
+		ticket.setId(42);
+		ticket.setOutTime(new Date());
+		ticket.setPriceInCents(150);
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.UPDATE_TICKET)).thenReturn(preparedStatement);
+		when(preparedStatement.executeUpdate()).thenReturn(1);
+		Runnable[] afterCommit = new Runnable[1];
+		doAnswer(invocation -> afterCommit[0] = invocation.getArgument(0)).when(dataBaseConfig).afterCommit(any(Runnable.class));
+
+		assertThat(ticketDAO.updateTicket(ticket)).isTrue();
+		verifyNoInteractions(revenueRollup);
+		afterCommit[0].run();
+
+		verify(revenueRollup).record(ticket.getOutTime(), ParkingType.CAR, 150);
+	}
+
+	@Test
+	public void updatingAnAlreadyClosedTicketFails() throws SQLException {
+		RevenueRollup revenueRollup = mock(RevenueRollup.class);
+		ticketDAO.revenueRollup = revenueRollup;
+		Ticket ticket = ticket("AAA");
+		ticket.setId(42);
+		ticket.setOutTime(new Date());
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.UPDATE_TICKET)).thenReturn(preparedStatement);
+		when(preparedStatement.executeUpdate()).thenReturn(0);
+
+		assertThat(ticketDAO.updateTicket(ticket)).isFalse();
+
+		verify(dataBaseConfig, never()).afterCommit(any(Runnable.class));
+		verifyNoInteractions(revenueRollup);
+	}
+
+	@Test
+	public void missingArchiveYearsAreSplitOffPmax() throws SQLException {
+		ResultSet partitions = mock(ResultSet.class);
+		Statement split = mock(Statement.class);
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.GET_ARCHIVE_PARTITIONS)).thenReturn(preparedStatement);
+		when(preparedStatement.executeQuery()).thenReturn(partitions);
+		when(partitions.next()).thenReturn(true, true, true, false);
+		when(partitions.getString(1)).thenReturn("p2026", "p2027", "pmax");
+		when(connection.createStatement()).thenReturn(split);
+
+		assertThat(ticketDAO.addArchivePartitions(2029)).isEqualTo(2);
+		verify(split).execute("alter table ticket_archive reorganize partition pmax into ("
+				+ "partition p2028 values less than (2029), partition p2029 values less than (2030), "
+				+ "partition pmax values less than maxvalue)");
+		verify(dataBaseConfig).closeStatement(split);
+	}
+
+	@Test
+	public void archiveClosedTicketsMovesOneBatchInOneTransaction() throws SQLException {
+		ResultSet batchEnd = mock(ResultSet.class);
+		PreparedStatement archive = mock(PreparedStatement.class);
+		PreparedStatement visits = mock(PreparedStatement.class);
+		PreparedStatement delete = mock(PreparedStatement.class);
+		Date closedBefore = new Date(1_000_000);
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.GET_ARCHIVE_BATCH_END)).thenReturn(preparedStatement);
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.ARCHIVE_TICKETS)).thenReturn(archive);
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.ADD_ARCHIVED_VISITS)).thenReturn(visits);
+		when(dataBaseConfig.prepareStatement(connection, DBConstants.DELETE_ARCHIVED_TICKETS)).thenReturn(delete);
+		when(preparedStatement.executeQuery()).thenReturn(batchEnd);
+		when(batchEnd.next()).thenReturn(true);
+		when(batchEnd.getInt(1)).thenReturn(250);
+		when(delete.executeUpdate()).thenReturn(200);
+
+		assertThat(ticketDAO.archiveClosedTickets(closedBefore, 200)).isEqualTo(200);
+
+		verify(preparedStatement).setInt(2, 200);
+		verify(archive).setInt(2, 250);
+		verify(visits).setTimestamp(1, new Timestamp(closedBefore.getTime()));
+		verify(delete).setInt(2, 250);
+		verify(connection).setAutoCommit(false);
+		verify(connection).commit();
+		verify(connection, never()).rollback();
+	}
+}
@@ -0,0 +1,127 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
+import com.parkit.parkingsystem.service.CsvRepricingSink;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.RepricingReport;
+import com.parkit.parkingsystem.service.RepricingSink;
+import com.parkit.parkingsystem.service.TicketRepricer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class TicketRepricerTest {
+	private static final long HOUR = 3_600_000L;
+	private static final long START = 1_700_000_000_000L / HOUR * HOUR;
+
+	@TempDir
+	Path directory;
+
+	private final TicketDAO ticketDAO = mock(TicketDAO.class);
+	private final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+
+	/* 100 tickets in batches of 30, every third one charged 1 cent too much and every fourth one a returning visit */
+	private void streamTickets() {
+		doAnswer(invocation -> {
+			Consumer<ClosedTicketBatch> sink = invocation.getArgument(4);
+			ClosedTicketBatch batch = new ClosedTicketBatch(30);
+			for (int id = 1; id <= 100; id++) {
+				long inTime = START + id * HOUR;
+				long outTime = inTime + (id % 7 + 1) * HOUR;
+				ParkingType parkingType = id % 2 == 0 ? ParkingType.CAR : ParkingType.BIKE;
+				int visit = id % 4 == 0 ? 2 : 1;
+				long price = fareCalculatorService.calculateFare(inTime, outTime, parkingType, visit >= 2);
+				batch.add(id, inTime, outTime, id % 3 == 0 ? price + 1 : price, parkingType, visit);
+				if (batch.isFull() || id == 100) {
+					try {
+						sink.accept(batch);
+					} catch (RuntimeException e) {
+						/* as TicketDAO does, a failing sink ends the stream */
+						return false;
+					}
+					batch = new ClosedTicketBatch(30);
+				}
+			}
+			return true;
+		}).when(ticketDAO).streamClosedTickets(any(Date.class), any(Date.class), anyInt(), anyInt(), any());
+	}
+
+	@Test
+	public void onlyChangedTicketsAreWritten() {
+		streamTickets();
+		Map<Integer, Long> changes = new ConcurrentHashMap<>();
+		RepricingSink sink = new RepricingSink() {
+			@Override
+			public void write(ClosedTicketBatch batch, long[] newPricesInCents) {
+				for (int row = 0; row < batch.size(); row++) {
+					if (newPricesInCents[row] != batch.getPriceInCents(row)) {
+						changes.put(batch.getId(row), newPricesInCents[row] - batch.getPriceInCents(row));
+					}
+				}
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+
+		RepricingReport report = new TicketRepricer(ticketDAO, fareCalculatorService, sink, 4, 1000, 30)
+				.reprice(new Date(START), new Date(START + 200 * HOUR));
+
+		assertThat(report.getTickets()).isEqualTo(100);
+		assertThat(report.getChangedTickets()).isEqualTo(33);
+		assertThat(report.getNewRevenueInCents()).isEqualTo(report.getOldRevenueInCents() - 33);
+		assertThat(changes).hasSize(33).containsEntry(3, -1L).containsEntry(99, -1L).doesNotContainKey(4);
+	}
+
+	@Test
+	public void aFailingSinkFailsTheRun() {
+		streamTickets();
+		RepricingSink sink = new RepricingSink() {
+			@Override
+			public void write(ClosedTicketBatch batch, long[] newPricesInCents) throws IOException {
+				throw new IOException("Disk full");
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+
+		assertThat(new TicketRepricer(ticketDAO, fareCalculatorService, sink, 2, 1000, 30)
+				.reprice(new Date(START), new Date(START + 200 * HOUR))).isNull();
+	}
+
+	@Test
+	public void csvSinkWritesOneLinePerChangedTicket() throws IOException {
+		Path file = directory.resolve("repricing.csv");
+		ClosedTicketBatch batch = new ClosedTicketBatch(2);
+		batch.add(7, START, START + HOUR, 150, ParkingType.CAR, 1);
+		batch.add(8, START, START + HOUR, 100, ParkingType.BIKE, 3);
+
+		try (CsvRepricingSink sink = new CsvRepricingSink(file)) {
+			sink.write(batch, new long[]{180, 100});
+		}
+
+		List<String> lines = Files.readAllLines(file);
+		assertThat(lines).hasSize(2);
+		assertThat(lines.get(0)).startsWith("TICKET_ID,TYPE");
+		assertThat(lines.get(1)).startsWith("7,CAR,").endsWith(",150,180,30");
+	}
+}
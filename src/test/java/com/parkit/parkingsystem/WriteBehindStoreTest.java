@@ -0,0 +1,291 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.WriteBehindStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WriteBehindStoreTest {
+
+	@Mock
+	private DataBaseConfig dataBaseConfig;
+	@Mock
+	private Connection connection;
+	@Mock
+	private PreparedStatement saveStatement;
+	@Mock
+	private PreparedStatement updateStatement;
+	@Mock
+	private PreparedStatement getStatement;
+	@Mock
+	private PreparedStatement appliedStatement;
+	@Mock
+	private ResultSet generatedKeys;
+	@Mock
+	private ResultSet noTicket;
+	@Mock
+	private ParkingSpotDAO parkingSpotDAO;
+
+	@TempDir
+	Path tempDir;
+
+	private TicketDAO ticketDAO;
+	private Path journalFile;
+
+	@BeforeEach
+	public void setUpPerTest() throws Exception {
+		ticketDAO = new TicketDAO();
+		ticketDAO.dataBaseConfig = dataBaseConfig;
+		journalFile = tempDir.resolve("write-behind.journal");
+
+		lenient().when(dataBaseConfig.getConnection()).thenReturn(connection);
+		lenient().when(connection.getAutoCommit()).thenReturn(false);
+		lenient().when(dataBaseConfig.prepareStatement(connection, DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS))
+				.thenReturn(saveStatement);
+		lenient().when(dataBaseConfig.prepareStatement(connection, DBConstants.UPDATE_TICKET, Statement.NO_GENERATED_KEYS))
+				.thenReturn(updateStatement);
+		lenient().when(dataBaseConfig.prepareStatement(connection, DBConstants.GET_TICKET)).thenReturn(getStatement);
+		lenient().when(getStatement.executeQuery()).thenReturn(noTicket);
+		lenient().when(dataBaseConfig.prepareStatement(connection, DBConstants.GET_TICKETS_COUNT)).thenReturn(getStatement);
+		lenient().when(dataBaseConfig.prepareStatement(connection, DBConstants.GET_WRITE_BEHIND_APPLIED)).thenReturn(getStatement);
+		lenient().when(dataBaseConfig.prepareStatement(connection, DBConstants.SAVE_WRITE_BEHIND_APPLIED))
+				.thenReturn(appliedStatement);
+		lenient().when(dataBaseConfig.prepareStatement(connection, DBConstants.DELETE_WRITE_BEHIND_APPLIED))
+				.thenReturn(appliedStatement);
+
+		AtomicInteger batched = new AtomicInteger();
+		lenient().doAnswer(invocation -> batched.incrementAndGet()).when(saveStatement).addBatch();
+		lenient().when(saveStatement.executeBatch()).thenAnswer(invocation -> {
+			int[] counts = new int[batched.getAndSet(0)];
+			Arrays.fill(counts, 1);
+			return counts;
+		});
+		lenient().when(saveStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+		lenient().when(generatedKeys.next()).thenReturn(true);
+		AtomicInteger nextId = new AtomicInteger(10);
+		lenient().when(generatedKeys.getInt(1)).thenAnswer(invocation -> nextId.getAndIncrement());
+		lenient().when(updateStatement.executeBatch()).thenReturn(new int[]{1});
+		lenient().when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+	}
+
+	private WriteBehindStore newStore() throws Exception {
+		return new WriteBehindStore(ticketDAO, parkingSpotDAO, dataBaseConfig, journalFile, 100, 50, true);
+	}
+
+	/* once everything is persisted only the last checkpoint, which keeps seqs increasing, is left */
+	private void assertJournalCaughtUp() throws Exception {
+		assertThat(Files.readAllLines(journalFile)).singleElement().asString().startsWith("C\t");
+	}
+
+	/* the replay can reach the writer in several batches, so every lookup gets the rows from the start */
+	private void stubAppliedAsTicket42(long... seqs) throws Exception {
+		ResultSet applied = mock(ResultSet.class);
+		AtomicInteger row = new AtomicInteger();
+		when(getStatement.executeQuery()).thenAnswer(invocation -> {
+			row.set(0);
+			return applied;
+		});
+		when(applied.next()).thenAnswer(invocation -> row.incrementAndGet() <= seqs.length);
+		when(applied.getLong(1)).thenAnswer(invocation -> seqs[row.get() - 1]);
+		when(applied.getInt(2)).thenReturn(42);
+	}
+
+	private static Ticket ticket(String vehicleRegNumber) {
+		Ticket ticket = new Ticket();
+		ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+		ticket.setVehicleRegNumber(vehicleRegNumber);
+		ticket.setInTime(new Date(System.currentTimeMillis() - 3600 * 1000));
+		return ticket;
+	}
+
+	@Test
+	public void pendingWritesAreVisibleAndPersistedByTheWriter() throws Exception {
+		CountDownLatch databaseReady = new CountDownLatch(1);
+		doAnswer(invocation -> databaseReady.await(5, TimeUnit.SECONDS)).when(dataBaseConfig).beginTransaction();
+		WriteBehindStore store = newStore();
+		store.start();
+		try {
+			Ticket ticket = ticket("ABCDEF");
+			assertThat(store.getTicketDAO().saveTicket(ticket)).isTrue();
+			assertThat(store.getParkingSpotDAO().updateParking(new ParkingSpot(1, ParkingType.CAR, false))).isTrue();
+
+			Ticket pending = store.getTicketDAO().getTicket("ABCDEF");
+			assertThat(pending.getId()).isNegative().isEqualTo(ticket.getId());
+			pending.setPriceInCents(150);
+			pending.setOutTime(new Date());
+			assertThat(store.getTicketDAO().updateTicket(pending)).isTrue();
+			assertThat(store.getTicketDAO().updateTicket(pending)).isFalse();
+			assertThat(store.getTicketDAO().getTicket("ABCDEF").getPriceInCents()).isEqualTo(150);
+
+			databaseReady.countDown();
+			assertThat(store.flush(5, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			store.close();
+		}
+
+		verify(saveStatement).setString(2, "ABCDEF");
+		verify(updateStatement).setLong(1, 150);
+		verify(updateStatement).setInt(3, 10);
+		verify(parkingSpotDAO).updateParking(new ParkingSpot(1, ParkingType.CAR, false));
+		verify(dataBaseConfig, atLeastOnce()).commitTransaction();
+		assertJournalCaughtUp();
+	}
+
+	@Test
+	public void journaledWritesAreReplayedAfterADatabaseOutage() throws Exception {
+		doThrow(new SQLException("database down")).when(dataBaseConfig).beginTransaction();
+		WriteBehindStore down = newStore();
+		down.start();
+		assertThat(down.getTicketDAO().saveTicket(ticket("GHIJKL"))).isTrue();
+		assertThat(down.flush(300, TimeUnit.MILLISECONDS)).isFalse();
+		down.close();
+		assertThat(Files.size(journalFile)).isPositive();
+		verify(saveStatement, never()).executeBatch();
+
+		doNothing().when(dataBaseConfig).beginTransaction();
+		WriteBehindStore restarted = newStore();
+		restarted.start();
+		try {
+			assertThat(restarted.getTicketDAO().getTicket("GHIJKL")).isNotNull();
+			assertThat(restarted.flush(5, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			restarted.close();
+		}
+
+		verify(saveStatement).setString(2, "GHIJKL");
+		verify(saveStatement, times(1)).executeBatch();
+		assertJournalCaughtUp();
+	}
+
+	@Test
+	public void aReplayedInsertAlreadyCommittedIsNotInsertedAgain() throws Exception {
+		doThrow(new SQLException("database down")).when(dataBaseConfig).beginTransaction();
+		WriteBehindStore down = newStore();
+		down.start();
+		Ticket ticket = ticket("STUVWX");
+		assertThat(down.getTicketDAO().saveTicket(ticket)).isTrue();
+		ticket.setPriceInCents(150);
+		ticket.setOutTime(new Date());
+		assertThat(down.getTicketDAO().updateTicket(ticket)).isTrue();
+		down.close();
+
+		/* the insert, journal record 1, committed as ticket 42 before the crash but was never checkpointed */
+		stubAppliedAsTicket42(1L);
+		doNothing().when(dataBaseConfig).beginTransaction();
+		WriteBehindStore restarted = newStore();
+		restarted.start();
+		try {
+			assertThat(restarted.flush(5, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			restarted.close();
+		}
+
+		verify(getStatement).setLong(1, 1L);
+		verify(saveStatement, never()).executeBatch();
+		verify(updateStatement).setInt(3, 42);
+		assertJournalCaughtUp();
+	}
+
+	@Test
+	public void aReplayedUpdateAlreadyCommittedIsSkipped() throws Exception {
+		doThrow(new SQLException("database down")).when(dataBaseConfig).beginTransaction();
+		WriteBehindStore down = newStore();
+		down.start();
+		Ticket ticket = ticket("YZABCD");
+		assertThat(down.getTicketDAO().saveTicket(ticket)).isTrue();
+		ticket.setPriceInCents(150);
+		ticket.setOutTime(new Date());
+		assertThat(down.getTicketDAO().updateTicket(ticket)).isTrue();
+		down.close();
+
+		/* both records committed as ticket 42 before the crash, the closed ticket would now match no open row */
+		stubAppliedAsTicket42(1L, 2L);
+		lenient().when(updateStatement.executeBatch()).thenReturn(new int[]{0});
+		doNothing().when(dataBaseConfig).beginTransaction();
+		WriteBehindStore restarted = newStore();
+		restarted.start();
+		try {
+			assertThat(restarted.flush(5, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			restarted.close();
+		}
+
+		verify(saveStatement, never()).executeBatch();
+		verify(updateStatement, never()).executeBatch();
+		assertJournalCaughtUp();
+	}
+
+	@Test
+	public void writesAreRejectedWhileTheQueueStaysFull() throws Exception {
+		CountDownLatch databaseReady = new CountDownLatch(1);
+		doAnswer(invocation -> databaseReady.await(5, TimeUnit.SECONDS)).when(dataBaseConfig).beginTransaction();
+		WriteBehindStore store = new WriteBehindStore(ticketDAO, parkingSpotDAO, dataBaseConfig, journalFile, 1, 50, true);
+		store.start();
+		try {
+			assertThat(store.getTicketDAO().saveTicket(ticket("AAAAAA"))).isTrue();
+			while (store.getQueuedWrites() > 0) {
+				Thread.sleep(10);
+			}
+			assertThat(store.getTicketDAO().saveTicket(ticket("BBBBBB"))).isTrue();
+
+			assertThat(store.getTicketDAO().saveTicket(ticket("CCCCCC"))).isFalse();
+			assertThat(store.getTicketDAO().getTicket("CCCCCC")).isNull();
+
+			databaseReady.countDown();
+			assertThat(store.flush(5, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			store.close();
+		}
+		verify(saveStatement, never()).setString(2, "CCCCCC");
+	}
+
+	@Test
+	public void pendingSavesCountTowardsRecurrence() throws Exception {
+		ResultSet count = mock(ResultSet.class);
+		when(getStatement.executeQuery()).thenReturn(count);
+		when(count.next()).thenReturn(true);
+		when(count.getInt("linesCount")).thenReturn(1);
+		doThrow(new SQLException("database down")).when(dataBaseConfig).beginTransaction();
+
+		WriteBehindStore store = newStore();
+		store.start();
+		try {
+			store.getTicketDAO().saveTicket(ticket("MNOPQR"));
+
+			assertThat(store.getTicketDAO().getTicketsCount("MNOPQR")).isEqualTo(2);
+			verify(getStatement, atLeastOnce()).setString(1, "MNOPQR");
+		} finally {
+			store.close();
+		}
+		verify(dataBaseConfig, never()).commitTransaction();
+		verifyNoMoreInteractions(parkingSpotDAO);
+	}
+}
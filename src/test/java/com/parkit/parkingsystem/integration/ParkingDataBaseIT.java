@@ -60,14 +60,14 @@ public class ParkingDataBaseIT {
 	public void testParkingACar() {
 		when(inputReaderUtil.readSelection()).thenReturn(1);
 
-		ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+		ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, dataBaseTestConfig);
 		parkingService.processIncomingVehicle(actualDate);
 
 		Ticket ticket = ticketDAO.getTicket("ABCDEF");
 
 		assertThat(ticket).isNotNull();
 		assertThat(ticket.getVehicleRegNumber()).isEqualTo("ABCDEF");
-		assertThat(ticket.getPrice()).isEqualTo(0);
+		assertThat(ticket.getPriceInCents()).isEqualTo(0);
 		assertThat(ticket.getParkingSpot().getParkingType()).isEqualTo(ParkingType.CAR);
 		assertThat(ticket.getInTime().toInstant()).isEqualTo(actualDate.toInstant());
 		assertThat(ticket.getOutTime()).isNull();
@@ -84,12 +84,12 @@ public class ParkingDataBaseIT {
 		parkingSpotDAO.updateParking(parkingSpot);
 		ticketDAO.saveTicket(ticket);
 
-		ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+		ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, dataBaseTestConfig);
 		parkingService.processExitingVehicle(actualDate);
 
 		Ticket updatedTicket = ticketDAO.getTicket("ABCDEF");
 
-		assertThat(updatedTicket.getPrice()).isEqualTo(Fare.CAR_RATE_PER_HOUR);
+		assertThat(updatedTicket.getPriceInCents()).isEqualTo(Fare.CAR_RATE_PER_HOUR_IN_CENTS);
 		assertThat(updatedTicket.getOutTime().toInstant()).isEqualTo(actualDate.toInstant());
 		assertThat(updatedTicket.getParkingSpot().isAvailable()).isTrue();
 	}
@@ -101,7 +101,7 @@ public class ParkingDataBaseIT {
 		ticketOne.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, true));
 		ticketOne.setInTime(DateUtility.dateModifier(actualDate, TimeSlot.HOUR, -3));
 		ticketOne.setOutTime(DateUtility.dateModifier(actualDate, TimeSlot.HOUR, -2));
-		ticketOne.setPrice(Fare.CAR_RATE_PER_HOUR);
+		ticketOne.setPriceInCents(Fare.CAR_RATE_PER_HOUR_IN_CENTS);
 		ticketDAO.saveTicket(ticketOne);
 
 		Ticket ticketTwo = new Ticket();
@@ -112,13 +112,13 @@ public class ParkingDataBaseIT {
 		parkingSpotDAO.updateParking(parkingSpot);
 		ticketDAO.saveTicket(ticketTwo);
 
-		ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+		ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, dataBaseTestConfig);
 
 		parkingService.processExitingVehicle(actualDate);
 
 		Ticket lastTicket = ticketDAO.getTicket("ABCDEF");
 
-		assertThat(lastTicket.getPrice()).isEqualTo(Fare.CAR_RATE_PER_HOUR * 0.95);
+		assertThat(lastTicket.getPriceInCents()).isEqualTo(143);
 		assertThat(lastTicket.getOutTime().toInstant()).isEqualTo(actualDate.toInstant());
 		assertThat(lastTicket.getParkingSpot().isAvailable()).isTrue();
 	}
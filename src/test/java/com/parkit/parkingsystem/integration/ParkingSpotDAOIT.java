@@ -0,0 +1,123 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParkingSpotDAOIT {
+
+	private static final int GATES = 24;
+
+	private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+	private static ParkingSpotDAO parkingSpotDAO;
+	private static DataBasePrepareService dataBasePrepareService;
+
+	@BeforeAll
+	public static void setUp() {
+		parkingSpotDAO = new ParkingSpotDAO();
+		parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+		dataBasePrepareService = new DataBasePrepareService();
+	}
+
+	@BeforeEach
+	public void setUpPerTest() {
+		dataBasePrepareService.clearDataBaseEntries();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		dataBasePrepareService.clearDataBaseEntries();
+	}
+
+	@Test
+	public void testConcurrentClaimsNeverShareASpot() throws Exception {
+		ExecutorService gates = Executors.newFixedThreadPool(GATES);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> claims = new ArrayList<>();
+		try {
+			for (int i = 0; i < GATES; i++) {
+				ParkingType parkingType = (i % 2 == 0) ? ParkingType.CAR : ParkingType.BIKE;
+				Callable<Integer> claim = () -> {
+					start.await();
+					return parkingSpotDAO.claimNextAvailableSlot(parkingType);
+				};
+				claims.add(gates.submit(claim));
+			}
+			start.countDown();
+
+			List<Integer> claimedSpots = new ArrayList<>();
+			for (Future<Integer> claim : claims) {
+				int parkingNumber = claim.get();
+				if (parkingNumber > 0) {
+					claimedSpots.add(parkingNumber);
+				}
+			}
+
+			assertThat(claimedSpots).doesNotHaveDuplicates();
+			assertThat(claimedSpots).containsExactlyInAnyOrder(1, 2, 3, 4, 5);
+			assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(0);
+			assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).isEqualTo(0);
+		} finally {
+			gates.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testClaimTakesLowestAvailableSpot() {
+		assertThat(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+		assertThat(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+		assertThat(parkingSpotDAO.claimNextAvailableSlot(ParkingType.BIKE)).isEqualTo(4);
+	}
+
+	@Test
+	public void testConcurrentNearestEntranceClaimsBothGetASpot() throws Exception {
+		assertThat(claimConcurrently(AllocationStrategy.NEAREST_ENTRANCE)).containsExactlyInAnyOrder(1, 2);
+	}
+
+	@Test
+	public void testConcurrentSpreadClaimsBothGetASpot() throws Exception {
+		assertThat(claimConcurrently(AllocationStrategy.SPREAD)).containsExactlyInAnyOrder(1, 2);
+	}
+
+	private List<Integer> claimConcurrently(AllocationStrategy allocationStrategy) throws Exception {
+		ExecutorService gates = Executors.newFixedThreadPool(2);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> claims = new ArrayList<>();
+		try {
+			for (int i = 0; i < 2; i++) {
+				Callable<Integer> claim = () -> {
+					start.await();
+					return parkingSpotDAO.claimNextAvailableSlot(ParkingSpot.DEFAULT_SITE, ParkingType.CAR,
+							allocationStrategy);
+				};
+				claims.add(gates.submit(claim));
+			}
+			start.countDown();
+
+			List<Integer> claimedSpots = new ArrayList<>();
+			for (Future<Integer> claim : claims) {
+				claimedSpots.add(claim.get());
+			}
+			return claimedSpots;
+		} finally {
+			gates.shutdownNow();
+		}
+	}
+}
@@ -16,6 +16,12 @@ public class DataBasePrepareService {
 
 			connection.prepareStatement("truncate table ticket").execute();
 
+			connection.prepareStatement("truncate table open_ticket").execute();
+
+			connection.prepareStatement("truncate table ticket_archive").execute();
+
+			connection.prepareStatement("truncate table archived_visit").execute();
+
 		} catch (Exception e) {
 			e.printStackTrace();
 		} finally {